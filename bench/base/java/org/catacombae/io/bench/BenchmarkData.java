@@ -0,0 +1,79 @@
+/*-
+ * Copyright (C) 2026 Erik Larsson
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package org.catacombae.io.bench;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * The test data shared by the benchmarks: a byte array and a temporary file
+ * with the same random contents, created once per benchmark JVM.
+ *
+ * @author <a href="https://catacombae.org" target="_top">Erik Larsson</a>
+ */
+public class BenchmarkData {
+    /** The size of the test data (64 MiB). */
+    public static final int DATA_SIZE = 64 * 1024 * 1024;
+
+    private static byte[] data = null;
+    private static File dataFile = null;
+
+    private BenchmarkData() {}
+
+    /**
+     * Returns the test data.
+     *
+     * @return the test data.
+     */
+    public static synchronized byte[] getData() {
+        if(data == null) {
+            data = new byte[DATA_SIZE];
+            new Random(0).nextBytes(data);
+        }
+
+        return data;
+    }
+
+    /**
+     * Returns a temporary file holding the test data. The file is deleted
+     * when the JVM exits.
+     *
+     * @return a temporary file holding the test data.
+     * @throws IOException if the file could not be created.
+     */
+    public static synchronized File getDataFile() throws IOException {
+        if(dataFile == null) {
+            final File file = File.createTempFile("catacombae-bench", ".bin");
+            file.deleteOnExit();
+
+            final FileOutputStream out = new FileOutputStream(file);
+            try {
+                out.write(getData());
+            } finally {
+                out.close();
+            }
+
+            dataFile = file;
+        }
+
+        return dataFile;
+    }
+}
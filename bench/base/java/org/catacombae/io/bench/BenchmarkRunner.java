@@ -0,0 +1,66 @@
+/*-
+ * Copyright (C) 2026 Erik Larsson
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package org.catacombae.io.bench;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the I/O benchmarks once for each thread count in the system property
+ * <code>bench.threads</code> (a comma separated list, default "1,4"),
+ * including the benchmarks matching the regular expression in
+ * <code>bench.include</code>.<br>
+ * If any arguments are given, they are passed on to the JMH command line
+ * runner instead.
+ *
+ * @author <a href="https://catacombae.org" target="_top">Erik Larsson</a>
+ */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws Exception {
+        if(args.length > 0) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+
+        final String include = System.getProperty("bench.include",
+                BenchmarkRunner.class.getPackage().getName().replace(".",
+                "\\.") + "\\..*");
+        final String threadCounts =
+                System.getProperty("bench.threads", "1,4");
+
+        for(String threadCount : threadCounts.split(",")) {
+            run(include, Integer.parseInt(threadCount.trim()));
+        }
+    }
+
+    private static void run(String include, int threadCount)
+            throws RunnerException
+    {
+        System.out.println("Running " + include + " with " + threadCount +
+                " thread(s).");
+
+        final Options options = new OptionsBuilder().
+                include(include).
+                threads(threadCount).
+                build();
+        new Runner(options).run();
+    }
+}
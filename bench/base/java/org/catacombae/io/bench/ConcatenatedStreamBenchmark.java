@@ -0,0 +1,95 @@
+/*-
+ * Copyright (C) 2026 Erik Larsson
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package org.catacombae.io.bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.catacombae.io.ReadableConcatenatedStream;
+import org.catacombae.io.ReadableFileChannelStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Positional reads through a ReadableConcatenatedStream (a
+ * BasicConcatenatedStream) shared by all benchmark threads, with the test
+ * file split into a varying number of parts. The parts share one
+ * ReadableFileChannelStream, so the file itself is read without locking and
+ * the measurements show the cost of the part lookup and splitting.
+ *
+ * @author <a href="https://catacombae.org" target="_top">Erik Larsson</a>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConcatenatedStreamBenchmark {
+    @Param({"512", "4096", "65536", "1048576"})
+    public int readSize;
+
+    @Param({"SEQUENTIAL", "RANDOM"})
+    public AccessPattern pattern;
+
+    @Param({"1", "16", "256"})
+    public int partCount;
+
+    private ReadableFileChannelStream file;
+    private ReadableConcatenatedStream stream;
+    private long length;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        file = new ReadableFileChannelStream(BenchmarkData.getDataFile());
+
+        final long fileLength = file.length();
+        final long partLength = fileLength / partCount;
+        stream = new ReadableConcatenatedStream(file, 0, partLength);
+        for(int i = 1; i < partCount; ++i) {
+            final long partStart = i * partLength;
+            stream.addPart(file, partStart, (i == partCount - 1) ?
+                fileLength - partStart : partLength);
+        }
+
+        length = stream.length();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        file.close();
+    }
+
+    @Benchmark
+    public byte[] readFrom(Cursor cursor) {
+        final byte[] buffer = cursor.getBuffer(readSize);
+        stream.readFullyFrom(cursor.next(pattern, length, readSize), buffer);
+        return buffer;
+    }
+}
@@ -0,0 +1,72 @@
+/*-
+ * Copyright (C) 2026 Erik Larsson
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package org.catacombae.io.bench;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Per-thread read position and buffer. Generating positions allocates
+ * nothing, so it doesn't disturb the measurements.
+ *
+ * @author <a href="https://catacombae.org" target="_top">Erik Larsson</a>
+ */
+@State(Scope.Thread)
+public class Cursor {
+    private long position = 0;
+    private long random = 0x9E3779B97F4A7C15L ^ System.identityHashCode(this);
+    private byte[] buffer = null;
+
+    /**
+     * Returns the position of the next read.
+     *
+     * @param pattern the access pattern.
+     * @param length the length of the stream.
+     * @param readSize the size of each read.
+     * @return the position of the next read.
+     */
+    public long next(AccessPattern pattern, long length, int readSize) {
+        if(pattern == AccessPattern.SEQUENTIAL) {
+            final long res = position;
+            position += readSize;
+            if(position + readSize > length)
+                position = 0;
+            return res;
+        }
+        else {
+            /* xorshift64 */
+            random ^= random << 13;
+            random ^= random >>> 7;
+            random ^= random << 17;
+            return ((random >>> 1) % (length / readSize)) * readSize;
+        }
+    }
+
+    /**
+     * Returns this thread's read buffer.
+     *
+     * @param size the size of the buffer.
+     * @return a buffer of <code>size</code> bytes.
+     */
+    public byte[] getBuffer(int size) {
+        if(buffer == null || buffer.length != size)
+            buffer = new byte[size];
+        return buffer;
+    }
+}
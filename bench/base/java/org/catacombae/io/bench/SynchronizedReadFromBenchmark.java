@@ -0,0 +1,92 @@
+/*-
+ * Copyright (C) 2026 Erik Larsson
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package org.catacombae.io.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.catacombae.io.ReadableFileStream;
+import org.catacombae.io.ReadableRandomAccessStream;
+import org.catacombae.io.SynchronizedReadableRandomAccessStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Positional reads through one SynchronizedReadableRandomAccessStream shared
+ * by all benchmark threads, with and without a pool of extra file handles.
+ * Running with several threads shows the cost of the shared lock.
+ *
+ * @author <a href="https://catacombae.org" target="_top">Erik Larsson</a>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SynchronizedReadFromBenchmark {
+    @Param({"512", "4096", "65536", "1048576"})
+    public int readSize;
+
+    @Param({"SEQUENTIAL", "RANDOM"})
+    public AccessPattern pattern;
+
+    /** Number of pooled handles, 0 meaning no pool. */
+    @Param({"0", "4"})
+    public int poolSize;
+
+    private SynchronizedReadableRandomAccessStream stream;
+    private long length;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        final File file = BenchmarkData.getDataFile();
+        stream = new SynchronizedReadableRandomAccessStream(
+                new ReadableFileStream(file),
+                new SynchronizedReadableRandomAccessStream.HandleFactory() {
+                    public ReadableRandomAccessStream openHandle() {
+                        return new ReadableFileStream(file);
+                    }
+                }, poolSize);
+        length = stream.length();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        stream.close();
+    }
+
+    @Benchmark
+    public byte[] readFrom(Cursor cursor) {
+        final byte[] buffer = cursor.getBuffer(readSize);
+        stream.readFullyFrom(cursor.next(pattern, length, readSize), buffer);
+        return buffer;
+    }
+}
@@ -0,0 +1,605 @@
+/*-
+ * Copyright (C) 2026 Erik Larsson
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package org.catacombae.csjc.apt;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import org.catacombae.csjc.annotations.ByteArrayMember;
+import org.catacombae.csjc.annotations.IntegerMember;
+import org.catacombae.csjc.annotations.StructType;
+import org.catacombae.csjc.structelements.Endianness;
+import org.catacombae.csjc.structelements.Signedness;
+
+/**
+ * Generates a codec class for each class annotated with {@link StructType}.
+ * See {@link StructType} for what the codec contains.<br>
+ * The generated code is straight-line byte arithmetic with no reflection or
+ * allocation (except where byte arrays have to be created), so the JIT can
+ * compile it down to a few loads and shifts per member.
+ *
+ * @author <a href="https://catacombae.org" target="_top">Erik Larsson</a>
+ */
+@SupportedAnnotationTypes({
+    "org.catacombae.csjc.annotations.StructType",
+    "org.catacombae.csjc.annotations.IntegerMember",
+    "org.catacombae.csjc.annotations.ByteArrayMember"
+})
+public class StructCodecProcessor extends AbstractProcessor {
+    /** A member of a struct class, integer or byte array. */
+    private static class Member {
+        final VariableElement field;
+        final String name;
+        final int offset;
+        final int length;
+        final String description;
+        /** The integer annotation, or <code>null</code> for byte arrays. */
+        final IntegerMember integer;
+
+        Member(VariableElement field, IntegerMember integer) {
+            this.field = field;
+            this.name = field.getSimpleName().toString();
+            this.offset = integer.offset();
+            this.length = integer.bits().getBytes();
+            this.description = integer.description();
+            this.integer = integer;
+        }
+
+        Member(VariableElement field, ByteArrayMember array) {
+            this.field = field;
+            this.name = field.getSimpleName().toString();
+            this.offset = array.offset();
+            this.length = array.length();
+            this.description = array.description();
+            this.integer = null;
+        }
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations,
+            RoundEnvironment roundEnv)
+    {
+        for(Element e : roundEnv.getElementsAnnotatedWith(StructType.class)) {
+            if(e.getKind() != ElementKind.CLASS) {
+                error(e, "@StructType can only be applied to classes.");
+                continue;
+            }
+
+            final TypeElement type = (TypeElement) e;
+            final List<Member> members = collectMembers(type);
+            if(members == null)
+                continue;
+
+            try {
+                generateCodec(type, members);
+            } catch(IOException ex) {
+                error(type, "Failed to write codec: " + ex);
+            }
+        }
+
+        final Set<Element> memberFields = new HashSet<Element>();
+        memberFields.addAll(
+                roundEnv.getElementsAnnotatedWith(IntegerMember.class));
+        memberFields.addAll(
+                roundEnv.getElementsAnnotatedWith(ByteArrayMember.class));
+        for(Element e : memberFields) {
+            if(e.getEnclosingElement().getAnnotation(StructType.class) ==
+                    null)
+            {
+                error(e, "Struct members must be declared in a " +
+                        "@StructType class.");
+            }
+        }
+
+        return true;
+    }
+
+    private void error(Element e, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                message, e);
+    }
+
+    /**
+     * Collects and validates the members of <code>type</code>.
+     *
+     * @return the members sorted by offset, or <code>null</code> if an error
+     * was reported.
+     */
+    private List<Member> collectMembers(TypeElement type) {
+        boolean failed = false;
+        final List<Member> members = new ArrayList<Member>();
+        for(Element e : type.getEnclosedElements()) {
+            if(e.getKind() != ElementKind.FIELD)
+                continue;
+
+            final VariableElement field = (VariableElement) e;
+            final IntegerMember integer =
+                    field.getAnnotation(IntegerMember.class);
+            final ByteArrayMember array =
+                    field.getAnnotation(ByteArrayMember.class);
+            if(integer == null && array == null)
+                continue;
+
+            final Member member;
+            if(integer != null && array != null) {
+                error(field, "A field can't be both an @IntegerMember and a " +
+                        "@ByteArrayMember.");
+                failed = true;
+                continue;
+            }
+            else if(integer != null) {
+                member = new Member(field, integer);
+                final int typeBits = getIntegerTypeBits(field.asType());
+                if(typeBits < 0) {
+                    error(field, "@IntegerMember fields must be of type " +
+                            "byte, short, char, int or long.");
+                    failed = true;
+                }
+                else if(integer.bits().getBits() > typeBits) {
+                    error(field, "A " + integer.bits().getBits() + "-bit " +
+                            "value doesn't fit in a field of type " +
+                            field.asType() + ".");
+                    failed = true;
+                }
+            }
+            else {
+                member = new Member(field, array);
+                if(!field.asType().toString().equals("byte[]")) {
+                    error(field, "@ByteArrayMember fields must be of type " +
+                            "byte[].");
+                    failed = true;
+                }
+                else if(array.length() <= 0) {
+                    error(field, "Invalid length: " + array.length());
+                    failed = true;
+                }
+            }
+
+            if(field.getModifiers().contains(Modifier.PRIVATE) ||
+                    field.getModifiers().contains(Modifier.STATIC) ||
+                    field.getModifiers().contains(Modifier.FINAL))
+            {
+                error(field, "Struct members must be non-private, " +
+                        "non-static and non-final.");
+                failed = true;
+            }
+            if(member.offset < 0) {
+                error(field, "Invalid offset: " + member.offset);
+                failed = true;
+            }
+
+            members.add(member);
+        }
+
+        Collections.sort(members, new Comparator<Member>() {
+            public int compare(Member a, Member b) {
+                return a.offset - b.offset;
+            }
+        });
+
+        for(int i = 1; i < members.size(); ++i) {
+            final Member prev = members.get(i - 1);
+            final Member cur = members.get(i);
+            if(cur.offset < prev.offset + prev.length) {
+                error(cur.field, "Member " + cur.name + " overlaps member " +
+                        prev.name + ".");
+                failed = true;
+            }
+        }
+
+        if(type.getNestingKind() != NestingKind.TOP_LEVEL &&
+                !type.getModifiers().contains(Modifier.STATIC))
+        {
+            error(type, "@StructType classes must be top level or static.");
+            failed = true;
+        }
+
+        final int size = type.getAnnotation(StructType.class).size();
+        if(size >= 0 && size < getEnd(members)) {
+            error(type, "The declared size " + size + " is smaller than " +
+                    "the members (" + getEnd(members) + " bytes).");
+            failed = true;
+        }
+
+        return failed ? null : members;
+    }
+
+    private static int getEnd(List<Member> members) {
+        int end = 0;
+        for(Member m : members)
+            end = Math.max(end, m.offset + m.length);
+        return end;
+    }
+
+    /**
+     * Returns the width of an integral primitive type, or -1 if
+     * <code>t</code> isn't one of the supported types.
+     */
+    private static int getIntegerTypeBits(TypeMirror t) {
+        final TypeKind kind = t.getKind();
+        if(kind == TypeKind.BYTE)
+            return 8;
+        else if(kind == TypeKind.SHORT || kind == TypeKind.CHAR)
+            return 16;
+        else if(kind == TypeKind.INT)
+            return 32;
+        else if(kind == TypeKind.LONG)
+            return 64;
+        else
+            return -1;
+    }
+
+    /**
+     * Returns an expression for the unsigned value of an integer member, of
+     * type int for widths up to 16 bits and long otherwise.
+     *
+     * @param byteExpr the expression for the byte at relative index
+     * <code>%d</code> of the member.
+     */
+    private static String unsignedExpression(String byteExpr, int offset,
+            int length, Endianness endianness)
+    {
+        final StringBuilder sb = new StringBuilder("(");
+        for(int i = 0; i < length; ++i) {
+            final int index = (endianness == Endianness.BIG_ENDIAN) ? i :
+                (length - 1 - i);
+            final int shift = (length - 1 - i) * 8;
+            if(i > 0)
+                sb.append(" | ");
+
+            final String b = String.format(byteExpr, offset + index);
+            if(length > 2)
+                sb.append("((long) ").append(b).append(" & 0xFF)");
+            else
+                sb.append("(").append(b).append(" & 0xFF)");
+            if(shift > 0)
+                sb.append(" << ").append(shift);
+        }
+        return sb.append(")").toString();
+    }
+
+    /**
+     * Converts an unsigned value expression (see
+     * {@link #unsignedExpression}) to an assignment to the field of
+     * <code>m</code>, applying sign extension. The value is only cast to the
+     * type of the field if it doesn't have that type already.
+     */
+    private static String assignment(Member m, String unsigned) {
+        final String valueExpr;
+        final TypeKind valueType;
+        if(m.integer.signedness() == Signedness.SIGNED) {
+            switch(m.length) {
+                case 1:
+                    valueExpr = "(byte) " + unsigned;
+                    valueType = TypeKind.BYTE;
+                    break;
+                case 2:
+                    valueExpr = "(short) " + unsigned;
+                    valueType = TypeKind.SHORT;
+                    break;
+                case 4:
+                    valueExpr = "(int) " + unsigned;
+                    valueType = TypeKind.INT;
+                    break;
+                default:
+                    valueExpr = unsigned;
+                    valueType = TypeKind.LONG;
+                    break;
+            }
+        }
+        else {
+            valueExpr = unsigned;
+            valueType = (m.length > 2) ? TypeKind.LONG : TypeKind.INT;
+        }
+
+        if(m.field.asType().getKind() == valueType)
+            return "s." + m.name + " = " + valueExpr + ";";
+        else {
+            return "s." + m.name + " = (" + m.field.asType() + ") (" +
+                    valueExpr + ");";
+        }
+    }
+
+    private static String getCodecName(TypeElement type) {
+        String name = type.getSimpleName().toString();
+        for(Element e = type.getEnclosingElement();
+                e.getKind() != ElementKind.PACKAGE;
+                e = e.getEnclosingElement())
+        {
+            name = e.getSimpleName() + "_" + name;
+        }
+        return name + "Codec";
+    }
+
+    private static PackageElement getPackage(Element e) {
+        while(e.getKind() != ElementKind.PACKAGE)
+            e = e.getEnclosingElement();
+        return (PackageElement) e;
+    }
+
+    private static String quote(String s) {
+        final StringBuilder sb = new StringBuilder("\"");
+        for(char c : s.toCharArray()) {
+            if(c == '"' || c == '\\')
+                sb.append('\\').append(c);
+            else if(c < 0x20 || c > 0x7E)
+                sb.append(String.format("\\u%04x", (int) c));
+            else
+                sb.append(c);
+        }
+        return sb.append('"').toString();
+    }
+
+    private void generateCodec(TypeElement type, List<Member> members)
+            throws IOException
+    {
+        final StructType structType = type.getAnnotation(StructType.class);
+        final PackageElement pkg = getPackage(type);
+        final String packageName =
+                pkg.isUnnamed() ? null : pkg.getQualifiedName().toString();
+        final String codecName = getCodecName(type);
+        final String structName = type.getQualifiedName().toString();
+        final String typeName = structType.name().length() > 0 ?
+            structType.name() : type.getSimpleName().toString();
+        final int size = structType.size() >= 0 ? structType.size() :
+            getEnd(members);
+
+        final JavaFileObject file = processingEnv.getFiler().createSourceFile(
+                (packageName != null ? packageName + "." : "") + codecName,
+                type);
+        final PrintWriter out = new PrintWriter(file.openWriter());
+        try {
+            if(packageName != null) {
+                out.println("package " + packageName + ";");
+                out.println();
+            }
+
+            out.println("/**");
+            out.println(" * Codec for {@link " + structName + "}, generated " +
+                    "by " + StructCodecProcessor.class.getName() + ".");
+            out.println(" */");
+            out.println("public final class " + codecName + " {");
+            out.println("    /** The size of the serialized struct. */");
+            out.println("    public static final int SIZE = " + size + ";");
+            out.println();
+            out.println("    private " + codecName + "() {}");
+            out.println();
+
+            /* read(byte[]) */
+            out.println("    public static void read(" + structName + " s, " +
+                    "byte[] data, int offset) {");
+            out.println("        if(offset < 0 || data.length - offset < " +
+                    "SIZE)");
+            out.println("            throw new IllegalArgumentException(" +
+                    "\"Not enough data for " + typeName + ".\");");
+            for(Member m : members) {
+                if(m.integer != null) {
+                    out.println("        " + assignment(m,
+                            unsignedExpression("data[offset + %d]",
+                            m.offset, m.length, m.integer.endianness())));
+                }
+                else {
+                    out.println("        if(s." + m.name + " == null || s." +
+                            m.name + ".length != " + m.length + ")");
+                    out.println("            s." + m.name + " = new byte[" +
+                            m.length + "];");
+                    out.println("        System.arraycopy(data, offset + " +
+                            m.offset + ", s." + m.name + ", 0, " + m.length +
+                            ");");
+                }
+            }
+            out.println("    }");
+            out.println();
+
+            /* read(ByteBuffer) */
+            out.println("    public static void read(" + structName + " s, " +
+                    "java.nio.ByteBuffer buf, int offset) {");
+            out.println("        if(offset < 0 || buf.limit() - offset < " +
+                    "SIZE)");
+            out.println("            throw new IllegalArgumentException(" +
+                    "\"Not enough data for " + typeName + ".\");");
+            for(Member m : members) {
+                if(m.integer != null) {
+                    out.println("        " + assignment(m,
+                            unsignedExpression("buf.get(offset + %d)",
+                            m.offset, m.length, m.integer.endianness())));
+                }
+                else {
+                    out.println("        if(s." + m.name + " == null || s." +
+                            m.name + ".length != " + m.length + ")");
+                    out.println("            s." + m.name + " = new byte[" +
+                            m.length + "];");
+                    out.println("        for(int i = 0; i < " + m.length +
+                            "; ++i)");
+                    out.println("            s." + m.name + "[i] = " +
+                            "buf.get(offset + " + m.offset + " + i);");
+                }
+            }
+            out.println("    }");
+            out.println();
+
+            /* read(DataReader) */
+            out.println("    public static void read(" + structName + " s, " +
+                    "org.catacombae.io.DataReader reader) {");
+            out.println("        final long pos = reader.position();");
+            for(Member m : members) {
+                if(m.integer != null) {
+                    final String method = "getUInt" + (m.length * 8) +
+                            (m.length == 1 ? "" :
+                            (m.integer.endianness() == Endianness.BIG_ENDIAN ?
+                            "BE" : "LE"));
+                    out.println("        " + assignment(m, "reader." +
+                            method + "(pos + " + m.offset + ")"));
+                }
+                else {
+                    out.println("        if(s." + m.name + " == null || s." +
+                            m.name + ".length != " + m.length + ")");
+                    out.println("            s." + m.name + " = new byte[" +
+                            m.length + "];");
+                    out.println("        reader.getBytes(pos + " + m.offset +
+                            ", s." + m.name + ", 0, " + m.length + ");");
+                }
+            }
+            out.println("        reader.position(pos + SIZE);");
+            out.println("    }");
+            out.println();
+
+            /* write(byte[]) */
+            out.println("    public static void write(" + structName + " s, " +
+                    "byte[] data, int offset) {");
+            out.println("        if(offset < 0 || data.length - offset < " +
+                    "SIZE)");
+            out.println("            throw new IllegalArgumentException(" +
+                    "\"Not enough room for " + typeName + ".\");");
+            for(Member m : members) {
+                if(m.integer != null) {
+                    out.println("        {");
+                    out.println("            final long v = s." + m.name +
+                            ";");
+                    for(int i = 0; i < m.length; ++i) {
+                        final int shift = (m.integer.endianness() ==
+                                Endianness.BIG_ENDIAN) ?
+                            (m.length - 1 - i) * 8 : i * 8;
+                        out.println("            data[offset + " +
+                                (m.offset + i) + "] = (byte) " +
+                                (shift > 0 ? "(v >>> " + shift + ")" : "v") +
+                                ";");
+                    }
+                    out.println("        }");
+                }
+                else {
+                    out.println("        if(s." + m.name + " == null || s." +
+                            m.name + ".length != " + m.length + ")");
+                    out.println("            throw new IllegalStateException(" +
+                            "\"" + m.name + " must be a byte[" + m.length +
+                            "].\");");
+                    out.println("        System.arraycopy(s." + m.name +
+                            ", 0, data, offset + " + m.offset + ", " +
+                            m.length + ");");
+                }
+            }
+            out.println("    }");
+            out.println();
+
+            /* getBytes */
+            out.println("    public static byte[] getBytes(" + structName +
+                    " s) {");
+            out.println("        final byte[] data = new byte[SIZE];");
+            out.println("        write(s, data, 0);");
+            out.println("        return data;");
+            out.println("    }");
+            out.println();
+
+            /* Dictionary schema, built once per struct class. */
+            out.println("    private static final " +
+                    "org.catacombae.csjc.structelements.DictionarySchema " +
+                    "SCHEMA =");
+            out.println("            createSchema();");
+            out.println();
+            out.println("    private static " +
+                    "org.catacombae.csjc.structelements.DictionarySchema " +
+                    "createSchema() {");
+            out.println("        final " +
+                    "org.catacombae.csjc.structelements." +
+                    "DictionarySchemaBuilder db =");
+            out.println("                new " +
+                    "org.catacombae.csjc.structelements." +
+                    "DictionarySchemaBuilder(" + quote(typeName) + ");");
+            for(Member m : members) {
+                final String description = m.description.length() > 0 ?
+                    quote(m.description) : "null";
+                if(m.integer != null) {
+                    final String unit = m.integer.unit().length() > 0 ?
+                        quote(m.integer.unit()) : "null";
+                    out.println("        db.addInt(" + quote(m.name) + ", " +
+                            m.offset + ", " + m.length + ",");
+                    out.println("                " +
+                            "org.catacombae.csjc.structelements.Signedness." +
+                            m.integer.signedness() + ",");
+                    out.println("                " +
+                            "org.catacombae.csjc.structelements.Endianness." +
+                            m.integer.endianness() + ",");
+                    out.println("                " + description + ", " +
+                            unit + ",");
+                    out.println("                " + "org.catacombae.csjc." +
+                            "structelements.IntegerFieldRepresentation." +
+                            m.integer.representation() + ");");
+                }
+                else {
+                    out.println("        db.addByteArray(" + quote(m.name) +
+                            ", " + m.offset + ", " + m.length + ", " +
+                            description + ");");
+                }
+            }
+            out.println("        return db.getResult();");
+            out.println("    }");
+            out.println();
+
+            /* getSchema */
+            out.println("    /** Returns the shared Dictionary schema of " +
+                    "the struct. */");
+            out.println("    public static " +
+                    "org.catacombae.csjc.structelements.DictionarySchema " +
+                    "getSchema() {");
+            out.println("        return SCHEMA;");
+            out.println("    }");
+            out.println();
+
+            /* getStructElements */
+            out.println("    /**");
+            out.println("     * Returns a dictionary of the members of " +
+                    "<code>s</code>, backed by a");
+            out.println("     * serialized copy of the struct.");
+            out.println("     */");
+            out.println("    public static " +
+                    "org.catacombae.csjc.structelements.Dictionary " +
+                    "getStructElements(" + structName + " s) {");
+            out.println("        return SCHEMA.bindTrusted(getBytes(s), 0);");
+            out.println("    }");
+            out.println("}");
+        } finally {
+            out.close();
+        }
+    }
+}
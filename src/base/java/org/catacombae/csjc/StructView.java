@@ -0,0 +1,301 @@
+/*-
+ * Copyright (C) 2026 Erik Larsson
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package org.catacombae.csjc;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A flyweight view of a struct stored in a ByteBuffer.<br>
+ * Instead of copying each record into a new object, a single StructView is
+ * pointed at one record after another with {@link #wrap(ByteBuffer, int)}.
+ * Subclasses read their fields from the buffer on demand using the protected
+ * accessors, so walking a large number of records creates no garbage.
+ * {@link #getBytes()} copies the record only when explicitly asked to, and
+ * records can be compared and hashed in place with
+ * {@link #contentEquals(StructView)}, {@link #compareContent(StructView)} and
+ * {@link #contentHashCode()}.<br>
+ * The accessors read the buffer with absolute gets, so neither the position
+ * nor the byte order of the buffer matters. A view is only valid as long as
+ * the underlying buffer region is not changed, and instances are not
+ * thread-safe. Note that {@link #equals(Object)} and {@link #hashCode()} keep
+ * their identity semantics since a view is mutable.
+ *
+ * @author <a href="https://catacombae.org" target="_top">Erik Larsson</a>
+ */
+public abstract class StructView implements AbstractStruct {
+    private ByteBuffer buffer = null;
+    private int offset = 0;
+
+    /**
+     * Points this view at the record at <code>offset</code> in
+     * <code>buffer</code>.
+     *
+     * @param buffer the buffer holding the record.
+     * @param offset the absolute index of the record in <code>buffer</code>.
+     * @throws IllegalArgumentException if the record does not fit inside the
+     * limit of <code>buffer</code>.
+     */
+    public void wrap(ByteBuffer buffer, int offset) {
+        if(buffer == null)
+            throw new IllegalArgumentException("buffer may NOT be null");
+        if(offset < 0 || offset > buffer.limit()) {
+            throw new IllegalArgumentException("Invalid offset: " + offset);
+        }
+
+        this.buffer = buffer;
+        this.offset = offset;
+
+        final int size = size();
+        if(size < 0 || size > buffer.limit() - offset) {
+            this.buffer = null;
+            throw new IllegalArgumentException("Record at offset " + offset +
+                    " (" + size + " bytes) exceeds the buffer limit (" +
+                    buffer.limit() + ").");
+        }
+    }
+
+    /**
+     * Returns the size of the record currently viewed. For variable sized
+     * records, this is typically computed from a length field in the record,
+     * read with the protected accessors. It is called by
+     * {@link #wrap(ByteBuffer, int)} after the view has been re-pointed.
+     *
+     * @return the size of the record currently viewed.
+     */
+    public abstract int size();
+
+    /**
+     * Returns the buffer that this view currently points into.
+     *
+     * @return the buffer that this view currently points into, or
+     * <code>null</code> if the view has not been pointed at a record.
+     */
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Returns the absolute index of the viewed record in its buffer.
+     *
+     * @return the absolute index of the viewed record in its buffer.
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    private ByteBuffer checkWrapped() {
+        if(buffer == null) {
+            throw new IllegalStateException("The view has not been pointed " +
+                    "at a record.");
+        }
+
+        return buffer;
+    }
+
+    /**
+     * Returns whether the buffer currently has big endian byte order. It is
+     * checked on every access since the caller may change the order of the
+     * buffer while the view is wrapped.
+     */
+    private boolean bigEndian() {
+        return buffer.order() == ByteOrder.BIG_ENDIAN;
+    }
+
+    /**
+     * Returns a copy of the record currently viewed. This allocates a new
+     * array, so it should be used sparingly when iterating over many records.
+     *
+     * @return a copy of the record currently viewed.
+     */
+    //@Override
+    public byte[] getBytes() {
+        final byte[] result = new byte[size()];
+        copyTo(result, 0);
+        return result;
+    }
+
+    /**
+     * Copies the record currently viewed to <code>dest</code> at offset
+     * <code>destPos</code>.
+     *
+     * @param dest the array to copy to.
+     * @param destPos the offset in <code>dest</code> to copy to.
+     * @return the number of bytes copied, i.e. {@link #size()}.
+     */
+    public int copyTo(byte[] dest, int destPos) {
+        final int size = size();
+        getByteArray(0, dest, destPos, size);
+        return size;
+    }
+
+    /**
+     * Checks whether the record viewed by <code>other</code> has exactly the
+     * same contents as the record viewed by this view, without copying.
+     *
+     * @param other the view to compare with.
+     * @return <code>true</code> if the records are byte-for-byte equal.
+     */
+    public boolean contentEquals(StructView other) {
+        final int size = size();
+        return size == other.size() && compareBytes(other, size) == 0;
+    }
+
+    /**
+     * Compares the record viewed by this view with the record viewed by
+     * <code>other</code> lexicographically, treating the bytes as unsigned.
+     * A record which is a prefix of the other record orders first.
+     *
+     * @param other the view to compare with.
+     * @return a negative value, zero or a positive value if this record is
+     * less than, equal to or greater than the other record.
+     */
+    public int compareContent(StructView other) {
+        final int size = size();
+        final int otherSize = other.size();
+        final int res = compareBytes(other, Math.min(size, otherSize));
+        if(res != 0)
+            return res;
+        else
+            return size < otherSize ? -1 : (size == otherSize ? 0 : 1);
+    }
+
+    private int compareBytes(StructView other, int len) {
+        final ByteBuffer a = checkWrapped();
+        final ByteBuffer b = other.checkWrapped();
+        final int aOffset = offset;
+        final int bOffset = other.offset;
+
+        int i = 0;
+        /* Compare eight bytes at a time while the records are equal. The
+         * values are only used for equality here, so the byte orders of the
+         * buffers only need to match. */
+        if(a.order() == b.order()) {
+            for(; i + 8 <= len; i += 8) {
+                if(a.getLong(aOffset + i) != b.getLong(bOffset + i))
+                    break;
+            }
+        }
+
+        for(; i < len; ++i) {
+            final int res = (a.get(aOffset + i) & 0xFF) -
+                    (b.get(bOffset + i) & 0xFF);
+            if(res != 0)
+                return res;
+        }
+
+        return 0;
+    }
+
+    /**
+     * Computes a hash code from the contents of the record currently viewed,
+     * without copying. The result is equal to
+     * <code>java.util.Arrays.hashCode(getBytes())</code>.
+     *
+     * @return a hash code for the contents of the viewed record.
+     */
+    public int contentHashCode() {
+        final ByteBuffer b = checkWrapped();
+        final int end = offset + size();
+
+        int result = 1;
+        for(int i = offset; i < end; ++i)
+            result = 31 * result + b.get(i);
+
+        return result;
+    }
+
+    /* Field accessors. All offsets are relative to the start of the record. */
+
+    protected byte getSInt8(int off) {
+        return checkWrapped().get(offset + off);
+    }
+
+    protected int getUInt8(int off) {
+        return getSInt8(off) & 0xFF;
+    }
+
+    protected short getSInt16BE(int off) {
+        final short v = checkWrapped().getShort(offset + off);
+        return bigEndian() ? v : Short.reverseBytes(v);
+    }
+
+    protected short getSInt16LE(int off) {
+        final short v = checkWrapped().getShort(offset + off);
+        return bigEndian() ? Short.reverseBytes(v) : v;
+    }
+
+    protected int getUInt16BE(int off) {
+        return getSInt16BE(off) & 0xFFFF;
+    }
+
+    protected int getUInt16LE(int off) {
+        return getSInt16LE(off) & 0xFFFF;
+    }
+
+    protected int getSInt32BE(int off) {
+        final int v = checkWrapped().getInt(offset + off);
+        return bigEndian() ? v : Integer.reverseBytes(v);
+    }
+
+    protected int getSInt32LE(int off) {
+        final int v = checkWrapped().getInt(offset + off);
+        return bigEndian() ? Integer.reverseBytes(v) : v;
+    }
+
+    protected long getUInt32BE(int off) {
+        return getSInt32BE(off) & 0xFFFFFFFFL;
+    }
+
+    protected long getUInt32LE(int off) {
+        return getSInt32LE(off) & 0xFFFFFFFFL;
+    }
+
+    protected long getSInt64BE(int off) {
+        final long v = checkWrapped().getLong(offset + off);
+        return bigEndian() ? v : Long.reverseBytes(v);
+    }
+
+    protected long getSInt64LE(int off) {
+        final long v = checkWrapped().getLong(offset + off);
+        return bigEndian() ? Long.reverseBytes(v) : v;
+    }
+
+    /**
+     * Copies <code>len</code> bytes of the record, starting at relative
+     * offset <code>off</code>, to <code>dest</code> at offset
+     * <code>destPos</code>.
+     */
+    protected void getByteArray(int off, byte[] dest, int destPos, int len) {
+        final ByteBuffer b = checkWrapped();
+        if(off < 0 || len < 0 || off + len > b.limit() - offset) {
+            throw new IndexOutOfBoundsException("off=" + off + " len=" +
+                    len);
+        }
+
+        if(b.hasArray()) {
+            System.arraycopy(b.array(), b.arrayOffset() + offset + off, dest,
+                    destPos, len);
+        }
+        else {
+            for(int i = 0; i < len; ++i)
+                dest[destPos + i] = b.get(offset + off + i);
+        }
+    }
+}
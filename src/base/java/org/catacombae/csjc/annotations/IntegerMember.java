@@ -0,0 +1,64 @@
+/*-
+ * Copyright (C) 2026 Erik Larsson
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package org.catacombae.csjc.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import org.catacombae.csjc.structelements.Endianness;
+import org.catacombae.csjc.structelements.IntegerFieldBits;
+import org.catacombae.csjc.structelements.IntegerFieldRepresentation;
+import org.catacombae.csjc.structelements.Signedness;
+
+/**
+ * Maps a byte, short, char, int or long field of a {@link StructType} class to
+ * an integer in the serialized struct. The width may be smaller than the
+ * field type, in which case the value is sign or zero extended according to
+ * the signedness. An unsigned value as wide as the field type is stored with
+ * its bits unchanged (so an unsigned 32-bit value in an int field may appear
+ * negative).
+ *
+ * @author <a href="https://catacombae.org" target="_top">Erik Larsson</a>
+ */
+@Documented
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.FIELD)
+public @interface IntegerMember {
+    /** The offset of the value from the start of the struct. */
+    int offset();
+
+    /** The width of the value. */
+    IntegerFieldBits bits();
+
+    Endianness endianness() default Endianness.BIG_ENDIAN;
+
+    Signedness signedness() default Signedness.UNSIGNED;
+
+    /** The description of the member in the generated Dictionary. */
+    String description() default "";
+
+    /** The unit of the member in the generated Dictionary. */
+    String unit() default "";
+
+    /** How the generated Dictionary presents the value. */
+    IntegerFieldRepresentation representation() default
+            IntegerFieldRepresentation.DECIMAL;
+}
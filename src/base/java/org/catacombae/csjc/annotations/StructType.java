@@ -0,0 +1,57 @@
+/*-
+ * Copyright (C) 2026 Erik Larsson
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package org.catacombae.csjc.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a class whose fields are laid out with {@link IntegerMember} and
+ * {@link ByteArrayMember} annotations. For each such class
+ * <code>X</code>, the annotation processor in the csframework-apt jar
+ * generates a class <code>XCodec</code> in the same package, with a
+ * <code>SIZE</code> constant, <code>read</code> methods for byte[],
+ * java.nio.ByteBuffer and {@link org.catacombae.io.DataReader},
+ * <code>write</code> and <code>getBytes</code> methods and a
+ * <code>getStructElements</code> method binding a shared
+ * {@link org.catacombae.csjc.structelements.DictionarySchema}.<br>
+ * The annotated fields must not be private, since the codec accesses them
+ * directly.
+ *
+ * @author <a href="https://catacombae.org" target="_top">Erik Larsson</a>
+ */
+@Documented
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface StructType {
+    /**
+     * The type name used in the generated Dictionary. Defaults to the simple
+     * name of the class.
+     */
+    String name() default "";
+
+    /**
+     * The size of the struct in bytes. Defaults to the end of the last
+     * member. If given, it must be at least that large.
+     */
+    int size() default -1;
+}
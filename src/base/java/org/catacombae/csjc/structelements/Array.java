@@ -34,6 +34,24 @@ public class Array extends StructElement {
         }
     }
 
+    /**
+     * Constructor for subclasses which create their elements on demand. Such
+     * subclasses must override {@link #getElementCount()},
+     * {@link #getElement(int)} and {@link #getElements()}.
+     */
+    protected Array(String typeName, int elementCount) {
+        super(typeName + "[" + elementCount + "]");
+        this.elements = null;
+    }
+
+    public int getElementCount() {
+        return elements.length;
+    }
+
+    public StructElement getElement(int index) {
+        return elements[index];
+    }
+
     public StructElement[] getElements() {
         return Util.arrayCopy(elements, new StructElement[elements.length]);
     }
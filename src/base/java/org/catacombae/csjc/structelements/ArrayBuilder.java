@@ -94,6 +94,19 @@ public class ArrayBuilder {
         }
     }
 
+    /**
+     * Adds a packed array of <code>length / bits.getBytes()</code> integers,
+     * backed by <code>data</code>, as a single element.
+     *
+     * @see PrimitiveArrayField
+     */
+    public void addIntArray(byte[] data, int offset, int length,
+            IntegerFieldBits bits, Signedness signedness,
+            Endianness endianness) {
+        add(DictionaryBuilder.createIntArray(data, offset, length, bits,
+                signedness, endianness, IntegerFieldRepresentation.DECIMAL));
+    }
+
     public Array getResult() {
         return new Array(typeName, elements.toArray(new StructElement[elements.size()]));
     }
@@ -38,6 +38,11 @@ class ByteArrayDataHandle implements DataHandle {
         return Util.createCopy(data, offset, length);
     }
 
+    /** Returns the backing array itself, for in-place access. */
+    byte[] getData() {
+        return data;
+    }
+
     public int getLength() {
         return data.length;
     }
@@ -33,7 +33,7 @@ public class ByteArrayField extends StringRepresentableField {
     }
 
     public ByteArrayField(byte[] fieldData, int offset, int length) {
-        super("Byte[" + fieldData.length + "]", FieldType.BYTEARRAY);
+        super("Byte[" + length + "]", FieldType.BYTEARRAY);
         this.fieldData = fieldData;
         this.offset = offset;
         this.length = length;
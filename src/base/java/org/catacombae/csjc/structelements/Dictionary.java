@@ -21,6 +21,11 @@ import java.util.HashMap;
 import org.catacombae.util.Util;
 
 /**
+ * A set of named struct elements. A Dictionary is either built with a
+ * {@link DictionaryBuilder}, holding its own elements, or bound to struct
+ * data through a shared {@link DictionarySchema}, in which case the elements
+ * are created on first access.
+ *
  * @author <a href="https://catacombae.org" target="_top">Erik Larsson</a>
  */
 public class Dictionary extends StructElement {
@@ -29,6 +34,13 @@ public class Dictionary extends StructElement {
     private final HashMap<String, StructElement> mappings;
     private final HashMap<String, String> descriptions;
 
+    /* Only used when bound to a schema. */
+    private final DictionarySchema schema;
+    private final byte[] data;
+    private final int offset;
+    private final boolean trusted;
+    private StructElement[] elements;
+
     Dictionary(String typeName, String[] keys,
             HashMap<String, StructElement> mappings,
             HashMap<String, String> descriptions)
@@ -52,10 +64,44 @@ public class Dictionary extends StructElement {
 
             }
         }
+        this.schema = null;
+        this.data = null;
+        this.offset = 0;
+        this.trusted = false;
+    }
+
+    Dictionary(DictionarySchema schema, byte[] data, int offset,
+            boolean trusted)
+    {
+        super(schema.getTypeName(), schema.getTypeDescription());
+        this.keys = null;
+        this.mappings = null;
+        this.descriptions = null;
+        this.schema = schema;
+        this.data = data;
+        this.offset = offset;
+        this.trusted = trusted;
+        this.elements = null;
     }
 
     public StructElement getElement(String name) {
-        return mappings.get(name);
+        if(schema == null)
+            return mappings.get(name);
+
+        final int index = schema.indexOf(name);
+        if(index < 0)
+            return null;
+
+        if(elements == null)
+            elements = new StructElement[schema.getElementCount()];
+
+        StructElement element = elements[index];
+        if(element == null) {
+            element = schema.getEntry(index).create(data, offset, trusted);
+            elements[index] = element;
+        }
+
+        return element;
     }
 
     /**
@@ -67,14 +113,23 @@ public class Dictionary extends StructElement {
      * @return the associated description, if any, or null if no description exists.
      */
     public String getDescription(String name) {
+        if(schema != null)
+            return schema.getDescription(name);
+
         return descriptions.get(name);
     }
 
     public int getElementCount() {
+        if(schema != null)
+            return schema.getElementCount();
+
         return keys.length;
     }
 
     public String[] getKeys() {
+        if(schema != null)
+            return schema.getKeys();
+
         return Util.arrayCopy(keys, new String[keys.length]);
     }
 }
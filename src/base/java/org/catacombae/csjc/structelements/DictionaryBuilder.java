@@ -66,31 +66,17 @@ public class DictionaryBuilder {
     public void addIntArray(String key, byte[] data, int offset, int length,
             IntegerFieldBits bits, Signedness signedness, Endianness endianness, String description,
             IntegerFieldRepresentation rep) {
+        add(key, createIntArray(data, offset, length, bits, signedness,
+                endianness, rep), description);
+    }
+
+    static PrimitiveArrayField createIntArray(byte[] data, int offset,
+            int length, IntegerFieldBits bits, Signedness signedness,
+            Endianness endianness, IntegerFieldRepresentation rep) {
         if(length % bits.getBytes() != 0)
             throw new RuntimeException("Supplied data is not aligned to size of type.");
-        String arrayTypeName;
-        switch(signedness) {
-            case SIGNED:
-                arrayTypeName = "S";
-                break;
-            case UNSIGNED:
-                arrayTypeName = "U";
-                break;
-            default:
-                throw new IllegalArgumentException("signedness == null!");
-        }
-        arrayTypeName += "Int" + bits.getBits() + "[" + (length / bits.getBytes()) + "]";
-        //System.err.println("DictionaryBuilder.addIntArray(): length = " + length);
-        //System.err.println("DictionaryBuilder.addIntArray(): bits.getBytes() = " + bits.getBytes());
-        ArrayBuilder ab = new ArrayBuilder(arrayTypeName);
-        int i;
-        for(i = 0; i < length; i += bits.getBytes()) {
-            //System.err.println("DictionaryBuilder.addIntArray():  i = " + i);
-            ab.add(new IntegerField(data, offset + i, bits, signedness, endianness, rep, null));
-        }
-        //System.err.println("DictionaryBuilder.addIntArray():  i = " + i);
-        //System.err.println("DictionaryBuilder.addIntArray():  length/bits.getBytes() = " + (length / bits.getBytes()));
-        add(key, ab.getResult(), description);
+        return new PrimitiveArrayField(data, offset, length / bits.getBytes(),
+                bits, signedness, endianness, rep);
     }
 
     public Dictionary getResult() {
@@ -0,0 +1,240 @@
+/*-
+ * Copyright (C) 2026 Erik Larsson
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package org.catacombae.csjc.structelements;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import org.catacombae.util.Util;
+
+/**
+ * The immutable layout of a {@link Dictionary}: its keys, descriptions and how
+ * to create each element from the serialized data of a struct.<br>
+ * A schema is built once per struct type with a
+ * {@link DictionarySchemaBuilder} and then bound to the data of any number of
+ * struct instances with {@link #bind(byte[], int)}. The resulting Dictionary
+ * shares the keys and descriptions of the schema and creates its elements
+ * only when {@link Dictionary#getElement(String)} is called, so the per
+ * instance cost is a single small object.<br>
+ * Schemas can be cached per struct class with
+ * {@link #cache(Class, DictionarySchema)} and {@link #getCached(Class)}.
+ *
+ * @author <a href="https://catacombae.org" target="_top">Erik Larsson</a>
+ */
+public final class DictionarySchema {
+    private static final Map<Class<?>, DictionarySchema> schemaCache =
+            Collections.synchronizedMap(
+            new WeakHashMap<Class<?>, DictionarySchema>());
+
+    /**
+     * Describes how to create one element of a Dictionary from the data
+     * it is bound to.
+     */
+    static abstract class Entry {
+        final String description;
+
+        Entry(String description) {
+            this.description = description;
+        }
+
+        /**
+         * Returns the offset just past the last byte read by this entry,
+         * relative to the start of the struct.
+         */
+        abstract int getEnd();
+
+        /**
+         * Creates the element for the struct starting at
+         * <code>offset</code> in <code>data</code>.
+         *
+         * @param trusted whether validation of the element's value should be
+         * skipped.
+         */
+        abstract StructElement create(byte[] data, int offset,
+                boolean trusted);
+    }
+
+    private final String typeName;
+    private final String typeDescription;
+    private final String[] keys;
+    private final Entry[] entries;
+    private final HashMap<String, Integer> indices;
+    private final int size;
+
+    DictionarySchema(String typeName, String typeDescription, String[] keys,
+            Entry[] entries)
+    {
+        this.typeName = typeName;
+        this.typeDescription = typeDescription;
+        this.keys = keys;
+        this.entries = entries;
+        this.indices = new HashMap<String, Integer>(keys.length * 2);
+
+        int curSize = 0;
+        for(int i = 0; i < keys.length; ++i) {
+            indices.put(keys[i], i);
+            curSize = Math.max(curSize, entries[i].getEnd());
+        }
+        this.size = curSize;
+    }
+
+    /**
+     * Returns the cached schema for <code>structClass</code>.
+     *
+     * @param structClass the struct class to look up.
+     * @return the cached schema for <code>structClass</code>, or
+     * <code>null</code> if no schema has been cached for it.
+     */
+    public static DictionarySchema getCached(Class<?> structClass) {
+        return schemaCache.get(structClass);
+    }
+
+    /**
+     * Caches <code>schema</code> as the schema for <code>structClass</code>,
+     * unless a schema is already cached for it. The cache does not keep
+     * <code>structClass</code> from being unloaded.
+     *
+     * @param structClass the struct class that the schema describes.
+     * @param schema the schema to cache.
+     * @return the schema which is cached for <code>structClass</code> after
+     * the call, which is <code>schema</code> unless another thread cached one
+     * first.
+     */
+    public static DictionarySchema cache(Class<?> structClass,
+            DictionarySchema schema)
+    {
+        if(structClass == null)
+            throw new IllegalArgumentException("structClass may NOT be null");
+        if(schema == null)
+            throw new IllegalArgumentException("schema may NOT be null");
+
+        synchronized(schemaCache) {
+            final DictionarySchema existing = schemaCache.get(structClass);
+            if(existing != null)
+                return existing;
+
+            schemaCache.put(structClass, schema);
+            return schema;
+        }
+    }
+
+    public String getTypeName() {
+        return typeName;
+    }
+
+    public String getTypeDescription() {
+        return typeDescription;
+    }
+
+    public int getElementCount() {
+        return keys.length;
+    }
+
+    public String[] getKeys() {
+        return Util.arrayCopy(keys, new String[keys.length]);
+    }
+
+    /**
+     * Returns the description of the element <code>key</code>.
+     *
+     * @param key the key of the element.
+     * @return the description of the element, or <code>null</code> if there
+     * is no such element or it has no description.
+     */
+    public String getDescription(String key) {
+        final int index = indexOf(key);
+        return index < 0 ? null : entries[index].description;
+    }
+
+    /**
+     * Returns the minimum number of bytes that the data bound to this schema
+     * must hold, i.e. the end of the last element.
+     *
+     * @return the minimum number of bytes that the data bound to this schema
+     * must hold.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Binds this schema to the struct data in <code>data</code>. The
+     * elements of the returned Dictionary are backed by <code>data</code>
+     * and are validated when they are first accessed.
+     *
+     * @param data the struct data.
+     * @return a Dictionary of the struct's elements.
+     */
+    public Dictionary bind(byte[] data) {
+        return bind(data, 0);
+    }
+
+    /**
+     * Binds this schema to the struct data starting at <code>offset</code>
+     * in <code>data</code>. The elements of the returned Dictionary are
+     * backed by <code>data</code> and are validated when they are first
+     * accessed.
+     *
+     * @param data the array holding the struct data.
+     * @param offset the offset of the struct in <code>data</code>.
+     * @return a Dictionary of the struct's elements.
+     */
+    public Dictionary bind(byte[] data, int offset) {
+        return bind(data, offset, false);
+    }
+
+    /**
+     * Like {@link #bind(byte[], int)}, but skips the validation of the
+     * elements' values. Use it for data that is known to be well formed, such
+     * as data serialized by the struct itself.
+     *
+     * @param data the array holding the struct data.
+     * @param offset the offset of the struct in <code>data</code>.
+     * @return a Dictionary of the struct's elements.
+     */
+    public Dictionary bindTrusted(byte[] data, int offset) {
+        return bind(data, offset, true);
+    }
+
+    private Dictionary bind(byte[] data, int offset, boolean trusted) {
+        if(data == null)
+            throw new IllegalArgumentException("data may NOT be null");
+        if(offset < 0 || data.length - offset < size) {
+            throw new IllegalArgumentException("Not enough data for " +
+                    typeName + " at offset " + offset + " (need " + size +
+                    " bytes, have " + (data.length - offset) + ").");
+        }
+
+        return new Dictionary(this, data, offset, trusted);
+    }
+
+    int indexOf(String key) {
+        final Integer index = indices.get(key);
+        return index != null ? index : -1;
+    }
+
+    String getKey(int index) {
+        return keys[index];
+    }
+
+    Entry getEntry(int index) {
+        return entries[index];
+    }
+}
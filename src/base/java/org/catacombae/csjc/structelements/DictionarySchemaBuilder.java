@@ -0,0 +1,328 @@
+/*-
+ * Copyright (C) 2026 Erik Larsson
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package org.catacombae.csjc.structelements;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import static org.catacombae.csjc.structelements.IntegerFieldBits.*;
+import static org.catacombae.csjc.structelements.Signedness.*;
+import static org.catacombae.csjc.structelements.Endianness.*;
+import static org.catacombae.csjc.structelements.IntegerFieldRepresentation.*;
+
+/**
+ * Builds a {@link DictionarySchema}. The methods mirror those of
+ * {@link DictionaryBuilder}, but take offsets relative to the start of the
+ * struct instead of the struct data itself.
+ *
+ * @author <a href="https://catacombae.org" target="_top">Erik Larsson</a>
+ */
+public class DictionarySchemaBuilder {
+
+    private final String typeName;
+    private final String typeDescription;
+    private final ArrayList<String> keys = new ArrayList<String>();
+    private final ArrayList<DictionarySchema.Entry> entries =
+            new ArrayList<DictionarySchema.Entry>();
+    private final HashSet<String> keySet = new HashSet<String>();
+
+    public DictionarySchemaBuilder(String typeName) {
+        this(typeName, null);
+    }
+
+    public DictionarySchemaBuilder(String typeName, String typeDescription) {
+        this.typeName = typeName;
+        this.typeDescription = typeDescription;
+    }
+
+    public DictionarySchema getResult() {
+        return new DictionarySchema(typeName, typeDescription,
+                keys.toArray(new String[keys.size()]),
+                entries.toArray(new DictionarySchema.Entry[entries.size()]));
+    }
+
+    private void add(String key, DictionarySchema.Entry entry) {
+        if(!keySet.add(key))
+            throw new IllegalArgumentException("A mapping already exists for key \"" + key + "\"!");
+        keys.add(key);
+        entries.add(entry);
+    }
+
+    private static void checkRange(int offset, int length) {
+        if(offset < 0 || length < 0) {
+            throw new IllegalArgumentException("Invalid range: offset=" +
+                    offset + " length=" + length);
+        }
+    }
+
+    public void addSIntBE(String key, int offset, int length, String description) {
+        addInt(key, offset, length, SIGNED, BIG_ENDIAN, description, null, DECIMAL);
+    }
+
+    public void addSIntLE(String key, int offset, int length, String description) {
+        addInt(key, offset, length, SIGNED, LITTLE_ENDIAN, description, null, DECIMAL);
+    }
+
+    public void addUIntBE(String key, int offset, int length, String description) {
+        addInt(key, offset, length, UNSIGNED, BIG_ENDIAN, description, null, DECIMAL);
+    }
+
+    public void addUIntLE(String key, int offset, int length, String description) {
+        addInt(key, offset, length, UNSIGNED, LITTLE_ENDIAN, description, null, DECIMAL);
+    }
+
+    public void addInt(String key, int offset, int length,
+            Signedness signedness, Endianness endianness, String description,
+            String unit, IntegerFieldRepresentation rep) {
+        final IntegerFieldBits bits;
+        switch(length) {
+            case 1:
+                bits = BITS_8;
+                break;
+            case 2:
+                bits = BITS_16;
+                break;
+            case 4:
+                bits = BITS_32;
+                break;
+            case 8:
+                bits = BITS_64;
+                break;
+            default:
+                throw new IllegalArgumentException("You supplied a " + (length * 8) +
+                        "-bit value. Only 64, 32, 16 and 8-bit values are supported.");
+        }
+        if(signedness == null)
+            throw new IllegalArgumentException("signedness == null");
+        if(endianness == null)
+            throw new IllegalArgumentException("endianness == null");
+        if(rep == null)
+            throw new IllegalArgumentException("rep == null");
+        checkRange(offset, length);
+
+        add(key, new IntegerEntry(description, offset, bits, signedness,
+                endianness, rep, unit));
+    }
+
+    public void addIntArray(String key, int offset, int length,
+            IntegerFieldBits bits, Signedness signedness, Endianness endianness,
+            String description, IntegerFieldRepresentation rep) {
+        if(length % bits.getBytes() != 0)
+            throw new IllegalArgumentException("length is not aligned to size of type.");
+        checkRange(offset, length);
+
+        add(key, new IntArrayEntry(description, offset, length, bits,
+                signedness, endianness, rep));
+    }
+
+    public void addByteArray(String key, int offset, int length, String description) {
+        checkRange(offset, length);
+        add(key, new ByteArrayEntry(description, offset, length));
+    }
+
+    public void addFlag(String key, int offset, int length, int bitOffset, String description) {
+        checkRange(offset, length);
+        if(bitOffset < 0 || bitOffset >= length * 8)
+            throw new IllegalArgumentException("Illegal bit address: " + bitOffset);
+        add(key, new FlagEntry(description, offset, length, bitOffset));
+    }
+
+    public void addEncodedString(String key, int offset, int length, String encoding, String description) {
+        checkRange(offset, length);
+        if(encoding == null)
+            throw new IllegalArgumentException("encoding == null");
+        add(key, new EncodedStringEntry(description, offset, length, encoding));
+    }
+
+    /**
+     * Adds a nested struct at <code>offset</code>, described by
+     * <code>schema</code>. The nested Dictionary is bound on first access.
+     */
+    public void addDictionary(String key, int offset, DictionarySchema schema, String description) {
+        checkRange(offset, 0);
+        if(schema == null)
+            throw new IllegalArgumentException("schema == null");
+        add(key, new DictionaryEntry(description, offset, schema));
+    }
+
+    private static class IntegerEntry extends DictionarySchema.Entry {
+        private final int offset;
+        private final IntegerFieldBits bits;
+        private final Signedness signedness;
+        private final Endianness endianness;
+        private final IntegerFieldRepresentation rep;
+        private final String unit;
+
+        public IntegerEntry(String description, int offset,
+                IntegerFieldBits bits, Signedness signedness,
+                Endianness endianness, IntegerFieldRepresentation rep,
+                String unit)
+        {
+            super(description);
+            this.offset = offset;
+            this.bits = bits;
+            this.signedness = signedness;
+            this.endianness = endianness;
+            this.rep = rep;
+            this.unit = unit;
+        }
+
+        @Override
+        int getEnd() {
+            return offset + bits.getBytes();
+        }
+
+        @Override
+        StructElement create(byte[] data, int structOffset, boolean trusted) {
+            return new IntegerField(new ByteArrayDataHandle(data),
+                    structOffset + offset, bits, signedness, endianness, rep,
+                    unit, !trusted);
+        }
+    }
+
+    private static class IntArrayEntry extends DictionarySchema.Entry {
+        private final int offset;
+        private final int length;
+        private final IntegerFieldBits bits;
+        private final Signedness signedness;
+        private final Endianness endianness;
+        private final IntegerFieldRepresentation rep;
+
+        public IntArrayEntry(String description, int offset, int length,
+                IntegerFieldBits bits, Signedness signedness,
+                Endianness endianness, IntegerFieldRepresentation rep)
+        {
+            super(description);
+            this.offset = offset;
+            this.length = length;
+            this.bits = bits;
+            this.signedness = signedness;
+            this.endianness = endianness;
+            this.rep = rep;
+        }
+
+        @Override
+        int getEnd() {
+            return offset + length;
+        }
+
+        @Override
+        StructElement create(byte[] data, int structOffset, boolean trusted) {
+            return DictionaryBuilder.createIntArray(data,
+                    structOffset + offset, length, bits, signedness,
+                    endianness, rep);
+        }
+    }
+
+    private static class ByteArrayEntry extends DictionarySchema.Entry {
+        private final int offset;
+        private final int length;
+
+        public ByteArrayEntry(String description, int offset, int length) {
+            super(description);
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        int getEnd() {
+            return offset + length;
+        }
+
+        @Override
+        StructElement create(byte[] data, int structOffset, boolean trusted) {
+            return new ByteArrayField(data, structOffset + offset, length);
+        }
+    }
+
+    private static class FlagEntry extends DictionarySchema.Entry {
+        private final int offset;
+        private final int length;
+        private final int bitOffset;
+
+        public FlagEntry(String description, int offset, int length,
+                int bitOffset)
+        {
+            super(description);
+            this.offset = offset;
+            this.length = length;
+            this.bitOffset = bitOffset;
+        }
+
+        @Override
+        int getEnd() {
+            return offset + length;
+        }
+
+        @Override
+        StructElement create(byte[] data, int structOffset, boolean trusted) {
+            return new FlagField(data, structOffset + offset, length,
+                    bitOffset);
+        }
+    }
+
+    private static class EncodedStringEntry extends DictionarySchema.Entry {
+        private final int offset;
+        private final int length;
+        private final String encoding;
+
+        public EncodedStringEntry(String description, int offset, int length,
+                String encoding)
+        {
+            super(description);
+            this.offset = offset;
+            this.length = length;
+            this.encoding = encoding;
+        }
+
+        @Override
+        int getEnd() {
+            return offset + length;
+        }
+
+        @Override
+        StructElement create(byte[] data, int structOffset, boolean trusted) {
+            return new EncodedStringField(data, structOffset + offset, length,
+                    encoding);
+        }
+    }
+
+    private static class DictionaryEntry extends DictionarySchema.Entry {
+        private final int offset;
+        private final DictionarySchema schema;
+
+        public DictionaryEntry(String description, int offset,
+                DictionarySchema schema)
+        {
+            super(description);
+            this.offset = offset;
+            this.schema = schema;
+        }
+
+        @Override
+        int getEnd() {
+            return offset + schema.getSize();
+        }
+
+        @Override
+        StructElement create(byte[] data, int structOffset, boolean trusted) {
+            return trusted ? schema.bindTrusted(data, structOffset + offset) :
+                schema.bind(data, structOffset + offset);
+        }
+    }
+}
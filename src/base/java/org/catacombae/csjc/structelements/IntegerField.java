@@ -31,10 +31,40 @@ public class IntegerField extends StringRepresentableField {
     private final IntegerFieldBits bits;
     private final Signedness signedness;
     private final Endianness endianness;
-    private final BigInteger maxValue;
-    private final BigInteger minValue;
     private final IntegerFieldRepresentation representation;
 
+    /*
+     * The value ranges of all field types, indexed by
+     * [IntegerFieldBits.ordinal()][Signedness.ordinal()]. For unsigned 64-bit
+     * fields, the maximum value is stored as its bit pattern (-1).
+     */
+    private static final long[][] minValues;
+    private static final long[][] maxValues;
+
+    static {
+        final IntegerFieldBits[] allBits = IntegerFieldBits.values();
+        final Signedness[] allSignedness = Signedness.values();
+        minValues = new long[allBits.length][allSignedness.length];
+        maxValues = new long[allBits.length][allSignedness.length];
+        for(IntegerFieldBits b : allBits) {
+            final int bitCount = b.getBits();
+            for(Signedness sign : allSignedness) {
+                final long min, max;
+                if(sign == Signedness.SIGNED) {
+                    max = (bitCount == 64) ? Long.MAX_VALUE :
+                        (1L << (bitCount - 1)) - 1;
+                    min = -max - 1;
+                }
+                else {
+                    max = (bitCount == 64) ? -1L : (1L << bitCount) - 1;
+                    min = 0;
+                }
+                minValues[b.ordinal()][sign.ordinal()] = min;
+                maxValues[b.ordinal()][sign.ordinal()] = max;
+            }
+        }
+    }
+
     public IntegerField(byte[] fieldData, IntegerFieldBits bits,
             Signedness signedness, Endianness endianness) {
         this(fieldData, 0, bits, signedness, endianness);
@@ -64,6 +94,19 @@ public class IntegerField extends StringRepresentableField {
     public IntegerField(DataHandle fieldData, int offset, IntegerFieldBits bits,
             Signedness signedness, Endianness endianness,
             IntegerFieldRepresentation representation, String unitComponent) {
+        this(fieldData, offset, bits, signedness, endianness, representation,
+                unitComponent, true);
+    }
+
+    /**
+     * Creates an IntegerField, optionally skipping the validation of the
+     * current value. Used when binding a {@link DictionarySchema} in trusted
+     * mode.
+     */
+    IntegerField(DataHandle fieldData, int offset, IntegerFieldBits bits,
+            Signedness signedness, Endianness endianness,
+            IntegerFieldRepresentation representation, String unitComponent,
+            boolean validate) {
         super((signedness == Signedness.SIGNED ? "S" : "U") + "Int" + bits.getBits(),
                 FieldType.INTEGER, unitComponent);
         // Input check
@@ -85,99 +128,273 @@ public class IntegerField extends StringRepresentableField {
         this.signedness = signedness;
         this.endianness = endianness;
         this.representation = representation;
-        byte[] maxValueBytes = new byte[bits.getBytes()];
-        byte[] minValueBytes = new byte[bits.getBytes()];
-        Util.set(maxValueBytes, (byte) 255);
-        Util.zero(minValueBytes);
-        if(signedness == Signedness.SIGNED) {
-            maxValueBytes[0] = (byte) (maxValueBytes[0] & 127);
-            minValueBytes[0] = (byte) 128;
-        }
-        this.maxValue = new BigInteger(1, maxValueBytes);
-        this.minValue = new BigInteger(minValueBytes);
-        String validateMsg = validateData();
-        if(validateMsg != null) {
-            throw new IllegalArgumentException("Invalid value passed to constructor! Message: " + validateMsg);
+        if(validate) {
+            String validateMsg = validateData();
+            if(validateMsg != null) {
+                throw new IllegalArgumentException("Invalid value passed to constructor! Message: " + validateMsg);
+            }
         }
     }
 
+    private boolean isUnsigned64() {
+        return bits == IntegerFieldBits.BITS_64 &&
+                signedness == Signedness.UNSIGNED;
+    }
+
     private String validateData() {
-        return validate(getValueAsBigInteger());
+        return validate(getValueAsLong());
+    }
+
+    private String validate(long value) {
+        return validateValue(value, bits, signedness);
     }
 
-    private String validate(BigInteger bi) {
-        if(signedness != Signedness.SIGNED && bi.signum() == -1) {
+    /**
+     * Checks whether <code>value</code> is in the range of an integer of
+     * type <code>bits</code> and <code>signedness</code>.
+     *
+     * @return <code>null</code> if the value is valid, or a message
+     * describing the problem otherwise.
+     */
+    static String validateValue(long value, IntegerFieldBits bits,
+            Signedness signedness) {
+        if(bits == IntegerFieldBits.BITS_64 &&
+                signedness == Signedness.UNSIGNED) {
+            /* Every bit pattern is a valid unsigned 64-bit value. */
+            return null;
+        }
+
+        final long maxValue = maxValues[bits.ordinal()][signedness.ordinal()];
+        final long minValue = minValues[bits.ordinal()][signedness.ordinal()];
+        if(signedness != Signedness.SIGNED && value < 0) {
             return "Tried to insert negative value into unsigned field.";
         }
-        else if(bi.compareTo(maxValue) > 0) {
-            return "Value too large for field! Maximum value is " + maxValue.toString() + ".";
+        else if(value > maxValue) {
+            return "Value too large for field! Maximum value is " + maxValue + ".";
         }
-        else if(bi.compareTo(minValue) < 0) {
-            return "Value too small for this field. Minimum value is " + minValue.toString() + ".";
+        else if(value < minValue) {
+            return "Value too small for this field. Minimum value is " + minValue + ".";
         }
         else {
             return null;
         }
     }
 
+    /**
+     * Reads an integer of type <code>bits</code>, <code>signedness</code>
+     * and <code>endianness</code> from <code>data</code> at
+     * <code>offset</code>, as described in {@link #getValueAsLong()}.
+     */
+    static long readValue(byte[] data, int offset, IntegerFieldBits bits,
+            Signedness signedness, Endianness endianness) {
+        final int length = bits.getBytes();
+
+        long result = 0;
+        if(endianness == Endianness.BIG_ENDIAN) {
+            for(int i = 0; i < length; ++i)
+                result = (result << 8) | (data[offset + i] & 0xFF);
+        }
+        else {
+            for(int i = length - 1; i >= 0; --i)
+                result = (result << 8) | (data[offset + i] & 0xFF);
+        }
+
+        if(signedness == Signedness.SIGNED && length < 8) {
+            final int shift = 64 - bits.getBits();
+            result = (result << shift) >> shift;
+        }
+
+        return result;
+    }
+
+    /**
+     * Writes the low <code>bits</code> bits of <code>value</code> to
+     * <code>data</code> at <code>offset</code> in the given byte order.
+     */
+    static void writeValue(long value, byte[] data, int offset,
+            IntegerFieldBits bits, Endianness endianness) {
+        final int length = bits.getBytes();
+        for(int i = 0; i < length; ++i) {
+            final int shift = (endianness == Endianness.BIG_ENDIAN) ?
+                (length - 1 - i) * 8 : i * 8;
+            data[offset + i] = (byte) (value >>> shift);
+        }
+    }
+
+    /**
+     * Formats <code>value</code>, as returned by {@link #readValue}, using
+     * <code>representation</code>.
+     */
+    static String valueToString(long value, IntegerFieldBits bits,
+            Signedness signedness,
+            IntegerFieldRepresentation representation) {
+        final int radix = representation.getRadix();
+        return representation.getPrefix() +
+                ((bits == IntegerFieldBits.BITS_64 &&
+                signedness == Signedness.UNSIGNED) ?
+                Util.unsignedToString(value, radix) :
+                Long.toString(value, radix));
+    }
+
+    /**
+     * Returns the value of the field as a long. Signed values are sign
+     * extended and unsigned values of up to 32 bits are zero extended. An
+     * unsigned 64-bit value is returned as its bit pattern, so values above
+     * <code>Long.MAX_VALUE</code> come out negative. Use
+     * {@link Util#unsignedToString(long, int)} and
+     * {@link Util#unsignedCompare(long, long)} to handle those.
+     *
+     * @return the value of the field as a long.
+     */
+    public long getValueAsLong() {
+        final int length = bits.getBytes();
+        final byte[] data;
+        final int dataOffset;
+        if(fieldData instanceof ByteArrayDataHandle) {
+            /* Read the backing array in place. */
+            data = ((ByteArrayDataHandle) fieldData).getData();
+            dataOffset = offset;
+        }
+        else {
+            data = fieldData.getBytesAsCopy(offset, length);
+            dataOffset = 0;
+        }
+
+        return readValue(data, dataOffset, bits, signedness, endianness);
+    }
+
+    /**
+     * Sets the value of the field. For unsigned 64-bit fields,
+     * <code>value</code> is interpreted as a bit pattern, like the return
+     * value of {@link #getValueAsLong()}.
+     *
+     * @param value the new value.
+     * @throws IllegalArgumentException if <code>value</code> is outside the
+     * range of the field.
+     * @throws UnsupportedOperationException if the field's data can't be
+     * modified.
+     */
+    public void setLongValue(long value) throws IllegalArgumentException {
+        final String validateMsg = validate(value);
+        if(validateMsg != null)
+            throw new IllegalArgumentException("Invalid value! Message: " + validateMsg);
+
+        final int length = bits.getBytes();
+        final byte[] data;
+        final int dataOffset;
+        if(fieldData instanceof ByteArrayDataHandle) {
+            data = ((ByteArrayDataHandle) fieldData).getData();
+            dataOffset = offset;
+        }
+        else if(fieldData instanceof IntegerFieldDataHandle) {
+            data = new byte[length];
+            dataOffset = 0;
+        }
+        else {
+            throw new UnsupportedOperationException("The data of this " +
+                    "field can not be modified.");
+        }
+
+        writeValue(value, data, dataOffset, bits, endianness);
+
+        if(fieldData instanceof IntegerFieldDataHandle) {
+            ((IntegerFieldDataHandle) fieldData).setBytes(offset, data, 0,
+                    length);
+        }
+    }
+
     public BigInteger getValueAsBigInteger() {
-        byte[] data;
-        if(endianness == Endianness.LITTLE_ENDIAN)
-            data = Util.byteSwap(fieldData.getBytesAsCopy(offset, bits.getBytes())); // Util.createReverseCopy(fieldData, offset, bits.getBytes());
-        else if(endianness == Endianness.BIG_ENDIAN)
-            data = fieldData.getBytesAsCopy(offset, bits.getBytes()); // Util.createCopy(fieldData, offset, bits.getBytes());
+        final long value = getValueAsLong();
+        if(isUnsigned64() && value < 0)
+            return Util.unsign(value);
         else
-            throw new RuntimeException("Illegal endianness value: " + endianness);
-        if(signedness == Signedness.SIGNED)
-            return new BigInteger(data);
-        else if(signedness == Signedness.UNSIGNED)
-            return new BigInteger(1, data);
-        else
-            throw new RuntimeException("Illegal signedness value: " + signedness);
+            return BigInteger.valueOf(value);
     }
 
     @Override
     public String getValueAsString() {
-        return representation.getPrefix() +
-                getValueAsBigInteger().toString(representation.getRadix());
+        return valueToString(getValueAsLong(), bits, signedness,
+                representation);
     }
 
     @Override
     public void setStringValue(String value) throws IllegalArgumentException {
         String validateMsg = validateStringValue(value);
-        if(validateMsg == null) {
-            BigInteger bi = new BigInteger(value);
-            byte[] ba = bi.toByteArray();
-            if(signedness == Signedness.SIGNED && ba.length != bits.getBytes())
-                throw new RuntimeException("UNEXPECTED: ba.length (" +
-                        ba.length + ") != bits.getBytes()(" + bits.getBytes() +
-                        ")");
-            if(signedness == Signedness.UNSIGNED && ba.length != (bits.getBytes() + 1))
-                throw new RuntimeException("UNEXPECTED: ba.length (" +
-                        ba.length + ") != bits.getBytes()+1(" +
-                        bits.getBytes() + "+1=" + (bits.getBytes() + 1) + ")");
-            byte[] trueContents;
-            if(endianness == Endianness.LITTLE_ENDIAN)
-                trueContents = Util.createReverseCopy(ba,
-                        ba.length - bits.getBytes(), bits.getBytes());
-            else if(endianness == Endianness.BIG_ENDIAN)
-                trueContents = Util.createCopy(ba, ba.length - bits.getBytes(),
-                        bits.getBytes());
+        if(validateMsg == null)
+            setLongValue(parseValue(value));
+        else
+            throw new IllegalArgumentException("Invalid string value! Message: " + validateMsg);
+    }
+
+    private long parseValue(String s) throws NumberFormatException {
+        try {
+            if(isUnsigned64())
+                return Util.parseUnsignedLong(s, 10);
             else
-                throw new RuntimeException("Illegal endianness value: " + endianness);
-            System.arraycopy(trueContents, 0, fieldData, offset, bits.getBytes());
+                return Long.parseLong(stripPlusSign(s));
+        } catch(NumberFormatException nfe) {
+            /* Fall back to BigInteger for anything the long parsers reject.
+             * Out of range values are rejected with the original exception. */
+            final BigInteger bi = new BigInteger(stripPlusSign(s));
+            if(bi.compareTo(getMinValueAsBigInteger()) < 0 ||
+                    bi.compareTo(getMaxValueAsBigInteger()) > 0)
+            {
+                throw nfe;
+            }
+
+            return bi.longValue();
+        }
+    }
+
+    /**
+     * Removes a leading '+' from <code>s</code>, since Long.parseLong and
+     * BigInteger only accept it from Java 7 on. A sign following the '+' is
+     * left in place so that it is still rejected.
+     */
+    private static String stripPlusSign(String s) {
+        if(s.length() > 1 && s.charAt(0) == '+' && s.charAt(1) != '+' &&
+                s.charAt(1) != '-')
+        {
+            return s.substring(1);
         }
         else
-            throw new IllegalArgumentException("Invalid string value! Message: " + validateMsg);
+            return s;
+    }
+
+    private BigInteger getMinValueAsBigInteger() {
+        return BigInteger.valueOf(
+                minValues[bits.ordinal()][signedness.ordinal()]);
+    }
+
+    private BigInteger getMaxValueAsBigInteger() {
+        final long maxValue = maxValues[bits.ordinal()][signedness.ordinal()];
+        return isUnsigned64() ? Util.unsign(maxValue) :
+            BigInteger.valueOf(maxValue);
     }
 
     @Override
     public String validateStringValue(String s) {
         try {
-            BigInteger bi = new BigInteger(s);
-            return validate(bi);
+            return validate(parseValue(s));
         } catch(NumberFormatException nfe) {
-            return "Invalid integer string.";
+            /* Either not a number, or out of range. Tell which. */
+            final BigInteger bi;
+            try {
+                bi = new BigInteger(stripPlusSign(s));
+            } catch(NumberFormatException nfe2) {
+                return "Invalid integer string.";
+            }
+
+            if(bi.compareTo(getMinValueAsBigInteger()) < 0) {
+                return signedness != Signedness.SIGNED ?
+                    "Tried to insert negative value into unsigned field." :
+                    "Value too small for this field. Minimum value is " +
+                    getMinValueAsBigInteger() + ".";
+            }
+            else {
+                return "Value too large for field! Maximum value is " +
+                        getMaxValueAsBigInteger() + ".";
+            }
         }
     }
 }
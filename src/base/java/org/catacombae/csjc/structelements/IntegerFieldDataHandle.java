@@ -55,7 +55,10 @@ class IntegerFieldDataHandle implements DataHandle {
                     res = Util.toByteArrayBE(field.getByte(object));
                     break;
                 case 2:
-                    res = Util.toByteArrayBE(field.getShort(object));
+                    if(field.getType() == char.class)
+                        res = Util.toByteArrayBE(field.getChar(object));
+                    else
+                        res = Util.toByteArrayBE(field.getShort(object));
                     break;
                 case 4:
                     res = Util.toByteArrayBE(field.getInt(object));
@@ -78,6 +81,41 @@ class IntegerFieldDataHandle implements DataHandle {
         return Util.createCopy(getBytesAsCopy(), offset, length);
     }
 
+    /**
+     * Overwrites <code>length</code> bytes of the field's big endian
+     * representation, starting at <code>offset</code>, with data from
+     * <code>data</code>.
+     */
+    void setBytes(int offset, byte[] data, int dataOffset, int length) {
+        final byte[] value = getBytesAsCopy();
+        System.arraycopy(data, dataOffset, value, offset, length);
+
+        try {
+            switch(this.length) {
+                case 1:
+                    field.setByte(object, value[0]);
+                    break;
+                case 2:
+                    if(field.getType() == char.class)
+                        field.setChar(object, (char) Util.readShortBE(value, 0));
+                    else
+                        field.setShort(object, Util.readShortBE(value, 0));
+                    break;
+                case 4:
+                    field.setInt(object, Util.readIntBE(value, 0));
+                    break;
+                case 8:
+                    field.setLong(object, Util.readLongBE(value, 0));
+                    break;
+                default:
+                    throw new RuntimeException(); // Won't happen.
+            }
+        } catch(IllegalAccessException e) {
+            throw new RuntimeException("Illegal access while trying to " +
+                    "write field: [" + field, e);
+        }
+    }
+
     public int getLength() {
         return length;
     }
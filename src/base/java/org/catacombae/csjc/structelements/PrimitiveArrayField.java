@@ -0,0 +1,250 @@
+/*-
+ * Copyright (C) 2026 Erik Larsson
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package org.catacombae.csjc.structelements;
+
+/**
+ * An array of integers packed in a region of a byte array, such as a bitmap
+ * or an extent table.<br>
+ * Unlike an {@link Array} of {@link IntegerField}s, no per-element objects
+ * are kept: values are read from and written to the backing region directly
+ * with {@link #get(int)} and {@link #set(int, long)}, or copied out in bulk
+ * with the <code>copyTo</code> methods. {@link #getElement(int)} creates an
+ * IntegerField view of a single element when one is needed, for instance for
+ * display, and {@link #getElements()} creates views of all of them.
+ *
+ * @author <a href="https://catacombae.org" target="_top">Erik Larsson</a>
+ */
+public class PrimitiveArrayField extends Array {
+
+    private final byte[] data;
+    private final int offset;
+    private final int elementCount;
+    private final IntegerFieldBits bits;
+    private final Signedness signedness;
+    private final Endianness endianness;
+    private final IntegerFieldRepresentation representation;
+
+    public PrimitiveArrayField(byte[] data, int offset, int elementCount,
+            IntegerFieldBits bits, Signedness signedness,
+            Endianness endianness) {
+        this(data, offset, elementCount, bits, signedness, endianness,
+                IntegerFieldRepresentation.DECIMAL);
+    }
+
+    public PrimitiveArrayField(byte[] data, int offset, int elementCount,
+            IntegerFieldBits bits, Signedness signedness,
+            Endianness endianness,
+            IntegerFieldRepresentation representation) {
+        super(getElementTypeName(bits, signedness), elementCount);
+
+        if(data == null)
+            throw new IllegalArgumentException("data == null");
+        if(endianness == null)
+            throw new IllegalArgumentException("endianness == null");
+        if(representation == null)
+            throw new IllegalArgumentException("representation == null");
+        if(offset < 0 || elementCount < 0 ||
+                (long) elementCount * bits.getBytes() > data.length - offset)
+        {
+            throw new IllegalArgumentException("Not enough data for " +
+                    elementCount + " elements at offset " + offset + ".");
+        }
+
+        this.data = data;
+        this.offset = offset;
+        this.elementCount = elementCount;
+        this.bits = bits;
+        this.signedness = signedness;
+        this.endianness = endianness;
+        this.representation = representation;
+    }
+
+    private static String getElementTypeName(IntegerFieldBits bits,
+            Signedness signedness) {
+        if(bits == null)
+            throw new IllegalArgumentException("bits == null");
+        if(signedness == null)
+            throw new IllegalArgumentException("signedness == null");
+
+        return (signedness == Signedness.SIGNED ? "S" : "U") + "Int" +
+                bits.getBits();
+    }
+
+    public IntegerFieldBits getBits() {
+        return bits;
+    }
+
+    public Signedness getSignedness() {
+        return signedness;
+    }
+
+    public Endianness getEndianness() {
+        return endianness;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getElementCount() {
+        return elementCount;
+    }
+
+    private int getElementOffset(int index) {
+        if(index < 0 || index >= elementCount) {
+            throw new IndexOutOfBoundsException("Index " + index +
+                    " is out of bounds (element count: " + elementCount +
+                    ").");
+        }
+
+        return offset + index * bits.getBytes();
+    }
+
+    /**
+     * Returns the value of element <code>index</code>, as described in
+     * {@link IntegerField#getValueAsLong()}.
+     *
+     * @param index the index of the element.
+     * @return the value of element <code>index</code>.
+     */
+    public long get(int index) {
+        return IntegerField.readValue(data, getElementOffset(index), bits,
+                signedness, endianness);
+    }
+
+    /**
+     * Sets the value of element <code>index</code>, as described in
+     * {@link IntegerField#setLongValue(long)}.
+     *
+     * @param index the index of the element.
+     * @param value the new value.
+     * @throws IllegalArgumentException if <code>value</code> is outside the
+     * range of the element type.
+     */
+    public void set(int index, long value) throws IllegalArgumentException {
+        final int elementOffset = getElementOffset(index);
+        final String validateMsg =
+                IntegerField.validateValue(value, bits, signedness);
+        if(validateMsg != null)
+            throw new IllegalArgumentException("Invalid value! Message: " + validateMsg);
+
+        IntegerField.writeValue(value, data, elementOffset, bits, endianness);
+    }
+
+    private void checkRange(int srcIndex, int destLength, int destPos,
+            int length) {
+        if(srcIndex < 0 || length < 0 || srcIndex > elementCount - length ||
+                destPos < 0 || destPos > destLength - length)
+        {
+            throw new IndexOutOfBoundsException("srcIndex=" + srcIndex +
+                    " destPos=" + destPos + " length=" + length);
+        }
+    }
+
+    /**
+     * Copies <code>length</code> elements, starting at
+     * <code>srcIndex</code>, to <code>dest</code> at <code>destPos</code>.
+     * Only arrays with elements of up to 32 bits can be copied to an int
+     * array. Unsigned 32-bit values are stored as their bit pattern.
+     *
+     * @throws UnsupportedOperationException if the elements are 64 bits
+     * wide.
+     */
+    public void copyTo(int srcIndex, int[] dest, int destPos, int length) {
+        if(bits == IntegerFieldBits.BITS_64) {
+            throw new UnsupportedOperationException("64-bit elements don't " +
+                    "fit in an int array.");
+        }
+        checkRange(srcIndex, dest.length, destPos, length);
+
+        final int size = bits.getBytes();
+        int pos = offset + srcIndex * size;
+        for(int i = 0; i < length; ++i, pos += size) {
+            dest[destPos + i] = (int) IntegerField.readValue(data, pos, bits,
+                    signedness, endianness);
+        }
+    }
+
+    /**
+     * Copies <code>length</code> elements, starting at
+     * <code>srcIndex</code>, to <code>dest</code> at <code>destPos</code>.
+     * Values are converted as described in
+     * {@link IntegerField#getValueAsLong()}.
+     */
+    public void copyTo(int srcIndex, long[] dest, int destPos, int length) {
+        checkRange(srcIndex, dest.length, destPos, length);
+
+        final int size = bits.getBytes();
+        int pos = offset + srcIndex * size;
+        for(int i = 0; i < length; ++i, pos += size) {
+            dest[destPos + i] = IntegerField.readValue(data, pos, bits,
+                    signedness, endianness);
+        }
+    }
+
+    /**
+     * Returns all elements in a new int array.
+     *
+     * @see #copyTo(int, int[], int, int)
+     */
+    public int[] toIntArray() {
+        final int[] result = new int[elementCount];
+        copyTo(0, result, 0, elementCount);
+        return result;
+    }
+
+    /**
+     * Returns all elements in a new long array.
+     *
+     * @see #copyTo(int, long[], int, int)
+     */
+    public long[] toLongArray() {
+        final long[] result = new long[elementCount];
+        copyTo(0, result, 0, elementCount);
+        return result;
+    }
+
+    /**
+     * Returns an IntegerField view of element <code>index</code>. A new view
+     * is created for each call. All views are backed by the same data, so
+     * changes made through one of them are seen by the others.
+     *
+     * @param index the index of the element.
+     * @return an IntegerField view of element <code>index</code>.
+     */
+    @Override
+    public IntegerField getElement(int index) {
+        return new IntegerField(new ByteArrayDataHandle(data),
+                getElementOffset(index), bits, signedness, endianness,
+                representation, null, false);
+    }
+
+    /**
+     * Returns IntegerField views of all elements. This creates one object per
+     * element, so prefer {@link #getElement(int)} or {@link #get(int)} for
+     * large arrays.
+     *
+     * @return IntegerField views of all elements.
+     */
+    @Override
+    public StructElement[] getElements() {
+        final StructElement[] result = new StructElement[elementCount];
+        for(int i = 0; i < elementCount; ++i)
+            result[i] = getElement(i);
+        return result;
+    }
+}
@@ -0,0 +1,95 @@
+/*-
+ * Copyright (C) 2026 Erik Larsson
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package org.catacombae.io;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.Future;
+
+/**
+ * Interface that defines methods to read from a stream without blocking the
+ * calling thread. The reads are positional, like in
+ * {@link SynchronizedReadable}, so any number of them may be outstanding at the
+ * same time.<br>
+ * The output array or buffer must not be accessed by the caller until the read
+ * has completed.
+ *
+ * @author <a href="https://catacombae.org" target="_top">Erik Larsson</a>
+ */
+public interface AsyncReadable {
+    /**
+     * Receives the outcome of an asynchronous read.
+     */
+    public static interface CompletionHandler {
+        /**
+         * Called when the read has completed.
+         *
+         * @param result the number of bytes that were read, or -1 if no bytes
+         * could be read due to end of stream.
+         */
+        public void completed(int result);
+
+        /**
+         * Called when the read has failed or was cancelled.
+         *
+         * @param cause the exception which caused the read to fail.
+         */
+        public void failed(Throwable cause);
+    }
+
+    /**
+     * Starts an asynchronous read of up to <code>len</code> bytes from stream
+     * position <code>pos</code> into <code>b</code> at offset
+     * <code>off</code>.
+     *
+     * @param pos the stream position to read from.
+     * @param b the array where the output data should be stored.
+     * @param off the offset in <code>b</code> where data should be stored.
+     * @param len the maximum number of bytes to read.
+     * @return a Future holding the number of bytes that were read, or -1 if no
+     * bytes could be read due to end of stream.
+     */
+    public Future<Integer> readFromAsync(long pos, byte[] b, int off, int len);
+
+    /**
+     * Starts an asynchronous read from stream position <code>pos</code> into
+     * the remaining space of <code>dst</code>. The position of
+     * <code>dst</code> is advanced by the number of bytes read.
+     *
+     * @param pos the stream position to read from.
+     * @param dst the buffer where the output data should be stored.
+     * @return a Future holding the number of bytes that were read, or -1 if no
+     * bytes could be read due to end of stream.
+     */
+    public Future<Integer> readFromAsync(long pos, ByteBuffer dst);
+
+    /**
+     * Starts an asynchronous read from stream position <code>pos</code> into
+     * the remaining space of <code>dst</code>, and notifies
+     * <code>handler</code> when it has completed. The handler is called on
+     * the thread that performed the read.
+     *
+     * @param pos the stream position to read from.
+     * @param dst the buffer where the output data should be stored.
+     * @param handler the handler to notify when the read has completed.
+     * @return a Future holding the number of bytes that were read, or -1 if no
+     * bytes could be read due to end of stream.
+     */
+    public Future<Integer> readFromAsync(long pos, ByteBuffer dst,
+            CompletionHandler handler);
+}
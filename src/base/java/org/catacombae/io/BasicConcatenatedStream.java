@@ -20,21 +20,65 @@ package org.catacombae.io;
 
 import org.catacombae.util.Log;
 import java.io.PrintStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 /**
- * Common superclass of ReadableConcatenatedStream and ConcatenatedStream.
+ * Common superclass of ReadableConcatenatedStream and ConcatenatedStream.<br>
+ * The positional {@link SynchronizedReadable} methods don't use the file
+ * pointer of the stream and may be called from any number of threads
+ * concurrently, also while another thread uses the file pointer based
+ * methods. Accesses to each part stream are synchronized on the part stream
+ * (or go through its own positional methods if it is a SynchronizedReadable),
+ * so part streams may be shared between parts and streams, but must not be
+ * accessed directly by others while in use. Parts must not be added while
+ * the stream is being read from.<br>
+ * Large positional reads that span parts backed by different streams are
+ * split at the part boundaries, and the pieces from the different streams
+ * are read in parallel.<br>
+ * Hole parts are reported as hole extents through {@link SparseStream}.
  *
  * @author <a href="https://catacombae.org" target="_top">Erik Larsson</a>
  */
 public abstract class BasicConcatenatedStream<A extends ReadableRandomAccessStream>
-        extends BasicReadableRandomAccessStream {
+        extends BasicReadableRandomAccessStream
+        implements SynchronizedReadable, SparseStream
+{
 
     private static final Log log =
             Log.getInstance(BasicConcatenatedStream.class);
 
+    /** Zero bytes used when filling ByteBuffers from holes. */
+    private static final byte[] holeFill = new byte[4096];
+
+    /**
+     * Positional reads smaller than this are never split up to be read in
+     * parallel, as the overhead of handing off the pieces would dominate.
+     */
+    private static final int MIN_PARALLEL_READ_SIZE = 256 * 1024;
+
+    private static final ExecutorService partReadExecutor =
+            Executors.newCachedThreadPool(new ThreadFactory() {
+        public Thread newThread(Runnable r) {
+            final Thread t = new Thread(r,
+                    BasicConcatenatedStream.class.getSimpleName() +
+                    " part reader");
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
     protected class Part {
 
         public final A file;
@@ -51,6 +95,19 @@ public abstract class BasicConcatenatedStream<A extends ReadableRandomAccessStre
     protected final List<Part> parts = new ArrayList<Part>();
     protected long virtualFP;
 
+    /**
+     * Virtual start offset of each part (prefix sums of the part lengths).
+     * Only the first <code>parts.size()</code> entries are valid.
+     */
+    private long[] partStarts = new long[16];
+    /** Cached sum of the lengths of all parts. */
+    private long totalLength = 0;
+    /**
+     * Index of the part found by the last lookup. Sequential reads hit either
+     * this part or the next one, which avoids the binary search.
+     */
+    private int lastPartIndex = 0;
+
     protected BasicConcatenatedStream(A firstPart, long startOffset, long length) {
         if(log.trace)
             log.traceEnter(firstPart, startOffset, length);
@@ -60,13 +117,13 @@ public abstract class BasicConcatenatedStream<A extends ReadableRandomAccessStre
                 /* Negative startOffset means there is an hole segment inserted
                  * before the first byte of the stream. */
                 Part missingPart = new Part(null, startOffset, -startOffset);
-                parts.add(missingPart);
+                appendPart(missingPart);
                 length += startOffset;
                 startOffset = 0;
             }
 
             Part currentPart = new Part(firstPart, startOffset, length);
-            parts.add(currentPart);
+            appendPart(currentPart);
             virtualFP = 0;
         } finally {
             if(log.trace)
@@ -100,12 +157,80 @@ public abstract class BasicConcatenatedStream<A extends ReadableRandomAccessStre
             log.traceEnter(newFile, off, len);
 
         Part newPart = new Part(newFile, off, len);
-        parts.add(newPart);
+        appendPart(newPart);
 
         if(log.trace)
             log.traceLeave(newFile, off, len);
     }
 
+    private void appendPart(Part newPart) {
+        final int index = parts.size();
+        if(index == partStarts.length) {
+            long[] newPartStarts = new long[partStarts.length * 2];
+            System.arraycopy(partStarts, 0, newPartStarts, 0, index);
+            partStarts = newPartStarts;
+        }
+
+        partStarts[index] = totalLength;
+        parts.add(newPart);
+        totalLength += newPart.length;
+    }
+
+    /**
+     * Looks up the part which contains the virtual position <code>pos</code>.
+     *
+     * @param pos the virtual position to look up.
+     * @return the index of the part containing <code>pos</code>, or the
+     * number of parts if <code>pos</code> is at or beyond the end of the
+     * stream.
+     */
+    protected int findPart(long pos) {
+        final int partCount = parts.size();
+        if(pos >= totalLength)
+            return partCount;
+        else if(pos < 0)
+            return 0;
+
+        final int hint = lastPartIndex;
+        if(hint < partCount && pos >= partStarts[hint]) {
+            if(hint + 1 == partCount || pos < partStarts[hint + 1])
+                return hint;
+            else if(hint + 2 == partCount || pos < partStarts[hint + 2]) {
+                lastPartIndex = hint + 1;
+                return hint + 1;
+            }
+        }
+
+        /* Binary search for the last part starting at or before pos. Zero
+         * length parts share their start with the following part, so we must
+         * keep searching to the right on equality. */
+        int low = 0;
+        int high = partCount - 1;
+        while(low < high) {
+            final int mid = (low + high + 1) >>> 1;
+            if(partStarts[mid] <= pos)
+                low = mid;
+            else
+                high = mid - 1;
+        }
+
+        lastPartIndex = low;
+        return low;
+    }
+
+    /**
+     * Returns the virtual start offset of the part at <code>index</code>.
+     *
+     * @param index the index of the part.
+     * @return the virtual start offset of the part.
+     */
+    protected long getPartStart(int index) {
+        if(index < 0 || index >= parts.size())
+            throw new IndexOutOfBoundsException("index: " + index);
+
+        return partStarts[index];
+    }
+
     public void seek(long pos) {
         if(log.trace)
             log.traceEnter(pos);
@@ -128,17 +253,9 @@ public abstract class BasicConcatenatedStream<A extends ReadableRandomAccessStre
         try {
             int bytesRead = 0;
 
-            long bytesToSkip = virtualFP;
-            int requestedPartIndex = 0;
-            for(Part p : parts) {
-                if(bytesToSkip < p.length) {
-                    /* The first byte of virtualFP is within this part. */
-                    break;
-                }
-
-                ++requestedPartIndex;
-                bytesToSkip -= p.length;
-            }
+            int requestedPartIndex = findPart(virtualFP);
+            long bytesToSkip = requestedPartIndex < parts.size() ?
+                virtualFP - partStarts[requestedPartIndex] : 0;
 
             if(requestedPartIndex >= parts.size()) {
                 return -1;
@@ -168,8 +285,8 @@ public abstract class BasicConcatenatedStream<A extends ReadableRandomAccessStre
                     log.debug("bytesLeftToRead = " + bytesLeftToRead);
                 }
 
-                int bytesToRead = (int) (bytesLeftToRead < requestedPart.length
-                        ? bytesLeftToRead : requestedPart.length);
+                int bytesToRead = (int) Math.min(bytesLeftToRead,
+                        requestedPart.length - bytesToSkipInPart);
 
                 if(log.debug) {
                     log.debug("bytesToRead = " + bytesToRead);
@@ -178,7 +295,8 @@ public abstract class BasicConcatenatedStream<A extends ReadableRandomAccessStre
                 int res;
                 if(requestedPart.file == null) {
                     /* This is a hole, so just zero-fill. */
-                    Arrays.fill(data, off + bytesRead, bytesToRead, (byte) 0);
+                    Arrays.fill(data, off + bytesRead,
+                            off + bytesRead + bytesToRead, (byte) 0);
                     res = bytesToRead;
                 }
                 else {
@@ -186,17 +304,15 @@ public abstract class BasicConcatenatedStream<A extends ReadableRandomAccessStre
                         log.debug("seeking to " + bytesToSkipInPart);
                     }
 
-                    requestedPart.file.seek(requestedPart.startOffset +
-                           bytesToSkipInPart);
-
                     if(log.debug) {
-                        log.debug("invoking requestedPart.file.read(byte[" +
-                                data.length + "], " + (off + bytesRead) + ", " +
+                        log.debug("invoking readPart(" + requestedPart + ", " +
+                                bytesToSkipInPart + ", byte[" + data.length +
+                                "], " + (off + bytesRead) + ", " +
                                 bytesToRead + ")");
                     }
 
-                    res = requestedPart.file.read(data, off + bytesRead,
-                            bytesToRead);
+                    res = readPart(requestedPart, bytesToSkipInPart, data,
+                            off + bytesRead, bytesToRead);
                 }
 
                 if(log.debug) {
@@ -234,14 +350,395 @@ public abstract class BasicConcatenatedStream<A extends ReadableRandomAccessStre
         }
     }
 
+    /**
+     * Reads data from the parts straight into <code>dst</code>, so that parts
+     * with native ByteBuffer support need no intermediate copy. Holes are
+     * zero-filled without any I/O.
+     */
+    @Override
+    public int read(ByteBuffer dst) {
+        if(log.trace)
+            log.traceEnter(dst);
+
+        final int len = dst.remaining();
+        final int oldLimit = dst.limit();
+        try {
+            if(len == 0)
+                return 0;
+
+            int requestedPartIndex = findPart(virtualFP);
+            long bytesToSkip = requestedPartIndex < parts.size() ?
+                virtualFP - partStarts[requestedPartIndex] : 0;
+
+            int bytesRead = 0;
+            while(bytesRead < len && requestedPartIndex < parts.size()) {
+                final Part requestedPart = parts.get(requestedPartIndex++);
+                final long bytesToSkipInPart = bytesToSkip;
+                bytesToSkip = 0;
+
+                final int bytesToRead = (int) Math.min(len - bytesRead,
+                        requestedPart.length - bytesToSkipInPart);
+
+                int res;
+                if(requestedPart.file == null) {
+                    /* This is a hole, so just zero-fill. */
+                    for(res = 0; res < bytesToRead; ) {
+                        final int curBytesToFill = Math.min(bytesToRead - res,
+                                holeFill.length);
+                        dst.put(holeFill, 0, curBytesToFill);
+                        res += curBytesToFill;
+                    }
+                }
+                else {
+                    dst.limit(dst.position() + bytesToRead);
+                    res = readPart(requestedPart, bytesToSkipInPart, dst);
+                    dst.limit(oldLimit);
+                }
+
+                if(res <= 0)
+                    break;
+
+                virtualFP += res;
+                bytesRead += res;
+                if(res < bytesToRead)
+                    break;
+            }
+
+            final int result = bytesRead > 0 ? bytesRead : -1;
+            if(log.trace)
+                log.traceReturn(result);
+            return result;
+        } finally {
+            dst.limit(oldLimit);
+
+            if(log.trace)
+                log.traceLeave(dst);
+        }
+    }
+
+    /**
+     * Reads from the stream of <code>part</code> at offset
+     * <code>posInPart</code> within the part. The caller must make sure that
+     * the read doesn't extend beyond the end of the part.
+     */
+    private static int readPart(BasicConcatenatedStream<?>.Part part,
+            long posInPart, byte[] b, int off, int len) {
+        final ReadableRandomAccessStream file = part.file;
+        final long pos = part.startOffset + posInPart;
+        if(file instanceof SynchronizedReadable)
+            return ((SynchronizedReadable) file).readFrom(pos, b, off, len);
+
+        synchronized(file) {
+            file.seek(pos);
+            return file.read(b, off, len);
+        }
+    }
+
+    /** ByteBuffer counterpart of {@link #readPart(Part, long, byte[], int, int)}. */
+    private static int readPart(BasicConcatenatedStream<?>.Part part,
+            long posInPart, ByteBuffer dst) {
+        final ReadableRandomAccessStream file = part.file;
+        final long pos = part.startOffset + posInPart;
+        if(file instanceof SynchronizedReadable)
+            return ((SynchronizedReadable) file).readFrom(pos, dst);
+
+        synchronized(file) {
+            file.seek(pos);
+            return file.read(dst);
+        }
+    }
+
+    /**
+     * The region of a positional read which falls within one part.
+     */
+    private static class Piece {
+        final BasicConcatenatedStream<?>.Part part;
+        final long posInPart;
+        final int off;
+        final int len;
+        int bytesRead = 0;
+
+        Piece(BasicConcatenatedStream<?>.Part part, long posInPart, int off,
+                int len) {
+            this.part = part;
+            this.posInPart = posInPart;
+            this.off = off;
+            this.len = len;
+        }
+
+        /**
+         * Reads as much of the piece as possible into <code>b</code>, stopping
+         * early only at the end of the part's stream.
+         */
+        void read(byte[] b) {
+            if(part.file == null) {
+                /* This is a hole, so just zero-fill. */
+                Arrays.fill(b, off, off + len, (byte) 0);
+                bytesRead = len;
+                return;
+            }
+
+            while(bytesRead < len) {
+                final int res = readPart(part, posInPart + bytesRead, b,
+                        off + bytesRead, len - bytesRead);
+                if(res <= 0)
+                    break;
+
+                bytesRead += res;
+            }
+        }
+    }
+
+    /** Reads a list of pieces in order. */
+    private static void readPieces(List<Piece> pieces, byte[] b) {
+        for(Piece p : pieces) {
+            p.read(b);
+            if(p.bytesRead < p.len)
+                break;
+        }
+    }
+
+    /**
+     * Reads the pieces which belong to different part streams in parallel.
+     * The pieces of the first stream are read by the calling thread.
+     */
+    private static void readPiecesParallel(List<Piece> pieces, final byte[] b) {
+        /* Group the data pieces by stream, since pieces from the same stream
+         * would only be serialized on it anyway. */
+        final IdentityHashMap<Object, List<Piece>> groupMap =
+                new IdentityHashMap<Object, List<Piece>>();
+        final List<List<Piece>> groups = new ArrayList<List<Piece>>();
+        for(Piece p : pieces) {
+            if(p.part.file == null) {
+                p.read(b);
+                continue;
+            }
+
+            List<Piece> group = groupMap.get(p.part.file);
+            if(group == null) {
+                group = new ArrayList<Piece>();
+                groupMap.put(p.part.file, group);
+                groups.add(group);
+            }
+
+            group.add(p);
+        }
+
+        /* The workers write into b, so all of them must have finished before
+         * we return or throw, whatever happens on this thread. */
+        final List<Future<?>> results = new ArrayList<Future<?>>();
+        Throwable failure = null;
+        try {
+            for(int i = 1; i < groups.size(); ++i) {
+                final List<Piece> group = groups.get(i);
+                results.add(partReadExecutor.submit(new Callable<Object>() {
+                    public Object call() {
+                        readPieces(group, b);
+                        return null;
+                    }
+                }));
+            }
+
+            if(!groups.isEmpty()) {
+                readPieces(groups.get(0), b);
+            }
+        } catch(RuntimeException ex) {
+            failure = ex;
+        } catch(Error ex) {
+            failure = ex;
+        }
+
+        boolean interrupted = false;
+        for(Future<?> result : results) {
+            while(true) {
+                try {
+                    result.get();
+                    break;
+                } catch(InterruptedException ex) {
+                    interrupted = true;
+                } catch(ExecutionException ex) {
+                    if(failure == null)
+                        failure = ex.getCause();
+                    break;
+                }
+            }
+        }
+
+        if(interrupted)
+            Thread.currentThread().interrupt();
+
+        if(failure instanceof RuntimeException)
+            throw (RuntimeException) failure;
+        else if(failure instanceof Error)
+            throw (Error) failure;
+        else if(failure != null)
+            throw new RuntimeException(failure);
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public int readFrom(final long pos, byte[] b, int off, int len)
+            throws RuntimeIOException {
+        if(log.trace)
+            log.traceEnter(pos, b, off, len);
+
+        try {
+            if(pos < 0)
+                throw new IllegalArgumentException("pos is negative: " + pos);
+
+            if(len == 0)
+                return 0;
+            else if(pos >= totalLength)
+                return -1;
+
+            final int bytesToRead = (int) Math.min(len, totalLength - pos);
+
+            /* Split the request at the part boundaries. */
+            final List<Piece> pieces = new ArrayList<Piece>();
+            int dataPieceCount = 0;
+            int curOff = 0;
+            for(int i = findPart(pos); curOff < bytesToRead; ++i) {
+                final Part part = parts.get(i);
+                final long posInPart = pos + curOff - partStarts[i];
+                final int curLen = (int) Math.min(bytesToRead - curOff,
+                        part.length - posInPart);
+                if(curLen <= 0)
+                    continue; // Zero length part.
+
+                pieces.add(new Piece(part, posInPart, off + curOff, curLen));
+                if(part.file != null)
+                    ++dataPieceCount;
+                curOff += curLen;
+            }
+
+            if(dataPieceCount > 1 && bytesToRead >= MIN_PARALLEL_READ_SIZE)
+                readPiecesParallel(pieces, b);
+            else
+                readPieces(pieces, b);
+
+            /* Only the data up to the first short piece is valid. */
+            int bytesRead = 0;
+            for(Piece p : pieces) {
+                bytesRead += p.bytesRead;
+                if(p.bytesRead < p.len)
+                    break;
+            }
+
+            final int result = bytesRead > 0 ? bytesRead : -1;
+            if(log.trace)
+                log.traceReturn(result);
+            return result;
+        } finally {
+            if(log.trace)
+                log.traceLeave(pos, b, off, len);
+        }
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public int readFrom(long pos) throws RuntimeIOException {
+        byte[] res = new byte[1];
+        if(readFrom(pos, res, 0, 1) == 1)
+            return res[0] & 0xFF;
+        else
+            return -1;
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public int readFrom(long pos, byte[] b) throws RuntimeIOException {
+        return readFrom(pos, b, 0, b.length);
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public int readFrom(long pos, ByteBuffer dst) throws RuntimeIOException {
+        return defaultReadFrom(this, pos, dst);
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public void readFullyFrom(long pos, byte[] data) throws RuntimeIOException {
+        readFullyFrom(pos, data, 0, data.length);
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public void readFullyFrom(long pos, byte[] data, int offset, int length)
+            throws RuntimeIOException {
+        if(length < 0)
+            throw new IllegalArgumentException("length is negative: " + length);
+
+        int bytesRead = 0;
+        while(bytesRead < length) {
+            final int curBytesRead = readFrom(pos + bytesRead, data,
+                    offset + bytesRead, length - bytesRead);
+            if(curBytesRead > 0)
+                bytesRead += curBytesRead;
+            else
+                throw new RuntimeIOException("Couldn't read the entire " +
+                        "length.");
+        }
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public long skipFrom(final long pos, final long length)
+            throws RuntimeIOException {
+        final long newPos = pos + length;
+
+        if(newPos > totalLength)
+            return totalLength - pos;
+        else
+            return length;
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public long remainingLength() throws RuntimeIOException {
+        return length() - getFilePointer();
+    }
+
+    /**
+     * Returns the extents of this stream. Hole parts are reported as holes
+     * and all other parts as data, without any I/O.
+     */
+    //@Override
+    public Iterator<Extent> getExtents() {
+        final List<Extent> extents = new ArrayList<Extent>();
+        long extentStart = 0;
+        boolean extentIsHole = false;
+        for(int i = 0; i < parts.size(); ++i) {
+            final Part part = parts.get(i);
+            if(part.length == 0)
+                continue;
+
+            final boolean isHole = (part.file == null);
+            final long partStart = partStarts[i];
+            if(partStart == 0)
+                extentIsHole = isHole;
+            else if(isHole != extentIsHole) {
+                extents.add(new Extent(extentStart, partStart - extentStart,
+                        extentIsHole));
+                extentStart = partStart;
+                extentIsHole = isHole;
+            }
+        }
+
+        if(totalLength > 0) {
+            extents.add(new Extent(extentStart, totalLength - extentStart,
+                    extentIsHole));
+        }
+
+        return Collections.unmodifiableList(extents).iterator();
+    }
+
     public long length() {
         //String METHOD_NAME = "length";
         if(log.trace)
             log.traceEnter();
 
-        long result = 0;
-        for(Part p : parts)
-            result += p.length;
+        final long result = totalLength;
         log.debug("returning " + result);
 
         if(log.trace) {
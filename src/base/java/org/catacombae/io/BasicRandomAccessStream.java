@@ -18,6 +18,8 @@
 
 package org.catacombae.io;
 
+import java.nio.ByteBuffer;
+
 /**
  * This convenient base class provides default implementations for some of the
  * methods in RandomAccessStream.
@@ -43,4 +45,9 @@ public abstract class BasicRandomAccessStream extends BasicReadableRandomAccessS
     public void write(int b) {
         BasicWritableRandomAccessStream.defaultWrite(this, b);
     }
+
+    /** {@inheritDoc} */
+    public void write(ByteBuffer src) {
+        BasicWritableRandomAccessStream.defaultWrite(this, src);
+    }
 }
@@ -18,6 +18,8 @@
 
 package org.catacombae.io;
 
+import java.nio.ByteBuffer;
+
 /**
  * Basic implementation of core features of Readable, to allow the subclasser to only implement the
  * essential methods.
@@ -25,6 +27,12 @@ package org.catacombae.io;
  * @author <a href="https://catacombae.org" target="_top">Erik Larsson</a>
  */
 public abstract class BasicReadable implements Readable {
+    /**
+     * The largest temporary buffer allocated when adapting ByteBuffer reads
+     * and writes to the byte[] based methods.
+     */
+    static final int MAX_TRANSFER_BUFFER_SIZE = 64 * 1024;
+
     /**
      * Empty constructor (there is no state maintained in this class).
      */
@@ -47,6 +55,11 @@ public abstract class BasicReadable implements Readable {
     /** {@inheritDoc} */
     public abstract int read(byte[] data, int pos, int len) throws RuntimeIOException;
 
+    /** {@inheritDoc} */
+    public int read(ByteBuffer dst) throws RuntimeIOException {
+        return defaultRead(this, dst);
+    }
+
     /** {@inheritDoc} */
     public byte readFully() throws RuntimeIOException {
         byte[] data = new byte[1];
@@ -72,4 +85,56 @@ public abstract class BasicReadable implements Readable {
                 throw new RuntimeIOException("Couldn't read the entire length.");
         }
     }
+
+    /**
+     * Adapts a ByteBuffer read to the byte[] based read method of
+     * <code>r</code>. Buffers with an accessible backing array are read into
+     * directly, while other buffers (such as direct buffers) are filled through
+     * a temporary array.
+     */
+    static int defaultRead(Readable r, ByteBuffer dst) throws RuntimeIOException {
+        final int len = dst.remaining();
+        if(len == 0)
+            return 0;
+
+        if(dst.hasArray()) {
+            final int res = r.read(dst.array(), dst.arrayOffset() + dst.position(), len);
+            if(res > 0)
+                dst.position(dst.position() + res);
+            return res;
+        }
+        else {
+            final byte[] tmp = new byte[Math.min(len, MAX_TRANSFER_BUFFER_SIZE)];
+            final int res = r.read(tmp, 0, tmp.length);
+            if(res > 0)
+                dst.put(tmp, 0, res);
+            return res;
+        }
+    }
+
+    /**
+     * Adapts a positional ByteBuffer read to the byte[] based
+     * <code>readFrom</code> method of <code>r</code>, in the same way as
+     * {@link #defaultRead(Readable, ByteBuffer)}.
+     */
+    static int defaultReadFrom(SynchronizedReadable r, long pos, ByteBuffer dst)
+            throws RuntimeIOException {
+        final int len = dst.remaining();
+        if(len == 0)
+            return 0;
+
+        if(dst.hasArray()) {
+            final int res = r.readFrom(pos, dst.array(), dst.arrayOffset() + dst.position(), len);
+            if(res > 0)
+                dst.position(dst.position() + res);
+            return res;
+        }
+        else {
+            final byte[] tmp = new byte[Math.min(len, MAX_TRANSFER_BUFFER_SIZE)];
+            final int res = r.readFrom(pos, tmp, 0, tmp.length);
+            if(res > 0)
+                dst.put(tmp, 0, res);
+            return res;
+        }
+    }
 }
@@ -18,12 +18,25 @@
 
 package org.catacombae.io;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Comparator;
+
 /**
  * Basic implementation of convenience methods in a SynchronizedReadableRandomAccess.
  * 
  * @author <a href="https://catacombae.org" target="_top">Erik Larsson</a>
  */
 public abstract class BasicSynchronizedReadableRandomAccessStream extends BasicReadableRandomAccessStream implements SynchronizedReadableRandomAccess {
+    /**
+     * Regions in a batch read that are separated by at most this many bytes are
+     * merged into one read. Reading the gap is cheaper than an extra request.
+     */
+    static final int MAX_COALESCE_GAP = 4096;
+
+    /** Regions in a batch read are never merged into reads larger than this. */
+    static final int MAX_COALESCED_READ_SIZE = 1024 * 1024;
+
     /** {@inheritDoc} */
     //@Override
     public int readFrom(long pos) throws RuntimeIOException {
@@ -39,6 +52,12 @@ public abstract class BasicSynchronizedReadableRandomAccessStream extends BasicR
     public int readFrom(long pos, byte[] b) throws RuntimeIOException {
         return readFrom(pos, b, 0, b.length);
     }
+
+    /** {@inheritDoc} */
+    //@Override
+    public int readFrom(long pos, ByteBuffer dst) throws RuntimeIOException {
+        return defaultReadFrom(this, pos, dst);
+    }
     
     /** {@inheritDoc} */
     //@Override
@@ -59,4 +78,83 @@ public abstract class BasicSynchronizedReadableRandomAccessStream extends BasicR
 		throw new RuntimeIOException("Couldn't read the entire length.");
 	}
     }
+
+    /** {@inheritDoc} */
+    //@Override
+    public void readFullyFromMany(long[] positions, byte[][] data, int[] offsets, int[] lengths)
+            throws RuntimeIOException
+    {
+        defaultReadFullyFromMany(this, positions, data, offsets, lengths);
+    }
+
+    /**
+     * Sorts the regions of a batch read by position, merges regions that are
+     * adjacent, overlapping or separated by a small gap into larger reads and
+     * scatters the data of each read back to the output arrays.
+     */
+    static void defaultReadFullyFromMany(SynchronizedReadable s, final long[] positions,
+            byte[][] data, int[] offsets, final int[] lengths) throws RuntimeIOException
+    {
+        final int count = positions.length;
+        if(data.length != count || offsets.length != count || lengths.length != count) {
+            throw new IllegalArgumentException("Array lengths differ.");
+        }
+
+        final Integer[] order = new Integer[count];
+        for(int i = 0; i < count; ++i) {
+            if(lengths[i] < 0)
+                throw new IllegalArgumentException("length is negative: " + lengths[i]);
+            order[i] = i;
+        }
+
+        Arrays.sort(order, new Comparator<Integer>() {
+            public int compare(Integer a, Integer b) {
+                final long posA = positions[a];
+                final long posB = positions[b];
+                return posA < posB ? -1 : (posA == posB ? 0 : 1);
+            }
+        });
+
+        byte[] mergeBuffer = null;
+        int groupStart = 0;
+        while(groupStart < count) {
+            final int first = order[groupStart];
+            final long readStart = positions[first];
+            long readEnd = readStart + lengths[first];
+
+            int groupEnd = groupStart + 1;
+            while(groupEnd < count) {
+                final int next = order[groupEnd];
+                final long nextEnd = Math.max(readEnd, positions[next] + lengths[next]);
+                if(positions[next] > readEnd + MAX_COALESCE_GAP ||
+                        nextEnd - readStart > MAX_COALESCED_READ_SIZE)
+                {
+                    break;
+                }
+
+                readEnd = nextEnd;
+                ++groupEnd;
+            }
+
+            if(groupEnd - groupStart == 1) {
+                /* Nothing to merge. Read straight into the destination. */
+                s.readFullyFrom(readStart, data[first], offsets[first], lengths[first]);
+            }
+            else {
+                final int readLength = (int) (readEnd - readStart);
+                if(mergeBuffer == null || mergeBuffer.length < readLength)
+                    mergeBuffer = new byte[readLength];
+
+                s.readFullyFrom(readStart, mergeBuffer, 0, readLength);
+
+                for(int i = groupStart; i < groupEnd; ++i) {
+                    final int cur = order[i];
+                    System.arraycopy(mergeBuffer, (int) (positions[cur] - readStart), data[cur],
+                            offsets[cur], lengths[cur]);
+                }
+            }
+
+            groupStart = groupEnd;
+        }
+    }
 }
@@ -18,6 +18,8 @@
 
 package org.catacombae.io;
 
+import java.nio.ByteBuffer;
+
 /**
  * Basic implementation of core features of Writable, to allow the subclasser to only implement the
  * essential methods.
@@ -43,6 +45,11 @@ public abstract class BasicWritable implements Writable {
         defaultWrite(this, b);
     }
 
+    /** {@inheritDoc} */
+    public void write(ByteBuffer src) throws RuntimeIOException {
+        defaultWrite(this, src);
+    }
+
     static void defaultWrite(Writable w, byte[] b) throws RuntimeIOException {
         w.write(b, 0, b.length);
     }
@@ -50,4 +57,20 @@ public abstract class BasicWritable implements Writable {
     static void defaultWrite(Writable w, int b) throws RuntimeIOException {
         w.write(new byte[] { (byte)(b & 0xFF) }, 0, 1);
     }
+
+    static void defaultWrite(Writable w, ByteBuffer src) throws RuntimeIOException {
+        if(src.hasArray()) {
+            w.write(src.array(), src.arrayOffset() + src.position(), src.remaining());
+            src.position(src.limit());
+        }
+        else {
+            final byte[] tmp =
+                    new byte[Math.min(src.remaining(), BasicReadable.MAX_TRANSFER_BUFFER_SIZE)];
+            while(src.hasRemaining()) {
+                final int curLen = Math.min(src.remaining(), tmp.length);
+                src.get(tmp, 0, curLen);
+                w.write(tmp, 0, curLen);
+            }
+        }
+    }
 }
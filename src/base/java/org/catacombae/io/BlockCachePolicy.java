@@ -0,0 +1,469 @@
+/*-
+ * Copyright (C) 2026 Erik Larsson
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package org.catacombae.io;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Replacement policy for a cache of fixed size blocks, keyed by block number.
+ * Implementations decide which block to evict when a new block is inserted
+ * into a full cache.<br>
+ * Instances are not thread-safe. The user is expected to serialize access to
+ * a policy object (this is what {@link CachingReadableRandomAccessStream}
+ * does).
+ *
+ * @author <a href="https://catacombae.org" target="_top">Erik Larsson</a>
+ */
+public abstract class BlockCachePolicy {
+    /** The built in replacement policies. */
+    public static enum Type {
+        /** Evicts the least recently used block. */
+        LRU,
+        /**
+         * Approximation of LRU using a reference bit per block and a clock
+         * hand sweeping over the blocks.
+         */
+        CLOCK,
+        /**
+         * The 2Q algorithm (Johnson &amp; Shasha), which keeps blocks that
+         * have only been referenced once in a separate FIFO queue so that
+         * large scans do not flush frequently used blocks.
+         */
+        TWO_QUEUE,
+        /**
+         * The Adaptive Replacement Cache algorithm (Megiddo &amp; Modha),
+         * which balances recency and frequency based on the observed
+         * workload.
+         */
+        ARC;
+    }
+
+    /** The maximum number of blocks held by the cache. */
+    protected final int capacity;
+
+    private long evictionCount = 0;
+
+    /**
+     * Creates a new policy object.
+     *
+     * @param capacity the maximum number of blocks that the cache may hold.
+     */
+    protected BlockCachePolicy(int capacity) {
+        if(capacity <= 0) {
+            throw new IllegalArgumentException("Invalid capacity: " +
+                    capacity);
+        }
+
+        this.capacity = capacity;
+    }
+
+    /**
+     * Creates a new instance of one of the built in replacement policies.
+     *
+     * @param type the type of policy to create.
+     * @param capacity the maximum number of blocks that the cache may hold.
+     * @return a new policy object.
+     */
+    public static BlockCachePolicy create(Type type, int capacity) {
+        switch(type) {
+            case LRU:
+                return new LRUPolicy(capacity);
+            case CLOCK:
+                return new ClockPolicy(capacity);
+            case TWO_QUEUE:
+                return new TwoQueuePolicy(capacity);
+            case ARC:
+                return new ARCPolicy(capacity);
+            default:
+                throw new IllegalArgumentException("Unknown policy type: " +
+                        type);
+        }
+    }
+
+    /**
+     * Returns the maximum number of blocks that the cache may hold.
+     *
+     * @return the maximum number of blocks that the cache may hold.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the number of blocks that have been evicted from the cache since
+     * it was created.
+     *
+     * @return the number of evicted blocks.
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /** Must be called by subclasses whenever a cached block is dropped. */
+    protected void evicted() {
+        ++evictionCount;
+    }
+
+    /**
+     * Looks up a block in the cache, registering the access with the policy.
+     *
+     * @param blockNumber the number of the block to look up.
+     * @return the cached data of the block, or <code>null</code> if the block
+     * isn't cached.
+     */
+    public abstract byte[] get(long blockNumber);
+
+    /**
+     * Returns whether a block is in the cache. Unlike
+     * {@link #get(long)}, this is not registered as an access, so the policy
+     * state is left unchanged.
+     *
+     * @param blockNumber the number of the block to look up.
+     * @return whether the block is cached.
+     */
+    public abstract boolean contains(long blockNumber);
+
+    /**
+     * Inserts a block which is not currently cached, evicting other blocks as
+     * dictated by the policy.
+     *
+     * @param blockNumber the number of the block to insert.
+     * @param data the data of the block.
+     */
+    public abstract void put(long blockNumber, byte[] data);
+
+    /**
+     * Returns the number of blocks currently held by the cache.
+     *
+     * @return the number of blocks currently held by the cache.
+     */
+    public abstract int size();
+
+    /** Drops all blocks and history from the cache. */
+    public abstract void clear();
+
+    private static <K, V> K removeEldest(LinkedHashMap<K, V> map) {
+        final Iterator<K> it = map.keySet().iterator();
+        final K eldest = it.next();
+        it.remove();
+        return eldest;
+    }
+
+    private static class LRUPolicy extends BlockCachePolicy {
+        private final LinkedHashMap<Long, byte[]> blocks;
+
+        public LRUPolicy(int capacity) {
+            super(capacity);
+            this.blocks = new LinkedHashMap<Long, byte[]>(16, 0.75f, true);
+        }
+
+        @Override
+        public byte[] get(long blockNumber) {
+            return blocks.get(blockNumber);
+        }
+
+        @Override
+        public boolean contains(long blockNumber) {
+            return blocks.containsKey(blockNumber);
+        }
+
+        @Override
+        public void put(long blockNumber, byte[] data) {
+            if(blocks.size() >= capacity) {
+                removeEldest(blocks);
+                evicted();
+            }
+
+            blocks.put(blockNumber, data);
+        }
+
+        @Override
+        public int size() {
+            return blocks.size();
+        }
+
+        @Override
+        public void clear() {
+            blocks.clear();
+        }
+    }
+
+    private static class ClockPolicy extends BlockCachePolicy {
+        private final long[] slotBlockNumbers;
+        private final byte[][] slotData;
+        private final boolean[] slotReferenced;
+        private final HashMap<Long, Integer> slotIndex =
+                new HashMap<Long, Integer>();
+        private int hand = 0;
+        private int used = 0;
+
+        public ClockPolicy(int capacity) {
+            super(capacity);
+            this.slotBlockNumbers = new long[capacity];
+            this.slotData = new byte[capacity][];
+            this.slotReferenced = new boolean[capacity];
+        }
+
+        @Override
+        public byte[] get(long blockNumber) {
+            final Integer slot = slotIndex.get(blockNumber);
+            if(slot == null)
+                return null;
+
+            slotReferenced[slot] = true;
+            return slotData[slot];
+        }
+
+        @Override
+        public boolean contains(long blockNumber) {
+            return slotIndex.containsKey(blockNumber);
+        }
+
+        @Override
+        public void put(long blockNumber, byte[] data) {
+            final int slot;
+            if(used < capacity) {
+                slot = used++;
+            }
+            else {
+                while(slotReferenced[hand]) {
+                    slotReferenced[hand] = false;
+                    hand = (hand + 1) % capacity;
+                }
+
+                slot = hand;
+                hand = (hand + 1) % capacity;
+                slotIndex.remove(slotBlockNumbers[slot]);
+                evicted();
+            }
+
+            slotBlockNumbers[slot] = blockNumber;
+            slotData[slot] = data;
+            slotReferenced[slot] = false;
+            slotIndex.put(blockNumber, slot);
+        }
+
+        @Override
+        public int size() {
+            return used;
+        }
+
+        @Override
+        public void clear() {
+            for(int i = 0; i < used; ++i) {
+                slotData[i] = null;
+                slotReferenced[i] = false;
+            }
+
+            slotIndex.clear();
+            hand = 0;
+            used = 0;
+        }
+    }
+
+    private static class TwoQueuePolicy extends BlockCachePolicy {
+        /** Blocks referenced once, in FIFO order. */
+        private final LinkedHashMap<Long, byte[]> a1in =
+                new LinkedHashMap<Long, byte[]>();
+        /** Block numbers recently evicted from a1in (no data). */
+        private final LinkedHashMap<Long, Boolean> a1out =
+                new LinkedHashMap<Long, Boolean>();
+        /** Blocks referenced more than once, in LRU order. */
+        private final LinkedHashMap<Long, byte[]> am =
+                new LinkedHashMap<Long, byte[]>(16, 0.75f, true);
+        private final int kin;
+        private final int kout;
+
+        public TwoQueuePolicy(int capacity) {
+            super(capacity);
+            /* Tuning parameters as recommended in the 2Q paper. */
+            this.kin = Math.max(1, capacity / 4);
+            this.kout = Math.max(1, capacity / 2);
+        }
+
+        @Override
+        public byte[] get(long blockNumber) {
+            final byte[] data = am.get(blockNumber);
+            if(data != null)
+                return data;
+
+            /* Hits in a1in are deliberately not promoted, since correlated
+             * references shortly after the first one say little about
+             * whether the block is hot. */
+            return a1in.get(blockNumber);
+        }
+
+        @Override
+        public boolean contains(long blockNumber) {
+            return am.containsKey(blockNumber) ||
+                    a1in.containsKey(blockNumber);
+        }
+
+        @Override
+        public void put(long blockNumber, byte[] data) {
+            if(a1in.size() + am.size() >= capacity)
+                reclaim();
+
+            if(a1out.remove(blockNumber) != null)
+                am.put(blockNumber, data);
+            else
+                a1in.put(blockNumber, data);
+        }
+
+        private void reclaim() {
+            if(a1in.size() > kin || am.isEmpty()) {
+                final Long blockNumber = removeEldest(a1in);
+                a1out.put(blockNumber, Boolean.TRUE);
+                if(a1out.size() > kout)
+                    removeEldest(a1out);
+            }
+            else {
+                removeEldest(am);
+            }
+
+            evicted();
+        }
+
+        @Override
+        public int size() {
+            return a1in.size() + am.size();
+        }
+
+        @Override
+        public void clear() {
+            a1in.clear();
+            a1out.clear();
+            am.clear();
+        }
+    }
+
+    private static class ARCPolicy extends BlockCachePolicy {
+        /** Resident blocks seen once recently, in LRU order. */
+        private final LinkedHashMap<Long, byte[]> t1 =
+                new LinkedHashMap<Long, byte[]>();
+        /** Resident blocks seen at least twice recently, in LRU order. */
+        private final LinkedHashMap<Long, byte[]> t2 =
+                new LinkedHashMap<Long, byte[]>();
+        /** Ghost entries for blocks evicted from t1. */
+        private final LinkedHashMap<Long, Boolean> b1 =
+                new LinkedHashMap<Long, Boolean>();
+        /** Ghost entries for blocks evicted from t2. */
+        private final LinkedHashMap<Long, Boolean> b2 =
+                new LinkedHashMap<Long, Boolean>();
+        /** Target size of t1. */
+        private int p = 0;
+
+        public ARCPolicy(int capacity) {
+            super(capacity);
+        }
+
+        @Override
+        public byte[] get(long blockNumber) {
+            final Long key = blockNumber;
+            byte[] data = t1.remove(key);
+            if(data == null)
+                data = t2.remove(key);
+            if(data == null)
+                return null;
+
+            t2.put(key, data);
+            return data;
+        }
+
+        @Override
+        public boolean contains(long blockNumber) {
+            return t1.containsKey(blockNumber) ||
+                    t2.containsKey(blockNumber);
+        }
+
+        @Override
+        public void put(long blockNumber, byte[] data) {
+            final Long key = blockNumber;
+
+            if(b1.containsKey(key)) {
+                p = Math.min(capacity,
+                        p + Math.max(b2.size() / b1.size(), 1));
+                replace(false);
+                b1.remove(key);
+                t2.put(key, data);
+                return;
+            }
+            else if(b2.containsKey(key)) {
+                p = Math.max(0, p - Math.max(b1.size() / b2.size(), 1));
+                replace(true);
+                b2.remove(key);
+                t2.put(key, data);
+                return;
+            }
+
+            final int l1 = t1.size() + b1.size();
+            final int total = l1 + t2.size() + b2.size();
+            if(l1 >= capacity) {
+                if(t1.size() < capacity) {
+                    removeEldest(b1);
+                    replace(false);
+                }
+                else {
+                    removeEldest(t1);
+                    evicted();
+                }
+            }
+            else if(total >= capacity) {
+                if(total >= 2 * capacity)
+                    removeEldest(b2);
+                replace(false);
+            }
+
+            t1.put(key, data);
+        }
+
+        private void replace(boolean inB2) {
+            if(t1.size() + t2.size() < capacity)
+                return;
+
+            if(!t1.isEmpty() &&
+                    (t1.size() > p || (inB2 && t1.size() == p) || t2.isEmpty()))
+            {
+                b1.put(removeEldest(t1), Boolean.TRUE);
+            }
+            else {
+                b2.put(removeEldest(t2), Boolean.TRUE);
+            }
+
+            evicted();
+        }
+
+        @Override
+        public int size() {
+            return t1.size() + t2.size();
+        }
+
+        @Override
+        public void clear() {
+            t1.clear();
+            t2.clear();
+            b1.clear();
+            b2.clear();
+            p = 0;
+        }
+    }
+}
@@ -0,0 +1,374 @@
+/*-
+ * Copyright (C) 2026 Erik Larsson
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package org.catacombae.io;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.catacombae.util.Util;
+
+/**
+ * A read-only stream which caches fixed size, aligned blocks of an underlying
+ * stream in memory.<br>
+ * The cache is bounded by a byte capacity and the blocks to keep are chosen by
+ * a {@link BlockCachePolicy}. The <code>readFrom</code> methods may be called
+ * concurrently from any number of threads; the cache metadata is protected by
+ * a lock, but reads from the underlying stream happen outside of it.<br>
+ * A plain ReadableRandomAccessStream can be cached by first wrapping it in a
+ * {@link SynchronizedReadableRandomAccessStream}. The caching stream is itself
+ * a SynchronizedReadableRandomAccess and can be shared between
+ * {@link ReadableRandomAccessSubstream}s, which is the intended way to give
+ * each thread its own file pointer.
+ *
+ * @author <a href="https://catacombae.org" target="_top">Erik Larsson</a>
+ */
+public class CachingReadableRandomAccessStream
+        extends BasicSynchronizedReadableRandomAccessStream
+{
+    private static final boolean DEBUG =
+            Util.booleanEnabledByProperties(false,
+            "org.catacombae.debug",
+            "org.catacombae.io.debug",
+            "org.catacombae.io." +
+            CachingReadableRandomAccessStream.class.getSimpleName() +
+            ".debug");
+
+    /** The default block size (4 KiB). */
+    public static final int DEFAULT_BLOCK_SIZE = 4096;
+
+    /** The default cache capacity in bytes (64 MiB). */
+    public static final long DEFAULT_CAPACITY = 64 * 1024 * 1024;
+
+    private final SynchronizedReadableRandomAccess source;
+    private final int blockSize;
+    private final BlockCachePolicy cache;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    private long filePointer = 0;
+    private long refCount = 1;
+    private boolean closed = false;
+
+    /**
+     * Creates a caching stream with the default block size, capacity and
+     * replacement policy ({@link BlockCachePolicy.Type#ARC}). A reference to
+     * <code>source</code> is held until this stream is closed.
+     *
+     * @param source the stream to cache.
+     */
+    public CachingReadableRandomAccessStream(
+            SynchronizedReadableRandomAccess source)
+    {
+        this(source, DEFAULT_BLOCK_SIZE, DEFAULT_CAPACITY,
+                BlockCachePolicy.Type.ARC);
+    }
+
+    /**
+     * Creates a caching stream. A reference to <code>source</code> is held
+     * until this stream is closed.
+     *
+     * @param source the stream to cache.
+     * @param blockSize the size of each cached block.
+     * @param capacity the maximum number of bytes held in the cache.
+     * @param policyType the replacement policy to use.
+     */
+    public CachingReadableRandomAccessStream(
+            SynchronizedReadableRandomAccess source, int blockSize,
+            long capacity, BlockCachePolicy.Type policyType)
+    {
+        this(source, blockSize, BlockCachePolicy.create(policyType,
+                getBlockCount(blockSize, capacity)));
+    }
+
+    /**
+     * Creates a caching stream with a custom replacement policy. A reference
+     * to <code>source</code> is held until this stream is closed.
+     *
+     * @param source the stream to cache.
+     * @param blockSize the size of each cached block.
+     * @param policy the replacement policy, which also determines the
+     * capacity of the cache in blocks. It must not be shared with other
+     * streams.
+     */
+    public CachingReadableRandomAccessStream(
+            SynchronizedReadableRandomAccess source, int blockSize,
+            BlockCachePolicy policy)
+    {
+        if(blockSize <= 0) {
+            throw new IllegalArgumentException("Invalid block size: " +
+                    blockSize);
+        }
+        if(policy == null)
+            throw new IllegalArgumentException("policy may NOT be null");
+
+        this.source = source;
+        this.blockSize = blockSize;
+        this.cache = policy;
+
+        source.addReference(this);
+    }
+
+    private static int getBlockCount(int blockSize, long capacity) {
+        if(blockSize <= 0) {
+            throw new IllegalArgumentException("Invalid block size: " +
+                    blockSize);
+        }
+
+        final long blockCount = capacity / blockSize;
+        if(blockCount <= 0 || blockCount > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid capacity for block " +
+                    "size " + blockSize + ": " + capacity);
+        }
+
+        return (int) blockCount;
+    }
+
+    /**
+     * Returns the size of the cached blocks.
+     *
+     * @return the size of the cached blocks.
+     */
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Returns the number of block lookups that were served from the cache.
+     *
+     * @return the number of block lookups that were served from the cache.
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Returns the number of block lookups that had to go to the underlying
+     * stream.
+     *
+     * @return the number of block lookups that had to go to the underlying
+     * stream.
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Returns the number of blocks that have been evicted from the cache.
+     *
+     * @return the number of blocks that have been evicted from the cache.
+     */
+    public long getEvictionCount() {
+        synchronized(cache) {
+            return cache.getEvictionCount();
+        }
+    }
+
+    /**
+     * Returns the number of blocks currently held in the cache.
+     *
+     * @return the number of blocks currently held in the cache.
+     */
+    public int getCachedBlockCount() {
+        synchronized(cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * Drops all cached blocks. This must be called if the underlying data may
+     * have been modified through other means than this stream.
+     */
+    public void invalidate() {
+        synchronized(cache) {
+            cache.clear();
+        }
+    }
+
+    private byte[] getBlock(long blockNumber) {
+        byte[] block;
+        synchronized(cache) {
+            block = cache.get(blockNumber);
+        }
+
+        if(block != null) {
+            hitCount.incrementAndGet();
+            return block;
+        }
+
+        missCount.incrementAndGet();
+        if(DEBUG) {
+            System.err.println("CachingReadableRandomAccessStream: Cache " +
+                    "miss for block " + blockNumber + ".");
+        }
+
+        final long blockOffset = blockNumber * blockSize;
+        final long streamLength = source.length();
+        if(blockOffset >= streamLength) {
+            /* End of stream. Nothing to cache. */
+            return null;
+        }
+
+        final int bytesToRead =
+                (int) Math.min(blockSize, streamLength - blockOffset);
+        final byte[] buffer = new byte[blockSize];
+        int bytesRead = 0;
+        while(bytesRead < bytesToRead) {
+            final int res = source.readFrom(blockOffset + bytesRead, buffer,
+                    bytesRead, bytesToRead - bytesRead);
+            if(res <= 0)
+                break;
+            bytesRead += res;
+        }
+
+        if(bytesRead == 0) {
+            return null;
+        }
+        else if(bytesRead < blockSize) {
+            /* A short block is the tail of the stream, which would be stale
+             * once the source grows. Return it without caching it. */
+            return Util.createCopy(buffer, 0, bytesRead);
+        }
+
+        block = buffer;
+        synchronized(cache) {
+            /* Another thread may have loaded the same block while we were
+             * reading it. */
+            if(!cache.contains(blockNumber))
+                cache.put(blockNumber, block);
+        }
+
+        return block;
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public int readFrom(final long pos, byte[] b, int off, int len)
+            throws RuntimeIOException {
+        if(pos < 0)
+            throw new IllegalArgumentException("pos is negative: " + pos);
+        if(len == 0)
+            return 0;
+
+        int bytesRead = 0;
+        while(bytesRead < len) {
+            final long curPos = pos + bytesRead;
+            final long blockNumber = curPos / blockSize;
+            final int blockOffset = (int) (curPos % blockSize);
+
+            final byte[] block = getBlock(blockNumber);
+            if(block == null || blockOffset >= block.length)
+                break;
+
+            final int curBytesToCopy =
+                    Math.min(len - bytesRead, block.length - blockOffset);
+            System.arraycopy(block, blockOffset, b, off + bytesRead,
+                    curBytesToCopy);
+            bytesRead += curBytesToCopy;
+
+            if(block.length < blockSize)
+                break; // Last block of the stream.
+        }
+
+        return bytesRead > 0 ? bytesRead : -1;
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public long skipFrom(final long pos, final long length)
+            throws RuntimeIOException {
+        final long streamLength = length();
+        final long newPos = pos + length;
+
+        if(newPos > streamLength)
+            return streamLength - pos;
+        else
+            return length;
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public long remainingLength() throws RuntimeIOException {
+        return length() - getFilePointer();
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public int read(byte[] data, int pos, int len) throws RuntimeIOException {
+        final int res = readFrom(filePointer, data, pos, len);
+        if(res > 0)
+            filePointer += res;
+        return res;
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public void seek(long pos) throws RuntimeIOException {
+        filePointer = pos;
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public long length() throws RuntimeIOException {
+        return source.length();
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public long getFilePointer() throws RuntimeIOException {
+        return filePointer;
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public synchronized void close() throws RuntimeIOException {
+        if(closed)
+            throw new RuntimeException("Already closed.");
+
+        closed = true;
+        --refCount;
+        tryReleaseSource();
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public synchronized void addReference(Object referrer) {
+        if(closed)
+            throw new RuntimeIOException("Stream is closed!");
+
+        ++refCount;
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public synchronized void removeReference(Object referrer) {
+        if((closed && refCount == 0) || (!closed && refCount == 1)) {
+            throw new RuntimeException("No references!");
+        }
+
+        --refCount;
+        tryReleaseSource();
+    }
+
+    private void tryReleaseSource() {
+        if(refCount == 0) {
+            invalidate();
+
+            source.removeReference(this);
+        }
+    }
+}
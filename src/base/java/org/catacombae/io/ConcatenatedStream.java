@@ -18,6 +18,8 @@
 
 package org.catacombae.io;
 
+import java.nio.ByteBuffer;
+
 /**
  * A full read/write version of ReadableConcatenatedStream.
  * Note: Untested!
@@ -38,23 +40,15 @@ public class ConcatenatedStream extends BasicConcatenatedStream<RandomAccessStre
         int bytesWritten = 0;
 
         // First: Look up the position represented by our virtual file pointer.
-        long bytesToSkip = virtualFP;
-        int requestedPartIndex = 0;
-        for(Part p : parts) {
-            if(bytesToSkip < p.length) {
-                /* The first byte of virtualFP is within this part. */
-                break;
-            }
-
-            ++requestedPartIndex;
-            bytesToSkip -= p.length;
-        }
+        int requestedPartIndex = findPart(virtualFP);
 
         if(requestedPartIndex >= parts.size()) {
             throw new RuntimeIOException("Tried to write beyond end of " +
                     "stream.");
         }
 
+        long bytesToSkip = virtualFP - getPartStart(requestedPartIndex);
+
         // Loop as long as we still have data to fill, and we still have parts to process.
         while(bytesWritten < len && requestedPartIndex < parts.size()) {
             Part requestedPart = parts.get(requestedPartIndex++);
@@ -62,17 +56,25 @@ public class ConcatenatedStream extends BasicConcatenatedStream<RandomAccessStre
             bytesToSkip = 0;
 
             int bytesLeftToWrite = len - bytesWritten;
-            int bytesToWrite = (int) ((bytesLeftToWrite < requestedPart.length) ? bytesLeftToWrite : requestedPart.length);
+            int bytesToWrite = (int) Math.min(bytesLeftToWrite,
+                    requestedPart.length - bytesToSkipInPart);
 
             if(requestedPart.file == null) {
                 throw new RuntimeException("Tried to write to hole at " +
                         "offset: " + requestedPart.startOffset);
             }
 
-            requestedPart.file.seek(bytesToSkipInPart);
-            requestedPart.file.write(data, off + bytesWritten, bytesToWrite);
+            /* Positional reads may use the part stream concurrently, and
+             * they synchronize on it. */
+            synchronized(requestedPart.file) {
+                requestedPart.file.seek(requestedPart.startOffset +
+                        bytesToSkipInPart);
+                requestedPart.file.write(data, off + bytesWritten,
+                        bytesToWrite);
+            }
             
             bytesWritten += bytesToWrite;
+            virtualFP += bytesToWrite;
         }
 
         if(bytesWritten < len)
@@ -87,4 +89,8 @@ public class ConcatenatedStream extends BasicConcatenatedStream<RandomAccessStre
     public void write(int data) throws RuntimeIOException {
         BasicWritable.defaultWrite(this, data);
     }
+
+    public void write(ByteBuffer data) throws RuntimeIOException {
+        BasicWritable.defaultWrite(this, data);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,429 @@
+/*-
+ * Copyright (C) 2026 Erik Larsson
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package org.catacombae.io;
+
+import org.catacombae.util.Util;
+
+/**
+ * A cursor for parsing primitive values out of a stream, reading through an
+ * internal buffer which is reused for the lifetime of the reader. None of the
+ * read and get methods allocate, so records can be parsed in tight loops
+ * without producing garbage.<br>
+ * The reader has a position of its own, used by the <code>read...</code>
+ * methods. The <code>get...</code> methods take an absolute position instead
+ * and leave the reader's position unchanged.<br>
+ * If the source is a {@link SynchronizedReadable}, such as any
+ * {@link SynchronizedReadableRandomAccess} stream, the data is fetched with
+ * positional reads and the file pointer of the source is left untouched.
+ * Otherwise the reader seeks the source as it needs, and nobody else should
+ * use the source's file pointer meanwhile. The buffer is not refreshed if the
+ * data of the source changes; call {@link #invalidate()} in that case.
+ * Instances are not thread-safe.
+ *
+ * @author <a href="https://catacombae.org" target="_top">Erik Larsson</a>
+ */
+public class DataReader {
+    /** The default buffer size (8 KiB). */
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    /** The largest primitive value that is read, in bytes. */
+    private static final int MAX_VALUE_SIZE = 8;
+
+    private final ReadableRandomAccessStream source;
+    private final SynchronizedReadable syncSource;
+    private final byte[] buffer;
+
+    /** The stream position of the first byte in <code>buffer</code>. */
+    private long bufferStart = 0;
+    /** The number of valid bytes in <code>buffer</code>. */
+    private int bufferLength = 0;
+    private long position;
+
+    /**
+     * Creates a DataReader with the default buffer size, starting at the
+     * current file pointer of <code>source</code>.
+     *
+     * @param source the stream to read from.
+     */
+    public DataReader(ReadableRandomAccessStream source) {
+        this(source, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a DataReader starting at the current file pointer of
+     * <code>source</code>.
+     *
+     * @param source the stream to read from.
+     * @param bufferSize the size of the internal buffer.
+     */
+    public DataReader(ReadableRandomAccessStream source, int bufferSize) {
+        if(source == null)
+            throw new IllegalArgumentException("source may NOT be null");
+        if(bufferSize < MAX_VALUE_SIZE) {
+            throw new IllegalArgumentException("Invalid buffer size: " +
+                    bufferSize);
+        }
+
+        this.source = source;
+        this.syncSource = (source instanceof SynchronizedReadable) ?
+            (SynchronizedReadable) source : null;
+        this.buffer = new byte[bufferSize];
+        this.position = source.getFilePointer();
+    }
+
+    /**
+     * Returns the position of the next <code>read...</code> operation.
+     *
+     * @return the position of the next <code>read...</code> operation.
+     */
+    public long position() {
+        return position;
+    }
+
+    /**
+     * Sets the position of the next <code>read...</code> operation. The
+     * position may be beyond the end of the stream, but then nothing can be
+     * read.
+     *
+     * @param newPosition the new position.
+     */
+    public void position(long newPosition) {
+        if(newPosition < 0) {
+            throw new IllegalArgumentException("newPosition is negative: " +
+                    newPosition);
+        }
+
+        position = newPosition;
+    }
+
+    /**
+     * Advances the position by <code>n</code> bytes. Nothing is read.
+     *
+     * @param n the number of bytes to skip.
+     */
+    public void skip(long n) {
+        position(position + n);
+    }
+
+    /**
+     * Returns the number of bytes between the position and the end of the
+     * stream.
+     *
+     * @return the number of bytes between the position and the end of the
+     * stream, or 0 if the position is beyond the end.
+     */
+    public long remaining() {
+        return Math.max(0, source.length() - position);
+    }
+
+    /**
+     * Discards the buffered data, so that it is read again from the source.
+     */
+    public void invalidate() {
+        bufferLength = 0;
+    }
+
+    /**
+     * Makes sure that the <code>len</code> bytes at <code>pos</code> are in
+     * the buffer.
+     *
+     * @return the offset of <code>pos</code> in the buffer.
+     */
+    private int ensureBuffered(long pos, int len) {
+        if(pos < 0)
+            throw new IllegalArgumentException("pos is negative: " + pos);
+
+        final long offset = pos - bufferStart;
+        if(offset >= 0 && offset + len <= bufferLength)
+            return (int) offset;
+
+        /* Invalidate first, so that a failed fill leaves no stale data. */
+        bufferLength = 0;
+        final int res = fill(pos, buffer, 0, buffer.length, len);
+        bufferStart = pos;
+        bufferLength = res;
+        return 0;
+    }
+
+    /**
+     * Reads between <code>minLength</code> and <code>maxLength</code> bytes
+     * from <code>pos</code>.
+     *
+     * @return the number of bytes read.
+     */
+    private int fill(long pos, byte[] b, int off, int maxLength,
+            int minLength)
+    {
+        final long streamLength = source.length();
+        final int len = (int) Math.max(0, Math.min(maxLength,
+                streamLength - pos));
+        if(len < minLength) {
+            throw new RuntimeIOException("Unexpected end of stream at " +
+                    "position " + pos + " (need " + minLength + " bytes, " +
+                    "stream length " + streamLength + ").");
+        }
+        else if(len == 0)
+            return 0;
+
+        if(syncSource == null && source.getFilePointer() != pos)
+            source.seek(pos);
+
+        int bytesRead = 0;
+        while(bytesRead < len) {
+            final int res;
+            if(syncSource != null) {
+                res = syncSource.readFrom(pos + bytesRead, b, off + bytesRead,
+                        len - bytesRead);
+            }
+            else
+                res = source.read(b, off + bytesRead, len - bytesRead);
+
+            if(res <= 0)
+                break;
+            bytesRead += res;
+        }
+
+        if(bytesRead < minLength) {
+            throw new RuntimeIOException("Unexpected end of stream at " +
+                    "position " + (pos + bytesRead) + ".");
+        }
+
+        return bytesRead;
+    }
+
+    /**
+     * Reads <code>len</code> bytes from the position into <code>b</code> at
+     * offset <code>off</code>, and advances the position.
+     *
+     * @param b the array where the data should be stored.
+     * @param off the offset in <code>b</code> where the data should be stored.
+     * @param len the number of bytes to read.
+     * @throws org.catacombae.io.RuntimeIOException if the end of the stream
+     * was reached before <code>len</code> bytes could be read, or if an I/O
+     * error occurred.
+     */
+    public void readBytes(byte[] b, int off, int len) {
+        getBytes(position, b, off, len);
+        position += len;
+    }
+
+    /**
+     * Fills <code>b</code> with data from the position, and advances the
+     * position.
+     *
+     * @param b the array where the data should be stored.
+     * @throws org.catacombae.io.RuntimeIOException if the end of the stream
+     * was reached before the array could be filled, or if an I/O error
+     * occurred.
+     */
+    public void readBytes(byte[] b) {
+        readBytes(b, 0, b.length);
+    }
+
+    /**
+     * Reads an unsigned 8-bit value and advances the position.
+     *
+     * @return the value.
+     */
+    public int readUInt8() {
+        final int res = getUInt8(position);
+        position += 1;
+        return res;
+    }
+
+    /**
+     * Reads an unsigned big endian 16-bit value and advances the position.
+     *
+     * @return the value.
+     */
+    public int readUInt16BE() {
+        final int res = getUInt16BE(position);
+        position += 2;
+        return res;
+    }
+
+    /**
+     * Reads an unsigned little endian 16-bit value and advances the position.
+     *
+     * @return the value.
+     */
+    public int readUInt16LE() {
+        final int res = getUInt16LE(position);
+        position += 2;
+        return res;
+    }
+
+    /**
+     * Reads an unsigned big endian 32-bit value and advances the position.
+     *
+     * @return the value.
+     */
+    public long readUInt32BE() {
+        final long res = getUInt32BE(position);
+        position += 4;
+        return res;
+    }
+
+    /**
+     * Reads an unsigned little endian 32-bit value and advances the position.
+     *
+     * @return the value.
+     */
+    public long readUInt32LE() {
+        final long res = getUInt32LE(position);
+        position += 4;
+        return res;
+    }
+
+    /**
+     * Reads an unsigned big endian 64-bit value and advances the position.
+     * Java has no unsigned 64-bit type, so values of 2<sup>63</sup> and above
+     * are returned as negative numbers.
+     *
+     * @return the value with its 64 bits unchanged.
+     */
+    public long readUInt64BE() {
+        final long res = getUInt64BE(position);
+        position += 8;
+        return res;
+    }
+
+    /**
+     * Reads an unsigned little endian 64-bit value and advances the position.
+     * Java has no unsigned 64-bit type, so values of 2<sup>63</sup> and above
+     * are returned as negative numbers.
+     *
+     * @return the value with its 64 bits unchanged.
+     */
+    public long readUInt64LE() {
+        final long res = getUInt64LE(position);
+        position += 8;
+        return res;
+    }
+
+    /**
+     * Reads <code>len</code> bytes from stream position <code>pos</code> into
+     * <code>b</code> at offset <code>off</code>. The position of the reader
+     * is not changed.
+     *
+     * @param pos the stream position to read from.
+     * @param b the array where the data should be stored.
+     * @param off the offset in <code>b</code> where the data should be stored.
+     * @param len the number of bytes to read.
+     * @throws org.catacombae.io.RuntimeIOException if the end of the stream
+     * was reached before <code>len</code> bytes could be read, or if an I/O
+     * error occurred.
+     */
+    public void getBytes(long pos, byte[] b, int off, int len) {
+        if(off < 0 || len < 0 || off + len > b.length) {
+            throw new IllegalArgumentException("Invalid offset/length: " +
+                    off + "/" + len);
+        }
+
+        if(len > buffer.length) {
+            /* Large reads bypass the buffer. */
+            if(pos < 0)
+                throw new IllegalArgumentException("pos is negative: " + pos);
+            fill(pos, b, off, len, len);
+        }
+        else {
+            final int bufferOffset = ensureBuffered(pos, len);
+            System.arraycopy(buffer, bufferOffset, b, off, len);
+        }
+    }
+
+    /**
+     * Returns the unsigned 8-bit value at stream position
+     * <code>pos</code>.
+     *
+     * @param pos the stream position of the value.
+     * @return the value.
+     */
+    public int getUInt8(long pos) {
+        return buffer[ensureBuffered(pos, 1)] & 0xFF;
+    }
+
+    /**
+     * Returns the unsigned big endian 16-bit value at stream position
+     * <code>pos</code>.
+     *
+     * @param pos the stream position of the value.
+     * @return the value.
+     */
+    public int getUInt16BE(long pos) {
+        return Util.readShortBE(buffer, ensureBuffered(pos, 2)) & 0xFFFF;
+    }
+
+    /**
+     * Returns the unsigned little endian 16-bit value at stream position
+     * <code>pos</code>.
+     *
+     * @param pos the stream position of the value.
+     * @return the value.
+     */
+    public int getUInt16LE(long pos) {
+        return Util.readShortLE(buffer, ensureBuffered(pos, 2)) & 0xFFFF;
+    }
+
+    /**
+     * Returns the unsigned big endian 32-bit value at stream position
+     * <code>pos</code>.
+     *
+     * @param pos the stream position of the value.
+     * @return the value.
+     */
+    public long getUInt32BE(long pos) {
+        return Util.readIntBE(buffer, ensureBuffered(pos, 4)) & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Returns the unsigned little endian 32-bit value at stream position
+     * <code>pos</code>.
+     *
+     * @param pos the stream position of the value.
+     * @return the value.
+     */
+    public long getUInt32LE(long pos) {
+        return Util.readIntLE(buffer, ensureBuffered(pos, 4)) & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Returns the unsigned big endian 64-bit value at stream position
+     * <code>pos</code>. Values of 2<sup>63</sup> and above are returned as
+     * negative numbers.
+     *
+     * @param pos the stream position of the value.
+     * @return the value with its 64 bits unchanged.
+     */
+    public long getUInt64BE(long pos) {
+        return Util.readLongBE(buffer, ensureBuffered(pos, 8));
+    }
+
+    /**
+     * Returns the unsigned little endian 64-bit value at stream position
+     * <code>pos</code>. Values of 2<sup>63</sup> and above are returned as
+     * negative numbers.
+     *
+     * @param pos the stream position of the value.
+     * @return the value with its 64 bits unchanged.
+     */
+    public long getUInt64LE(long pos) {
+        return Util.readLongLE(buffer, ensureBuffered(pos, 8));
+    }
+}
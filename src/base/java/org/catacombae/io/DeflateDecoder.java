@@ -0,0 +1,513 @@
+/*-
+ * Copyright (C) 2026 Erik Larsson
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package org.catacombae.io;
+
+/**
+ * A pure Java decoder for raw deflate data (RFC 1951), reading from a
+ * ReadableRandomAccessStream.<br>
+ * Unlike java.util.zip.Inflater, this decoder can report the bit position of
+ * each deflate block boundary, and can start decoding at any such boundary
+ * given the 32 KiB of output that preceded it. This is what makes random
+ * access into deflate data possible, see {@link ReadableInflaterStream}.<br>
+ * The decoder seeks the input stream before every read, so the input stream
+ * may be shared with other users as long as accesses aren't concurrent.
+ *
+ * @author <a href="https://catacombae.org" target="_top">Erik Larsson</a>
+ */
+class DeflateDecoder {
+    /** Size of the history window of deflate. */
+    static final int WINDOW_SIZE = 32768;
+    private static final int WINDOW_MASK = WINDOW_SIZE - 1;
+
+    private static final int INPUT_BUFFER_SIZE = 64 * 1024;
+
+    private static final int STATE_HEADER = 0;
+    private static final int STATE_STORED = 1;
+    private static final int STATE_HUFFMAN = 2;
+    private static final int STATE_DONE = 3;
+
+    private static final int[] LENGTH_BASE = {
+        3, 4, 5, 6, 7, 8, 9, 10, 11, 13, 15, 17, 19, 23, 27, 31, 35, 43, 51,
+        59, 67, 83, 99, 115, 131, 163, 195, 227, 258
+    };
+    private static final int[] LENGTH_EXTRA = {
+        0, 0, 0, 0, 0, 0, 0, 0, 1, 1, 1, 1, 2, 2, 2, 2, 3, 3, 3, 3, 4, 4, 4, 4,
+        5, 5, 5, 5, 0
+    };
+    private static final int[] DISTANCE_BASE = {
+        1, 2, 3, 4, 5, 7, 9, 13, 17, 25, 33, 49, 65, 97, 129, 193, 257, 385,
+        513, 769, 1025, 1537, 2049, 3073, 4097, 6145, 8193, 12289, 16385, 24577
+    };
+    private static final int[] DISTANCE_EXTRA = {
+        0, 0, 0, 0, 1, 1, 2, 2, 3, 3, 4, 4, 5, 5, 6, 6, 7, 7, 8, 8, 9, 9, 10,
+        10, 11, 11, 12, 12, 13, 13
+    };
+    /** The order in which code length code lengths are stored. */
+    private static final int[] CODE_LENGTH_ORDER = {
+        16, 17, 18, 0, 8, 7, 9, 6, 10, 5, 11, 4, 12, 3, 13, 2, 14, 1, 15
+    };
+
+    private static final HuffmanTable FIXED_LITERAL_LENGTH_TABLE;
+    private static final HuffmanTable FIXED_DISTANCE_TABLE;
+
+    static {
+        final int[] lengths = new int[288];
+        for(int i = 0; i < 144; ++i)
+            lengths[i] = 8;
+        for(int i = 144; i < 256; ++i)
+            lengths[i] = 9;
+        for(int i = 256; i < 280; ++i)
+            lengths[i] = 7;
+        for(int i = 280; i < 288; ++i)
+            lengths[i] = 8;
+        FIXED_LITERAL_LENGTH_TABLE = new HuffmanTable(lengths, 0, 288);
+
+        final int[] distanceLengths = new int[30];
+        for(int i = 0; i < distanceLengths.length; ++i)
+            distanceLengths[i] = 5;
+        FIXED_DISTANCE_TABLE = new HuffmanTable(distanceLengths, 0, 30);
+    }
+
+    /**
+     * A Huffman decoding table indexed by the next <code>bits</code> input
+     * bits. Each entry holds the symbol shifted left by 4, ORed with the
+     * length of its code, or 0 for bit patterns that are not a valid code.
+     */
+    private static class HuffmanTable {
+        final int[] table;
+        final int bits;
+
+        HuffmanTable(int[] lengths, int off, int count) {
+            final int[] lengthCount = new int[16];
+            int maxLength = 0;
+            for(int i = 0; i < count; ++i) {
+                final int len = lengths[off + i];
+                ++lengthCount[len];
+                if(len > maxLength)
+                    maxLength = len;
+            }
+            lengthCount[0] = 0;
+
+            int left = 1;
+            for(int len = 1; len < 16; ++len) {
+                left = (left << 1) - lengthCount[len];
+                if(left < 0) {
+                    throw new RuntimeIOException("Invalid deflate data: " +
+                            "over-subscribed Huffman code.");
+                }
+            }
+
+            final int[] nextCode = new int[16];
+            int code = 0;
+            for(int len = 1; len < 16; ++len) {
+                code = (code + lengthCount[len - 1]) << 1;
+                nextCode[len] = code;
+            }
+
+            this.bits = Math.max(maxLength, 1);
+            this.table = new int[1 << bits];
+            for(int symbol = 0; symbol < count; ++symbol) {
+                final int len = lengths[off + symbol];
+                if(len == 0)
+                    continue;
+
+                /* Codes are stored most significant bit first, but the bits
+                 * are consumed least significant bit first. */
+                final int reversed =
+                        Integer.reverse(nextCode[len]++) >>> (32 - len);
+                final int entry = (symbol << 4) | len;
+                for(int i = reversed; i < table.length; i += 1 << len)
+                    table[i] = entry;
+            }
+        }
+    }
+
+    private final ReadableRandomAccessStream in;
+    private final long inLength;
+    private final byte[] inBuffer = new byte[INPUT_BUFFER_SIZE];
+    /** Input stream position of <code>inBuffer[0]</code>. */
+    private long inBufferPos;
+    private int inBufferLength = 0;
+    private int inBufferIndex = 0;
+    private long bitBuffer = 0;
+    private int bitCount = 0;
+
+    private final byte[] window = new byte[WINDOW_SIZE];
+    private int windowPos = 0;
+    private int windowFill = 0;
+
+    private int state = STATE_HEADER;
+    private boolean lastBlock = false;
+    private boolean boundaryReported = false;
+    private HuffmanTable literalLengthTable;
+    private HuffmanTable distanceTable;
+    private int storedRemaining;
+    private int copyLength = 0;
+    private int copyDistance;
+
+    /**
+     * Creates a decoder that starts reading at bit <code>bitPos</code> of
+     * <code>in</code>, which must be the start of a deflate block (or of
+     * something that the caller parses before the first block).
+     *
+     * @param in the stream containing the deflate data.
+     * @param bitPos the bit position in <code>in</code> to start at.
+     * @param dictionary the output preceding the start position, or
+     * <code>null</code> if there is none. Only the last 32 KiB are used.
+     */
+    DeflateDecoder(ReadableRandomAccessStream in, long bitPos,
+            byte[] dictionary) {
+        this.in = in;
+        this.inLength = in.length();
+        this.inBufferPos = bitPos >>> 3;
+
+        if(dictionary != null) {
+            final int len = Math.min(dictionary.length, WINDOW_SIZE);
+            System.arraycopy(dictionary, dictionary.length - len, window, 0,
+                    len);
+            windowPos = len & WINDOW_MASK;
+            windowFill = len;
+        }
+
+        getBits((int) (bitPos & 7));
+    }
+
+    private boolean fillByte() {
+        if(inBufferIndex == inBufferLength) {
+            inBufferPos += inBufferLength;
+            inBufferIndex = 0;
+            inBufferLength = 0;
+            if(inBufferPos >= inLength)
+                return false;
+
+            in.seek(inBufferPos);
+            final int res = in.read(inBuffer, 0,
+                    (int) Math.min(inBuffer.length, inLength - inBufferPos));
+            if(res <= 0)
+                return false;
+            inBufferLength = res;
+        }
+
+        bitBuffer |= (long) (inBuffer[inBufferIndex++] & 0xFF) << bitCount;
+        bitCount += 8;
+        return true;
+    }
+
+    private void needBits(int n) {
+        while(bitCount < n) {
+            if(!fillByte())
+                break;
+        }
+    }
+
+    private int getBits(int n) {
+        needBits(n);
+        if(bitCount < n)
+            throw new RuntimeIOException("Unexpected end of deflate data.");
+
+        final int res = (int) (bitBuffer & ((1L << n) - 1));
+        bitBuffer >>>= n;
+        bitCount -= n;
+        return res;
+    }
+
+    private int decodeSymbol(HuffmanTable t) {
+        needBits(t.bits);
+
+        final int entry = t.table[(int) bitBuffer & ((1 << t.bits) - 1)];
+        final int len = entry & 0xF;
+        if(len == 0) {
+            throw new RuntimeIOException("Invalid deflate data: invalid " +
+                    "Huffman code.");
+        }
+        else if(len > bitCount)
+            throw new RuntimeIOException("Unexpected end of deflate data.");
+
+        bitBuffer >>>= len;
+        bitCount -= len;
+        return entry >>> 4;
+    }
+
+    /** Discards the bits up to the next byte boundary of the input. */
+    void alignToByte() {
+        getBits(bitCount & 7);
+    }
+
+    /**
+     * Reads one byte from the input. The input must be at a byte boundary.
+     *
+     * @return the byte as an unsigned value, or -1 at the end of the input.
+     */
+    int readByte() {
+        needBits(8);
+        if(bitCount < 8)
+            return -1;
+        return getBits(8);
+    }
+
+    /**
+     * Returns the bit position in the input stream of the next bit that will
+     * be consumed.
+     */
+    long getBitPosition() {
+        return (inBufferPos + inBufferIndex) * 8 - bitCount;
+    }
+
+    /**
+     * Returns whether the decoder is positioned at the start of a deflate
+     * block, where decoding can be resumed with a new decoder given the bit
+     * position and the window.
+     */
+    boolean isAtBlockBoundary() {
+        return state == STATE_HEADER && !lastBlock;
+    }
+
+    /** Returns whether the final block has been decoded. */
+    boolean isFinished() {
+        return state == STATE_DONE;
+    }
+
+    /**
+     * Prepares the decoder for another deflate stream which follows the
+     * current, finished one (such as in a multi-member gzip file). The window
+     * is kept.
+     */
+    void startNextStream() {
+        state = STATE_HEADER;
+        lastBlock = false;
+        boundaryReported = false;
+    }
+
+    /**
+     * Returns a copy of the last (up to 32 KiB) bytes of output.
+     */
+    byte[] getWindow() {
+        final byte[] res = new byte[windowFill];
+        final int start = (windowPos - windowFill) & WINDOW_MASK;
+        final int firstLength = Math.min(windowFill, WINDOW_SIZE - start);
+        System.arraycopy(window, start, res, 0, firstLength);
+        System.arraycopy(window, 0, res, firstLength, windowFill - firstLength);
+        return res;
+    }
+
+    /**
+     * Decodes up to <code>len</code> bytes into <code>out</code>.
+     *
+     * @param out the array where the output should be stored.
+     * @param off the offset in <code>out</code> of the output.
+     * @param len the maximum number of bytes to decode.
+     * @param stopAtBlockBoundary if <code>true</code>, return early when a
+     * block boundary is reached, so that the caller can record it. Each
+     * boundary is only reported once.
+     * @return the number of bytes decoded. Less than <code>len</code> only if
+     * the final block has ended or a block boundary was reached.
+     */
+    int inflate(byte[] out, int off, int len, boolean stopAtBlockBoundary) {
+        final byte[] window = this.window;
+        int produced = 0;
+        while(produced < len) {
+            if(copyLength > 0) {
+                final int n = Math.min(copyLength, len - produced);
+                int src = (windowPos - copyDistance) & WINDOW_MASK;
+                int dst = windowPos;
+                for(int i = 0; i < n; ++i) {
+                    final byte b = window[src];
+                    window[dst] = b;
+                    out[off + produced + i] = b;
+                    src = (src + 1) & WINDOW_MASK;
+                    dst = (dst + 1) & WINDOW_MASK;
+                }
+                windowPos = dst;
+                windowFill = Math.min(windowFill + n, WINDOW_SIZE);
+
+                produced += n;
+                copyLength -= n;
+                continue;
+            }
+
+            if(state == STATE_HUFFMAN) {
+                int symbol = decodeSymbol(literalLengthTable);
+                if(symbol < 256) {
+                    final byte b = (byte) symbol;
+                    window[windowPos] = b;
+                    windowPos = (windowPos + 1) & WINDOW_MASK;
+                    if(windowFill < WINDOW_SIZE)
+                        ++windowFill;
+                    out[off + produced++] = b;
+                }
+                else if(symbol == 256) {
+                    state = STATE_HEADER;
+                }
+                else {
+                    symbol -= 257;
+                    if(symbol >= LENGTH_BASE.length) {
+                        throw new RuntimeIOException("Invalid deflate data: " +
+                                "invalid length symbol.");
+                    }
+                    final int length = LENGTH_BASE[symbol] +
+                            getBits(LENGTH_EXTRA[symbol]);
+
+                    final int distanceSymbol = decodeSymbol(distanceTable);
+                    if(distanceSymbol >= DISTANCE_BASE.length) {
+                        throw new RuntimeIOException("Invalid deflate data: " +
+                                "invalid distance symbol.");
+                    }
+                    final int distance = DISTANCE_BASE[distanceSymbol] +
+                            getBits(DISTANCE_EXTRA[distanceSymbol]);
+                    if(distance > windowFill) {
+                        throw new RuntimeIOException("Invalid deflate data: " +
+                                "distance too far back.");
+                    }
+
+                    copyLength = length;
+                    copyDistance = distance;
+                }
+            }
+            else if(state == STATE_STORED) {
+                if(storedRemaining == 0) {
+                    state = STATE_HEADER;
+                    continue;
+                }
+
+                final int n = Math.min(storedRemaining, len - produced);
+                for(int i = 0; i < n; ++i) {
+                    final byte b = (byte) getBits(8);
+                    window[windowPos] = b;
+                    windowPos = (windowPos + 1) & WINDOW_MASK;
+                    out[off + produced + i] = b;
+                }
+                windowFill = Math.min(windowFill + n, WINDOW_SIZE);
+
+                produced += n;
+                storedRemaining -= n;
+            }
+            else if(state == STATE_HEADER) {
+                if(lastBlock) {
+                    state = STATE_DONE;
+                    break;
+                }
+                else if(stopAtBlockBoundary && !boundaryReported) {
+                    boundaryReported = true;
+                    break;
+                }
+
+                readBlockHeader();
+            }
+            else
+                break; // STATE_DONE
+        }
+
+        return produced;
+    }
+
+    private void readBlockHeader() {
+        boundaryReported = false;
+        lastBlock = getBits(1) != 0;
+
+        final int type = getBits(2);
+        switch(type) {
+            case 0:
+                alignToByte();
+                final int length = getBits(16);
+                final int complement = getBits(16);
+                if((length ^ 0xFFFF) != complement) {
+                    throw new RuntimeIOException("Invalid deflate data: " +
+                            "stored block length mismatch.");
+                }
+                storedRemaining = length;
+                state = STATE_STORED;
+                break;
+            case 1:
+                literalLengthTable = FIXED_LITERAL_LENGTH_TABLE;
+                distanceTable = FIXED_DISTANCE_TABLE;
+                state = STATE_HUFFMAN;
+                break;
+            case 2:
+                readDynamicTables();
+                state = STATE_HUFFMAN;
+                break;
+            default:
+                throw new RuntimeIOException("Invalid deflate data: invalid " +
+                        "block type.");
+        }
+    }
+
+    private void readDynamicTables() {
+        final int literalLengthCount = getBits(5) + 257;
+        final int distanceCount = getBits(5) + 1;
+        final int codeLengthCount = getBits(4) + 4;
+        if(literalLengthCount > 286 || distanceCount > 30) {
+            throw new RuntimeIOException("Invalid deflate data: too many " +
+                    "length or distance symbols.");
+        }
+
+        final int[] codeLengthLengths = new int[19];
+        for(int i = 0; i < codeLengthCount; ++i)
+            codeLengthLengths[CODE_LENGTH_ORDER[i]] = getBits(3);
+        final HuffmanTable codeLengthTable =
+                new HuffmanTable(codeLengthLengths, 0, 19);
+
+        final int totalCount = literalLengthCount + distanceCount;
+        final int[] lengths = new int[totalCount];
+        int i = 0;
+        while(i < totalCount) {
+            final int symbol = decodeSymbol(codeLengthTable);
+            if(symbol < 16) {
+                lengths[i++] = symbol;
+                continue;
+            }
+
+            final int value;
+            final int repeat;
+            if(symbol == 16) {
+                if(i == 0) {
+                    throw new RuntimeIOException("Invalid deflate data: " +
+                            "repeat with no previous length.");
+                }
+                value = lengths[i - 1];
+                repeat = 3 + getBits(2);
+            }
+            else if(symbol == 17) {
+                value = 0;
+                repeat = 3 + getBits(3);
+            }
+            else {
+                value = 0;
+                repeat = 11 + getBits(7);
+            }
+
+            if(i + repeat > totalCount) {
+                throw new RuntimeIOException("Invalid deflate data: too " +
+                        "many code lengths.");
+            }
+            for(int j = 0; j < repeat; ++j)
+                lengths[i++] = value;
+        }
+
+        if(lengths[256] == 0) {
+            throw new RuntimeIOException("Invalid deflate data: missing " +
+                    "end-of-block code.");
+        }
+
+        literalLengthTable =
+                new HuffmanTable(lengths, 0, literalLengthCount);
+        distanceTable =
+                new HuffmanTable(lengths, literalLengthCount, distanceCount);
+    }
+}
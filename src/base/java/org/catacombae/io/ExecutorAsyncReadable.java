@@ -0,0 +1,132 @@
+/*-
+ * Copyright (C) 2026 Erik Larsson
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package org.catacombae.io;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * An {@link AsyncReadable} which performs the reads of a
+ * {@link SynchronizedReadable} on the threads of an Executor.<br>
+ * How many reads actually proceed in parallel depends on the source: a
+ * {@link ReadableFileChannelStream} services each read with a lock-free
+ * positional read, while a {@link SynchronizedReadableRandomAccessStream}
+ * serializes them. In both cases the calling thread is free to do other work
+ * while the reads are in flight.<br>
+ * The Executor is owned by the caller and is not shut down by this class.
+ *
+ * @author <a href="https://catacombae.org" target="_top">Erik Larsson</a>
+ */
+public class ExecutorAsyncReadable implements AsyncReadable {
+    private final SynchronizedReadable source;
+    private final Executor executor;
+
+    /**
+     * Creates an ExecutorAsyncReadable.
+     *
+     * @param source the stream to read from.
+     * @param executor the Executor that should perform the reads.
+     */
+    public ExecutorAsyncReadable(SynchronizedReadable source,
+            Executor executor)
+    {
+        if(source == null)
+            throw new IllegalArgumentException("source may NOT be null");
+        if(executor == null)
+            throw new IllegalArgumentException("executor may NOT be null");
+
+        this.source = source;
+        this.executor = executor;
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public Future<Integer> readFromAsync(final long pos, final byte[] b,
+            final int off, final int len)
+    {
+        return submit(new Callable<Integer>() {
+            public Integer call() {
+                return source.readFrom(pos, b, off, len);
+            }
+        }, null);
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public Future<Integer> readFromAsync(long pos, ByteBuffer dst) {
+        return readFromAsync(pos, dst, null);
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public Future<Integer> readFromAsync(final long pos, final ByteBuffer dst,
+            CompletionHandler handler)
+    {
+        return submit(new Callable<Integer>() {
+            public Integer call() {
+                return source.readFrom(pos, dst);
+            }
+        }, handler);
+    }
+
+    private Future<Integer> submit(Callable<Integer> read,
+            CompletionHandler handler)
+    {
+        final ReadTask task = new ReadTask(read, handler);
+        executor.execute(task);
+        return task;
+    }
+
+    private static class ReadTask extends FutureTask<Integer> {
+        private final CompletionHandler handler;
+
+        public ReadTask(Callable<Integer> read, CompletionHandler handler) {
+            super(read);
+            this.handler = handler;
+        }
+
+        @Override
+        protected void done() {
+            if(handler == null)
+                return;
+
+            final int result;
+            try {
+                result = get();
+            } catch(CancellationException ex) {
+                handler.failed(ex);
+                return;
+            } catch(ExecutionException ex) {
+                handler.failed(ex.getCause());
+                return;
+            } catch(InterruptedException ex) {
+                /* Can't happen, as the task is done. */
+                handler.failed(ex);
+                return;
+            }
+
+            handler.completed(result);
+        }
+    }
+}
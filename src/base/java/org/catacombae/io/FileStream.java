@@ -20,6 +20,8 @@ package org.catacombae.io;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 
 /**
@@ -55,6 +57,24 @@ public class FileStream extends ReadableFileStream implements TruncatableRandomA
 	} catch(IOException ex) { throw new RuntimeIOException(ex); }
     }
 
+    public void write(ByteBuffer src) {
+	try {
+	    final FileChannel channel = raf.getChannel();
+	    while(src.hasRemaining())
+		channel.write(src);
+	} catch(IOException ex) { throw new RuntimeIOException(ex); }
+    }
+
+    /**
+     * Forces any updates to this file, including its metadata, to be written
+     * to the storage device.
+     */
+    public void force() throws RuntimeIOException {
+	try {
+	    raf.getChannel().force(true);
+	} catch(IOException ex) { throw new RuntimeIOException(ex); }
+    }
+
     public void setLength(long newLength) throws RuntimeIOException {
 	try {
 	    raf.setLength(newLength);
@@ -0,0 +1,287 @@
+/*-
+ * Copyright (C) 2026 Erik Larsson
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package org.catacombae.io;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import org.catacombae.io.SparseStream.Extent;
+import org.catacombae.util.Log;
+
+/**
+ * Map of the data and hole extents of a stream which doesn't know its own
+ * holes, built by scanning the stream for blocks that contain only zeroes.<br>
+ * The scan reads the whole stream once. Its result is cached per stream, so
+ * that later users of the same stream object get the extents without any I/O.
+ * If the stream is modified after the scan, {@link #invalidate(Object)} must
+ * be called to discard the stale map.<br>
+ * Use {@link #getExtents(ReadableRandomAccessStream)} to get the extents of any
+ * stream, which uses the stream's own knowledge if it is a
+ * {@link SparseStream}, and a cached scan otherwise.
+ *
+ * @author <a href="https://catacombae.org" target="_top">Erik Larsson</a>
+ */
+public class HoleMap {
+    private static final Log log = Log.getInstance(HoleMap.class);
+
+    /** The default size of the blocks that are checked for zeroes (4 KiB). */
+    public static final int DEFAULT_BLOCK_SIZE = 4096;
+
+    /** Size of each read done while scanning (1 MiB). */
+    private static final int SCAN_READ_SIZE = 1024 * 1024;
+
+    /** Scan results, weakly keyed by the scanned stream. */
+    private static final Map<Object, HoleMap> cache =
+            new WeakHashMap<Object, HoleMap>();
+
+    private final long length;
+    private final int blockSize;
+    private final List<Extent> extents;
+
+    private HoleMap(long length, int blockSize, List<Extent> extents) {
+        this.length = length;
+        this.blockSize = blockSize;
+        this.extents = Collections.unmodifiableList(extents);
+    }
+
+    /**
+     * Returns the extents of <code>stream</code>. If the stream (or the
+     * source of a SynchronizedReadableRandomAccessStream) is a
+     * {@link SparseStream}, its own extents are returned. Otherwise the
+     * extents from a cached or new zero-block scan are returned.
+     *
+     * @param stream the stream to get the extents of.
+     * @return an iterator over the extents of the stream, in offset order.
+     * @throws org.catacombae.io.RuntimeIOException if an I/O error occurred.
+     */
+    public static Iterator<Extent> getExtents(ReadableRandomAccessStream stream)
+            throws RuntimeIOException {
+        if(stream instanceof SparseStream) {
+            return ((SparseStream) stream).getExtents();
+        }
+        else if(stream instanceof SynchronizedReadableRandomAccessStream) {
+            final ReadableRandomAccessStream source =
+                    ((SynchronizedReadableRandomAccessStream) stream).
+                    getSourceStream();
+            if(source instanceof SparseStream)
+                return ((SparseStream) source).getExtents();
+        }
+
+        return getInstance(stream).iterator();
+    }
+
+    /**
+     * Returns the cached HoleMap of <code>stream</code>, scanning the stream
+     * with the default block size if no map is cached or if the length of the
+     * stream has changed since it was scanned.
+     *
+     * @param stream the stream to get the map of.
+     * @return the HoleMap of <code>stream</code>.
+     * @throws org.catacombae.io.RuntimeIOException if an I/O error occurred.
+     */
+    public static HoleMap getInstance(ReadableRandomAccessStream stream)
+            throws RuntimeIOException {
+        return getInstance(stream, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Returns the cached HoleMap of <code>stream</code>, scanning the stream
+     * if no map with the same block size is cached or if the length of the
+     * stream has changed since it was scanned.
+     *
+     * @param stream the stream to get the map of.
+     * @param blockSize the granularity of the scan. Only aligned blocks of
+     * this size which contain nothing but zeroes are reported as holes.
+     * @return the HoleMap of <code>stream</code>.
+     * @throws org.catacombae.io.RuntimeIOException if an I/O error occurred.
+     */
+    public static HoleMap getInstance(ReadableRandomAccessStream stream,
+            int blockSize) throws RuntimeIOException {
+        if(blockSize <= 0 || blockSize % 8 != 0) {
+            throw new IllegalArgumentException("Invalid block size: " +
+                    blockSize);
+        }
+
+        synchronized(stream) {
+            final long length = stream.length();
+            HoleMap map;
+            synchronized(cache) {
+                map = cache.get(stream);
+            }
+
+            if(map == null || map.length != length ||
+                    map.blockSize != blockSize)
+            {
+                map = scan(stream, length, blockSize);
+                synchronized(cache) {
+                    cache.put(stream, map);
+                }
+            }
+
+            return map;
+        }
+    }
+
+    /**
+     * Discards the cached map of <code>stream</code>, if any. This must be
+     * called after a scanned stream has been modified.
+     *
+     * @param stream the stream whose map should be discarded.
+     */
+    public static void invalidate(Object stream) {
+        synchronized(cache) {
+            cache.remove(stream);
+        }
+    }
+
+    /**
+     * Scans <code>stream</code> for zero blocks. Called with the lock of the
+     * stream held.
+     */
+    private static HoleMap scan(ReadableRandomAccessStream stream,
+            long length, int blockSize) {
+        if(log.debug) {
+            log.debug("Scanning " + stream + " (" + length + " bytes) for " +
+                    "holes...");
+        }
+
+        final List<Extent> extents = new ArrayList<Extent>();
+        final byte[] buffer =
+                new byte[(int) Math.min(SCAN_READ_SIZE / blockSize * blockSize,
+                ((length + blockSize - 1) / blockSize) * blockSize)];
+        final ByteBuffer bufferView = ByteBuffer.wrap(buffer);
+
+        final long oldFP = stream.getFilePointer();
+        try {
+            long extentStart = 0;
+            boolean extentIsHole = false;
+            long pos = 0;
+            while(pos < length) {
+                final int curBytesToRead =
+                        (int) Math.min(buffer.length, length - pos);
+                readFully(stream, pos, buffer, curBytesToRead);
+
+                for(int blockOffset = 0; blockOffset < curBytesToRead;
+                        blockOffset += blockSize)
+                {
+                    final int blockLength =
+                            Math.min(blockSize, curBytesToRead - blockOffset);
+                    final boolean isHole =
+                            isZero(bufferView, blockOffset, blockLength);
+                    final long blockStart = pos + blockOffset;
+
+                    if(blockStart == 0)
+                        extentIsHole = isHole;
+                    else if(isHole != extentIsHole) {
+                        extents.add(new Extent(extentStart,
+                                blockStart - extentStart, extentIsHole));
+                        extentStart = blockStart;
+                        extentIsHole = isHole;
+                    }
+                }
+
+                pos += curBytesToRead;
+            }
+
+            if(length > 0) {
+                extents.add(new Extent(extentStart, length - extentStart,
+                        extentIsHole));
+            }
+        } finally {
+            if(stream.getFilePointer() != oldFP)
+                stream.seek(oldFP);
+        }
+
+        return new HoleMap(length, blockSize, extents);
+    }
+
+    private static void readFully(ReadableRandomAccessStream stream, long pos,
+            byte[] buffer, int len) {
+        if(stream instanceof SynchronizedReadable) {
+            ((SynchronizedReadable) stream).readFullyFrom(pos, buffer, 0, len);
+        }
+        else {
+            stream.seek(pos);
+            stream.readFully(buffer, 0, len);
+        }
+    }
+
+    /** Checks whether a region of <code>buffer</code> contains only zeroes. */
+    private static boolean isZero(ByteBuffer buffer, int off, int len) {
+        final int longEnd = off + (len & ~7);
+        int i = off;
+        for(; i < longEnd; i += 8) {
+            if(buffer.getLong(i) != 0)
+                return false;
+        }
+
+        for(; i < off + len; ++i) {
+            if(buffer.get(i) != 0)
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the length of the stream at the time of the scan.
+     *
+     * @return the length of the stream at the time of the scan.
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * Returns the block size that the scan was done with.
+     *
+     * @return the block size that the scan was done with.
+     */
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Returns the number of bytes in data extents.
+     *
+     * @return the number of bytes in data extents.
+     */
+    public long getDataLength() {
+        long result = 0;
+        for(Extent e : extents) {
+            if(!e.isHole())
+                result += e.getLength();
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the extents that were found by the scan, in offset order.
+     *
+     * @return an iterator over the extents of the stream.
+     */
+    public Iterator<Extent> iterator() {
+        return extents.iterator();
+    }
+}
@@ -0,0 +1,653 @@
+/*-
+ * Copyright (C) 2026 Erik Larsson
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package org.catacombae.io;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.catacombae.util.Log;
+
+/**
+ * I/O metrics of a stream: operation counts, transferred bytes, errors and
+ * latency histograms for reads, positional reads and writes, and a histogram
+ * of seek distances.<br>
+ * Recording is lock-free and allocation-free, so the metrics can be updated
+ * from any number of threads on the I/O path. They are read either through a
+ * {@link Snapshot}, or over JMX after {@link #register()}. Snapshots are not
+ * atomic with respect to concurrent updates, so counters that are read
+ * together may be off by the operations in flight.
+ *
+ * @see MeteredReadableRandomAccessStream
+ * @see MeteredRandomAccessStream
+ * @author <a href="https://catacombae.org" target="_top">Erik Larsson</a>
+ */
+public class IOMetrics implements IOMetricsMBean {
+    private static final Log log = Log.getInstance(IOMetrics.class);
+
+    /** The JMX domain that metrics are registered in. */
+    public static final String JMX_DOMAIN = "org.catacombae.io";
+
+    /** The metered operations. */
+    public static enum Operation {
+        /** Reads at the file pointer. */
+        READ,
+        /** Positional reads, see {@link SynchronizedReadable}. */
+        READ_FROM,
+        /** Writes at the file pointer. */
+        WRITE;
+    }
+
+    /**
+     * A lock-free histogram of non-negative values with power of two bucket
+     * boundaries. Bucket 0 holds the value 0 and bucket <code>i</code> (for
+     * <code>i</code> &gt; 0) the values from
+     * 2<sup><code>i</code>-1</sup> up to 2<sup><code>i</code></sup>-1.
+     */
+    public static class Histogram {
+        /** The number of buckets. */
+        public static final int BUCKET_COUNT = 64;
+
+        private final AtomicLongArray buckets =
+                new AtomicLongArray(BUCKET_COUNT);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        /**
+         * Records one value. Negative values are recorded as 0.
+         *
+         * @param value the value to record.
+         */
+        public void record(long value) {
+            if(value < 0)
+                value = 0;
+
+            buckets.incrementAndGet(getBucketIndex(value));
+            count.incrementAndGet();
+            sum.addAndGet(value);
+
+            long curMax = max.get();
+            while(value > curMax && !max.compareAndSet(curMax, value))
+                curMax = max.get();
+        }
+
+        /**
+         * Returns the index of the bucket holding <code>value</code>.
+         *
+         * @param value a non-negative value.
+         * @return the index of the bucket holding <code>value</code>.
+         */
+        public static int getBucketIndex(long value) {
+            return Math.min(BUCKET_COUNT - 1,
+                    64 - Long.numberOfLeadingZeros(value));
+        }
+
+        /**
+         * Returns the largest value held by bucket <code>index</code>.
+         *
+         * @param index the bucket index.
+         * @return the largest value held by bucket <code>index</code>.
+         */
+        public static long getBucketUpperBound(int index) {
+            if(index < 0 || index >= BUCKET_COUNT)
+                throw new IllegalArgumentException("Invalid index: " + index);
+
+            return (index == BUCKET_COUNT - 1) ? Long.MAX_VALUE :
+                ((1L << index) - 1);
+        }
+
+        /**
+         * Returns a copy of the current state of this histogram.
+         *
+         * @return a copy of the current state of this histogram.
+         */
+        public HistogramSnapshot getSnapshot() {
+            final long[] bucketCounts = new long[BUCKET_COUNT];
+            for(int i = 0; i < BUCKET_COUNT; ++i)
+                bucketCounts[i] = buckets.get(i);
+
+            return new HistogramSnapshot(bucketCounts, count.get(), sum.get(),
+                    max.get());
+        }
+
+        /**
+         * Resets the histogram to zero.
+         */
+        public void reset() {
+            for(int i = 0; i < BUCKET_COUNT; ++i)
+                buckets.set(i, 0);
+            count.set(0);
+            sum.set(0);
+            max.set(0);
+        }
+    }
+
+    /**
+     * An immutable copy of the state of a {@link Histogram}.
+     */
+    public static class HistogramSnapshot {
+        private final long[] bucketCounts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        private HistogramSnapshot(long[] bucketCounts, long count, long sum,
+                long max)
+        {
+            this.bucketCounts = bucketCounts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        /**
+         * Returns the number of recorded values.
+         *
+         * @return the number of recorded values.
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the sum of the recorded values.
+         *
+         * @return the sum of the recorded values.
+         */
+        public long getSum() {
+            return sum;
+        }
+
+        /**
+         * Returns the largest recorded value, or 0 if there are none.
+         *
+         * @return the largest recorded value.
+         */
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * Returns the mean of the recorded values, or 0 if there are none.
+         *
+         * @return the mean of the recorded values.
+         */
+        public double getMean() {
+            return (count == 0) ? 0 : (double) sum / count;
+        }
+
+        /**
+         * Returns the number of values in bucket <code>index</code>.
+         *
+         * @param index the bucket index. See {@link Histogram}.
+         * @return the number of values in bucket <code>index</code>.
+         */
+        public long getBucketCount(int index) {
+            return bucketCounts[index];
+        }
+
+        /**
+         * Estimates a percentile of the recorded values, as the upper bound of
+         * the bucket that it falls in (but at most the largest value).
+         *
+         * @param percentile the percentile, from 0 to 100.
+         * @return the estimated percentile, or 0 if there are no values.
+         */
+        public long getPercentile(double percentile) {
+            if(percentile < 0 || percentile > 100) {
+                throw new IllegalArgumentException("Invalid percentile: " +
+                        percentile);
+            }
+
+            long total = 0;
+            for(long c : bucketCounts)
+                total += c;
+            if(total == 0)
+                return 0;
+
+            final long rank = Math.max(1,
+                    (long) Math.ceil(total * (percentile / 100.0)));
+            long seen = 0;
+            for(int i = 0; i < bucketCounts.length; ++i) {
+                seen += bucketCounts[i];
+                if(seen >= rank)
+                    return Math.min(max, Histogram.getBucketUpperBound(i));
+            }
+
+            return max;
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + count + " mean=" + getMean() + " p50=" +
+                    getPercentile(50) + " p99=" + getPercentile(99) +
+                    " max=" + max;
+        }
+    }
+
+    /**
+     * An immutable copy of the metrics of a stream.
+     */
+    public static class Snapshot {
+        private final String name;
+        private final HistogramSnapshot[] latencies;
+        private final long[] bytes;
+        private final long[] errors;
+        private final HistogramSnapshot seekDistances;
+
+        private Snapshot(String name, HistogramSnapshot[] latencies,
+                long[] bytes, long[] errors, HistogramSnapshot seekDistances)
+        {
+            this.name = name;
+            this.latencies = latencies;
+            this.bytes = bytes;
+            this.errors = errors;
+            this.seekDistances = seekDistances;
+        }
+
+        /**
+         * Returns the name of the metered stream.
+         *
+         * @return the name of the metered stream, or <code>null</code>.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the number of operations of type <code>op</code>, including
+         * the failed ones.
+         *
+         * @param op the operation type.
+         * @return the number of operations of type <code>op</code>.
+         */
+        public long getCount(Operation op) {
+            return latencies[op.ordinal()].getCount();
+        }
+
+        /**
+         * Returns the number of bytes transferred by operations of type
+         * <code>op</code>.
+         *
+         * @param op the operation type.
+         * @return the number of bytes transferred.
+         */
+        public long getBytes(Operation op) {
+            return bytes[op.ordinal()];
+        }
+
+        /**
+         * Returns the number of operations of type <code>op</code> which
+         * threw an exception.
+         *
+         * @param op the operation type.
+         * @return the number of failed operations.
+         */
+        public long getErrors(Operation op) {
+            return errors[op.ordinal()];
+        }
+
+        /**
+         * Returns the latency histogram, in nanoseconds, of operations of type
+         * <code>op</code>.
+         *
+         * @param op the operation type.
+         * @return the latency histogram of operations of type <code>op</code>.
+         */
+        public HistogramSnapshot getLatency(Operation op) {
+            return latencies[op.ordinal()];
+        }
+
+        /**
+         * Returns the histogram of seek distances in bytes. The distance of a
+         * seek is measured from the file pointer before the seek.
+         *
+         * @return the histogram of seek distances.
+         */
+        public HistogramSnapshot getSeekDistances() {
+            return seekDistances;
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder sb = new StringBuilder();
+            sb.append(name != null ? name : "(unnamed)").append(":");
+            for(Operation op : Operation.values()) {
+                sb.append("\n  ").append(op).append(": bytes=").
+                        append(getBytes(op)).append(" errors=").
+                        append(getErrors(op)).append(" latency[ns] ").
+                        append(getLatency(op));
+            }
+            sb.append("\n  SEEK: distance[bytes] ").append(seekDistances);
+            return sb.toString();
+        }
+    }
+
+    private final String name;
+    private final Histogram[] latencies =
+            new Histogram[Operation.values().length];
+    private final AtomicLong[] bytes =
+            new AtomicLong[Operation.values().length];
+    private final AtomicLong[] errors =
+            new AtomicLong[Operation.values().length];
+    private final Histogram seekDistances = new Histogram();
+    private ObjectName registeredName = null;
+
+    /**
+     * Creates a new, unregistered, set of metrics.
+     *
+     * @param name the name of the metered stream, which is also its JMX name.
+     * May be <code>null</code> if the metrics won't be registered.
+     */
+    public IOMetrics(String name) {
+        this.name = name;
+
+        for(int i = 0; i < latencies.length; ++i) {
+            latencies[i] = new Histogram();
+            bytes[i] = new AtomicLong();
+            errors[i] = new AtomicLong();
+        }
+    }
+
+    /**
+     * Records a completed operation.
+     *
+     * @param op the operation type.
+     * @param startNanos the value of <code>System.nanoTime()</code> when the
+     * operation started.
+     * @param byteCount the number of bytes transferred (ignored if not
+     * positive).
+     */
+    public void recordOperation(Operation op, long startNanos, long byteCount)
+    {
+        final int i = op.ordinal();
+        latencies[i].record(System.nanoTime() - startNanos);
+        if(byteCount > 0)
+            bytes[i].addAndGet(byteCount);
+    }
+
+    /**
+     * Records an operation that threw an exception.
+     *
+     * @param op the operation type.
+     * @param startNanos the value of <code>System.nanoTime()</code> when the
+     * operation started.
+     */
+    public void recordError(Operation op, long startNanos) {
+        final int i = op.ordinal();
+        latencies[i].record(System.nanoTime() - startNanos);
+        errors[i].incrementAndGet();
+    }
+
+    /**
+     * Records a seek.
+     *
+     * @param distance the distance in bytes between the file pointer before
+     * the seek and the seek target.
+     */
+    public void recordSeek(long distance) {
+        seekDistances.record(distance < 0 ? -distance : distance);
+    }
+
+    /**
+     * Returns a copy of the current metrics.
+     *
+     * @return a copy of the current metrics.
+     */
+    public Snapshot getSnapshot() {
+        final HistogramSnapshot[] latencySnapshots =
+                new HistogramSnapshot[latencies.length];
+        final long[] byteCounts = new long[latencies.length];
+        final long[] errorCounts = new long[latencies.length];
+        for(int i = 0; i < latencies.length; ++i) {
+            latencySnapshots[i] = latencies[i].getSnapshot();
+            byteCounts[i] = bytes[i].get();
+            errorCounts[i] = errors[i].get();
+        }
+
+        return new Snapshot(name, latencySnapshots, byteCounts, errorCounts,
+                seekDistances.getSnapshot());
+    }
+
+    /**
+     * Registers these metrics as an MBean in the platform MBean server, under
+     * the name <code>org.catacombae.io:type=IOMetrics,name=</code><i>name</i>.
+     * Metrics are an aid, not a requirement, so a failure to register (for
+     * instance because the name is already taken) is only reported through
+     * the return value and the debug log.
+     *
+     * @return whether the metrics were registered.
+     */
+    public synchronized boolean register() {
+        if(name == null)
+            throw new IllegalStateException("Unnamed metrics can't be " +
+                    "registered.");
+        else if(registeredName != null)
+            return true;
+
+        try {
+            final ObjectName objectName = new ObjectName(JMX_DOMAIN +
+                    ":type=IOMetrics,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this,
+                    objectName);
+            registeredName = objectName;
+            return true;
+        } catch(JMException ex) {
+            if(log.debug) {
+                log.debug("Failed to register I/O metrics for \"" + name +
+                        "\": " + ex);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Removes these metrics from the platform MBean server, if registered.
+     * Like in {@link #register()}, a failure is only reported through the
+     * return value and the debug log.
+     *
+     * @return whether the metrics are no longer registered.
+     */
+    public synchronized boolean unregister() {
+        if(registeredName == null)
+            return true;
+
+        boolean success = true;
+        try {
+            final MBeanServer server =
+                    ManagementFactory.getPlatformMBeanServer();
+            if(server.isRegistered(registeredName))
+                server.unregisterMBean(registeredName);
+        } catch(JMException ex) {
+            if(log.debug) {
+                log.debug("Failed to unregister I/O metrics for \"" + name +
+                        "\": " + ex);
+            }
+            success = false;
+        }
+
+        registeredName = null;
+        return success;
+    }
+
+    private long getCount(Operation op) {
+        return latencies[op.ordinal()].count.get();
+    }
+
+    private double getMeanLatency(Operation op) {
+        final Histogram h = latencies[op.ordinal()];
+        final long count = h.count.get();
+        return (count == 0) ? 0 : (double) h.sum.get() / count;
+    }
+
+    private long getMaxLatency(Operation op) {
+        return latencies[op.ordinal()].max.get();
+    }
+
+    private long get99thPercentileLatency(Operation op) {
+        return latencies[op.ordinal()].getSnapshot().getPercentile(99);
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public String getName() {
+        return name;
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public long getReadCount() {
+        return getCount(Operation.READ);
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public long getReadBytes() {
+        return bytes[Operation.READ.ordinal()].get();
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public long getReadErrors() {
+        return errors[Operation.READ.ordinal()].get();
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public double getReadMeanLatencyNanos() {
+        return getMeanLatency(Operation.READ);
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public long getReadMaxLatencyNanos() {
+        return getMaxLatency(Operation.READ);
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public long getRead99thPercentileLatencyNanos() {
+        return get99thPercentileLatency(Operation.READ);
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public long getReadFromCount() {
+        return getCount(Operation.READ_FROM);
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public long getReadFromBytes() {
+        return bytes[Operation.READ_FROM.ordinal()].get();
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public long getReadFromErrors() {
+        return errors[Operation.READ_FROM.ordinal()].get();
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public double getReadFromMeanLatencyNanos() {
+        return getMeanLatency(Operation.READ_FROM);
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public long getReadFromMaxLatencyNanos() {
+        return getMaxLatency(Operation.READ_FROM);
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public long getReadFrom99thPercentileLatencyNanos() {
+        return get99thPercentileLatency(Operation.READ_FROM);
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public long getWriteCount() {
+        return getCount(Operation.WRITE);
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public long getWriteBytes() {
+        return bytes[Operation.WRITE.ordinal()].get();
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public long getWriteErrors() {
+        return errors[Operation.WRITE.ordinal()].get();
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public double getWriteMeanLatencyNanos() {
+        return getMeanLatency(Operation.WRITE);
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public long getWriteMaxLatencyNanos() {
+        return getMaxLatency(Operation.WRITE);
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public long getWrite99thPercentileLatencyNanos() {
+        return get99thPercentileLatency(Operation.WRITE);
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public long getSeekCount() {
+        return seekDistances.count.get();
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public long getSeekTotalDistance() {
+        return seekDistances.sum.get();
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public double getSeekMeanDistance() {
+        final long count = seekDistances.count.get();
+        return (count == 0) ? 0 : (double) seekDistances.sum.get() / count;
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public void reset() {
+        for(int i = 0; i < latencies.length; ++i) {
+            latencies[i].reset();
+            bytes[i].set(0);
+            errors[i].set(0);
+        }
+        seekDistances.reset();
+    }
+}
@@ -0,0 +1,60 @@
+/*-
+ * Copyright (C) 2026 Erik Larsson
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package org.catacombae.io;
+
+/**
+ * The JMX management interface of {@link IOMetrics}. Latencies are in
+ * nanoseconds and seek distances in bytes. Percentiles are estimated with
+ * power of two resolution.
+ *
+ * @author <a href="https://catacombae.org" target="_top">Erik Larsson</a>
+ */
+public interface IOMetricsMBean {
+    public String getName();
+
+    public long getReadCount();
+    public long getReadBytes();
+    public long getReadErrors();
+    public double getReadMeanLatencyNanos();
+    public long getReadMaxLatencyNanos();
+    public long getRead99thPercentileLatencyNanos();
+
+    public long getReadFromCount();
+    public long getReadFromBytes();
+    public long getReadFromErrors();
+    public double getReadFromMeanLatencyNanos();
+    public long getReadFromMaxLatencyNanos();
+    public long getReadFrom99thPercentileLatencyNanos();
+
+    public long getWriteCount();
+    public long getWriteBytes();
+    public long getWriteErrors();
+    public double getWriteMeanLatencyNanos();
+    public long getWriteMaxLatencyNanos();
+    public long getWrite99thPercentileLatencyNanos();
+
+    public long getSeekCount();
+    public long getSeekTotalDistance();
+    public double getSeekMeanDistance();
+
+    /**
+     * Resets all counters and histograms to zero.
+     */
+    public void reset();
+}
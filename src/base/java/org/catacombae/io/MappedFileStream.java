@@ -0,0 +1,185 @@
+/*-
+ * Copyright (C) 2026 Erik Larsson
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package org.catacombae.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.util.BitSet;
+
+/**
+ * This class maps a file (opened in read/write mode) into memory and maps its
+ * operations to the operations of RandomAccessStream.<br>
+ * Writes go directly to the mapped pages. The segments that have been
+ * written to are remembered, and {@link #flush()} forces only those segments
+ * to disk. Writing beyond the end of the stream extends it. To avoid
+ * resizing and remapping the file on every appending write, the underlying
+ * file is grown a whole segment at a time and trimmed to the length of the
+ * stream on {@link #setLength(long)} and {@link #close()}.
+ *
+ * @author <a href="https://catacombae.org" target="_top">Erik Larsson</a>
+ */
+public class MappedFileStream extends ReadableMappedFileStream
+        implements TruncatableRandomAccessStream
+{
+    private final BitSet dirtySegments = new BitSet();
+
+    public MappedFileStream(String filename) {
+        this(new File(filename));
+    }
+
+    public MappedFileStream(File file) {
+        this(file, DEFAULT_SEGMENT_SIZE);
+    }
+
+    public MappedFileStream(File file, int segmentSize) {
+        super(file, "rw", segmentSize);
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public void write(byte[] b) {
+        BasicWritable.defaultWrite(this, b);
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public void write(int b) {
+        BasicWritable.defaultWrite(this, b);
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public void write(byte[] b, int off, int len) {
+        ensureLength(filePointer + len);
+
+        int bytesWritten = 0;
+        while(bytesWritten < len) {
+            final int segmentIndex = (int) (filePointer / segmentSize);
+            final int segmentOffset = (int) (filePointer % segmentSize);
+            final MappedByteBuffer segment = getSegment(segmentIndex);
+            final int curBytesToWrite = Math.min(len - bytesWritten,
+                    segment.capacity() - segmentOffset);
+
+            segment.position(segmentOffset);
+            segment.put(b, off + bytesWritten, curBytesToWrite);
+            dirtySegments.set(segmentIndex);
+
+            bytesWritten += curBytesToWrite;
+            filePointer += curBytesToWrite;
+        }
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public void write(ByteBuffer src) {
+        ensureLength(filePointer + src.remaining());
+
+        final int oldLimit = src.limit();
+        try {
+            while(src.hasRemaining()) {
+                final int segmentIndex = (int) (filePointer / segmentSize);
+                final int segmentOffset = (int) (filePointer % segmentSize);
+                final MappedByteBuffer segment = getSegment(segmentIndex);
+                final int curBytesToWrite = Math.min(src.remaining(),
+                        segment.capacity() - segmentOffset);
+
+                segment.position(segmentOffset);
+                src.limit(src.position() + curBytesToWrite);
+                segment.put(src);
+                src.limit(oldLimit);
+                dirtySegments.set(segmentIndex);
+
+                filePointer += curBytesToWrite;
+            }
+        } finally {
+            src.limit(oldLimit);
+        }
+    }
+
+    private void ensureLength(long endPos) {
+        if(endPos <= length)
+            return;
+
+        if(endPos > fileLength) {
+            /* Grow the file to the next segment boundary. */
+            setFileLength((endPos + segmentSize - 1) / segmentSize *
+                    segmentSize);
+        }
+
+        length = endPos;
+    }
+
+    private void setFileLength(long newFileLength) {
+        try {
+            raf.setLength(newFileLength);
+        } catch(IOException ex) {
+            throw new RuntimeIOException(ex);
+        }
+
+        setMappedLength(newFileLength);
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public void setLength(long newLength) throws RuntimeIOException {
+        if(newLength < 0) {
+            throw new IllegalArgumentException("Negative length: " +
+                    newLength);
+        }
+
+        setFileLength(newLength);
+        length = newLength;
+
+        if(dirtySegments.length() > segments.length)
+            dirtySegments.clear(segments.length, dirtySegments.length());
+    }
+
+    /**
+     * Forces all segments that have been modified since the last flush to be
+     * written to the storage device.
+     *
+     * @throws org.catacombae.io.RuntimeIOException if an I/O error occurred.
+     */
+    public void flush() throws RuntimeIOException {
+        for(int i = dirtySegments.nextSetBit(0); i >= 0;
+                i = dirtySegments.nextSetBit(i + 1))
+        {
+            final MappedByteBuffer segment = segments[i];
+            if(segment != null) {
+                segment.force();
+            }
+        }
+
+        dirtySegments.clear();
+    }
+
+    /**
+     * Flushes all modified segments (see {@link #flush()}), trims the
+     * underlying file to the length of the stream and closes the stream.
+     */
+    @Override
+    public void close() {
+        flush();
+        if(fileLength != length)
+            setFileLength(length);
+        super.close();
+    }
+}
@@ -0,0 +1,224 @@
+/*-
+ * Copyright (C) 2026 Erik Larsson
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package org.catacombae.io;
+
+import org.catacombae.io.IOMetrics.Operation;
+
+/**
+ * A decorator which records {@link IOMetrics} for the reads, positional reads
+ * and seeks of a ReadableRandomAccessStream. Placing metered streams between
+ * the layers of a stream stack shows where the time goes.<br>
+ * Positional reads are passed on to the source if it is a
+ * {@link SynchronizedReadable}, and are otherwise performed by seeking and
+ * reading the source while holding its lock (restoring its file pointer
+ * afterwards).
+ *
+ * @author <a href="https://catacombae.org" target="_top">Erik Larsson</a>
+ */
+public class MeteredReadableRandomAccessStream
+        extends BasicSynchronizedReadableRandomAccessStream
+{
+    private final ReadableRandomAccessStream source;
+    private final IOMetrics metrics;
+    private final boolean registered;
+
+    private long refCount = 1;
+    private boolean closed = false;
+
+    /**
+     * Creates a metered stream with its own metrics, which are registered
+     * over JMX under <code>name</code> until the stream is closed.
+     *
+     * @param source the stream to meter.
+     * @param name the name of the stream, or <code>null</code> if the metrics
+     * should not be registered.
+     */
+    public MeteredReadableRandomAccessStream(ReadableRandomAccessStream source,
+            String name)
+    {
+        this(source, new IOMetrics(name), name != null);
+    }
+
+    /**
+     * Creates a metered stream which records into <code>metrics</code>. The
+     * metrics may be shared between several streams, and their registration
+     * is left to the caller.
+     *
+     * @param source the stream to meter.
+     * @param metrics the metrics to record into.
+     */
+    public MeteredReadableRandomAccessStream(ReadableRandomAccessStream source,
+            IOMetrics metrics)
+    {
+        this(source, metrics, false);
+    }
+
+    private MeteredReadableRandomAccessStream(
+            ReadableRandomAccessStream source, IOMetrics metrics,
+            boolean register)
+    {
+        if(source == null)
+            throw new IllegalArgumentException("source may NOT be null");
+        if(metrics == null)
+            throw new IllegalArgumentException("metrics may NOT be null");
+
+        this.source = source;
+        this.metrics = metrics;
+        this.registered = register && metrics.register();
+    }
+
+    /**
+     * Returns the metrics that this stream records into.
+     *
+     * @return the metrics that this stream records into.
+     */
+    public IOMetrics getMetrics() {
+        return metrics;
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public int read(byte[] data, int pos, int len) throws RuntimeIOException {
+        final long start = System.nanoTime();
+        boolean success = false;
+        try {
+            final int res = source.read(data, pos, len);
+            metrics.recordOperation(Operation.READ, start, res);
+            success = true;
+            return res;
+        } finally {
+            if(!success)
+                metrics.recordError(Operation.READ, start);
+        }
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public int readFrom(long pos, byte[] b, int off, int len)
+            throws RuntimeIOException
+    {
+        final long start = System.nanoTime();
+        boolean success = false;
+        try {
+            final int res;
+            if(source instanceof SynchronizedReadable)
+                res = ((SynchronizedReadable) source).readFrom(pos, b, off,
+                        len);
+            else
+                res = lockedReadFrom(pos, b, off, len);
+
+            metrics.recordOperation(Operation.READ_FROM, start, res);
+            success = true;
+            return res;
+        } finally {
+            if(!success)
+                metrics.recordError(Operation.READ_FROM, start);
+        }
+    }
+
+    private int lockedReadFrom(long pos, byte[] b, int off, int len) {
+        synchronized(source) {
+            if(pos >= source.length())
+                return (len == 0) ? 0 : -1;
+
+            final long oldFP = source.getFilePointer();
+            try {
+                source.seek(pos);
+                return source.read(b, off, len);
+            } finally {
+                if(source.getFilePointer() != oldFP)
+                    source.seek(oldFP);
+            }
+        }
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public long skipFrom(long pos, long length) throws RuntimeIOException {
+        final long streamLength = length();
+        if(pos + length > streamLength)
+            return Math.max(0, streamLength - pos);
+        else
+            return length;
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public long remainingLength() throws RuntimeIOException {
+        return length() - getFilePointer();
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public void seek(long pos) throws RuntimeIOException {
+        metrics.recordSeek(pos - source.getFilePointer());
+        source.seek(pos);
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public long length() throws RuntimeIOException {
+        return source.length();
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public long getFilePointer() throws RuntimeIOException {
+        return source.getFilePointer();
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public synchronized void close() throws RuntimeIOException {
+        if(closed)
+            throw new RuntimeException("Already closed.");
+
+        closed = true;
+        --refCount;
+        tryCloseSource();
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public synchronized void addReference(Object referrer) {
+        if(closed)
+            throw new RuntimeIOException("Stream is closed!");
+
+        ++refCount;
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public synchronized void removeReference(Object referrer) {
+        if((closed && refCount == 0) || (!closed && refCount == 1)) {
+            throw new RuntimeException("No references!");
+        }
+
+        --refCount;
+        tryCloseSource();
+    }
+
+    private void tryCloseSource() {
+        if(refCount == 0) {
+            if(registered)
+                metrics.unregister();
+            source.close();
+        }
+    }
+}
@@ -0,0 +1,616 @@
+/*-
+ * Copyright (C) 2026 Erik Larsson
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package org.catacombae.io;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import org.catacombae.util.Log;
+import org.catacombae.util.Util;
+
+/**
+ * A copy-on-write overlay over a read-only base stream. All writes go to a
+ * separate delta stream, typically a {@link FileStream}, so that a large image
+ * can be modified without copying or touching it.<br>
+ * The virtual stream is divided into fixed size blocks. The first write to a
+ * block copies it from the base into a slot in the delta, and from then on the
+ * block is served from there. Everything else is read from the base.
+ * Truncating and extending the stream is supported, without changing the
+ * base.<br>
+ * The delta file consists of a header block, the block slots, and a trailer
+ * holding a bitmap of the patched blocks followed by the slot number of each
+ * patched block in block order. The trailer and header are written on
+ * {@link #flush()} and {@link #close()}. A delta which was not flushed after
+ * its last modification is detected as inconsistent when it is opened
+ * again.<br>
+ * The changes can be merged into the base image with
+ * {@link #commit(RandomAccessStream)}. Instances are not thread-safe.
+ *
+ * @author <a href="https://catacombae.org" target="_top">Erik Larsson</a>
+ */
+public class OverlayRandomAccessStream extends BasicRandomAccessStream
+        implements TruncatableRandomAccessStream
+{
+    private static final Log log =
+            Log.getInstance(OverlayRandomAccessStream.class);
+
+    /** The default block size of new delta files (64 KiB). */
+    public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+
+    /** The smallest allowed block size, which must hold the header. */
+    private static final int MIN_BLOCK_SIZE = 512;
+
+    private static final long DELTA_MAGIC = 0x4346424F564C5931L; // "CFBOVLY1"
+    private static final int DELTA_VERSION = 1;
+    private static final int HEADER_SIZE = 56;
+
+    private final ReadableRandomAccessStream base;
+    private final TruncatableRandomAccessStream delta;
+    private final int blockSize;
+
+    /** The length of the base stream. */
+    private long baseLength;
+    /** Base data at or beyond this position has been truncated away. */
+    private long baseLimit;
+    /** The length of the virtual stream. */
+    private long length;
+
+    /** Bit <code>n</code> is set if block <code>n</code> is in the delta. */
+    private final BitSet patchedBlocks = new BitSet();
+    /** Maps patched block numbers to slot numbers in the delta. */
+    private final Map<Integer, Integer> slotTable =
+            new HashMap<Integer, Integer>();
+    /** Slots which are allocated in the delta but no longer used. */
+    private final LinkedList<Integer> freeSlots = new LinkedList<Integer>();
+    private int slotCount;
+
+    /** Whether the header in the delta is marked as inconsistent. */
+    private boolean deltaDirty = false;
+    private long filePointer = 0;
+    private boolean closed = false;
+
+    /**
+     * Creates an overlay with the default block size. See
+     * {@link #OverlayRandomAccessStream(ReadableRandomAccessStream,
+     * TruncatableRandomAccessStream, int)}.
+     *
+     * @param base the base stream, which is never written to.
+     * @param delta the delta stream, either empty or holding a delta created
+     * earlier for the same base.
+     */
+    public OverlayRandomAccessStream(ReadableRandomAccessStream base,
+            TruncatableRandomAccessStream delta)
+    {
+        this(base, delta, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Creates an overlay over <code>base</code>. If <code>delta</code> is
+     * empty a new delta is created in it, otherwise the existing delta is
+     * loaded and its changes appear on top of the base.
+     *
+     * @param base the base stream, which is never written to.
+     * @param delta the delta stream, either empty or holding a delta created
+     * earlier for the same base.
+     * @param blockSize the block size for a new delta. Ignored when an existing
+     * delta is loaded.
+     * @throws org.catacombae.io.RuntimeIOException if the delta is invalid,
+     * inconsistent or created for a base of a different length.
+     */
+    public OverlayRandomAccessStream(ReadableRandomAccessStream base,
+            TruncatableRandomAccessStream delta, int blockSize)
+    {
+        if(log.trace)
+            log.traceEnter(base, delta, blockSize);
+
+        try {
+            if(base == null)
+                throw new IllegalArgumentException("base may NOT be null");
+            if(delta == null)
+                throw new IllegalArgumentException("delta may NOT be null");
+
+            this.base = base;
+            this.delta = delta;
+            this.baseLength = base.length();
+
+            if(delta.length() == 0) {
+                if(blockSize < MIN_BLOCK_SIZE) {
+                    throw new IllegalArgumentException("Invalid block size: " +
+                            blockSize);
+                }
+
+                this.blockSize = blockSize;
+                this.baseLimit = baseLength;
+                this.length = baseLength;
+                this.slotCount = 0;
+                checkBlockCount(length);
+                writeTrailer();
+            }
+            else
+                this.blockSize = loadDelta();
+        } finally {
+            if(log.trace)
+                log.traceLeave(base, delta, blockSize);
+        }
+    }
+
+    private int loadDelta() {
+        final byte[] header = new byte[HEADER_SIZE];
+        delta.seek(0);
+        delta.readFully(header);
+
+        if(Util.readLongBE(header, 0) != DELTA_MAGIC)
+            throw new RuntimeIOException("Invalid delta file magic.");
+        else if(Util.readIntBE(header, 8) != DELTA_VERSION) {
+            throw new RuntimeIOException("Unsupported delta file version: " +
+                    Util.readIntBE(header, 8));
+        }
+
+        final int newBlockSize = Util.readIntBE(header, 12);
+        final long createdBaseLength = Util.readLongBE(header, 16);
+        final long trailerOffset = Util.readLongBE(header, 40);
+        if(newBlockSize < MIN_BLOCK_SIZE)
+            throw new RuntimeIOException("Invalid block size in delta file.");
+        else if(createdBaseLength != baseLength) {
+            throw new RuntimeIOException("Delta file was created for a base " +
+                    "of length " + createdBaseLength + ", but the base has " +
+                    "length " + baseLength + ".");
+        }
+        else if(trailerOffset == 0) {
+            throw new RuntimeIOException("Delta file is inconsistent (it " +
+                    "was not flushed after the last write).");
+        }
+
+        this.baseLimit = Util.readLongBE(header, 24);
+        this.length = Util.readLongBE(header, 32);
+        this.slotCount = Util.readIntBE(header, 48);
+        final int patchedCount = Util.readIntBE(header, 52);
+
+        final int blockCount = (int) ((length + newBlockSize - 1) /
+                newBlockSize);
+        final byte[] trailer = new byte[(blockCount + 7) / 8 +
+                patchedCount * 4];
+        delta.seek(trailerOffset);
+        delta.readFully(trailer);
+
+        final BitSet usedSlots = new BitSet(slotCount);
+        int slotIndexOffset = (blockCount + 7) / 8;
+        for(int i = 0; i < blockCount; ++i) {
+            if((trailer[i / 8] & (1 << (i % 8))) == 0)
+                continue;
+
+            final int slot = Util.readIntBE(trailer, slotIndexOffset);
+            slotIndexOffset += 4;
+            if(slot < 0 || slot >= slotCount || usedSlots.get(slot)) {
+                throw new RuntimeIOException("Invalid slot number for block " +
+                        i + " in delta file: " + slot);
+            }
+
+            usedSlots.set(slot);
+            patchedBlocks.set(i);
+            slotTable.put(i, slot);
+        }
+
+        for(int i = usedSlots.nextClearBit(0); i < slotCount;
+                i = usedSlots.nextClearBit(i + 1))
+        {
+            freeSlots.add(i);
+        }
+
+        if(log.debug) {
+            log.debug("Loaded delta with " + patchedBlocks.cardinality() +
+                    " patched blocks of " + newBlockSize + " bytes.");
+        }
+
+        return newBlockSize;
+    }
+
+    private void checkBlockCount(long newLength) {
+        if((newLength + blockSize - 1) / blockSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Length too large for block " +
+                    "size " + blockSize + ": " + newLength);
+        }
+    }
+
+    private void checkClosed() {
+        if(closed)
+            throw new RuntimeIOException("Stream is closed!");
+    }
+
+    /**
+     * Returns the block size of the delta.
+     *
+     * @return the block size of the delta.
+     */
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Returns the number of blocks that are stored in the delta.
+     *
+     * @return the number of blocks that are stored in the delta.
+     */
+    public int getPatchedBlockCount() {
+        return patchedBlocks.cardinality();
+    }
+
+    private long getSlotOffset(int slot) {
+        /* Slot 0 starts after the header block. */
+        return (slot + 1L) * blockSize;
+    }
+
+    private long getTrailerOffset() {
+        return getSlotOffset(slotCount);
+    }
+
+    /**
+     * Reads the unpatched data of the virtual stream at <code>pos</code>: the
+     * base data, or zeroes beyond the (possibly truncated) end of the base.
+     */
+    private void readBase(long pos, byte[] b, int off, int len) {
+        final long baseEnd = Math.min(baseLimit, baseLength);
+        int baseBytes = 0;
+        if(pos < baseEnd) {
+            baseBytes = (int) Math.min(len, baseEnd - pos);
+            base.seek(pos);
+            base.readFully(b, off, baseBytes);
+        }
+
+        Util.zero(b, off + baseBytes, len - baseBytes);
+    }
+
+    /**
+     * Marks the delta as inconsistent before it is modified, so that an
+     * unflushed delta isn't loaded later.
+     */
+    private void markDeltaDirty() {
+        if(deltaDirty)
+            return;
+
+        final byte[] header = new byte[HEADER_SIZE];
+        writeHeader(header, 0);
+        delta.seek(0);
+        delta.write(header);
+        deltaDirty = true;
+    }
+
+    /**
+     * Allocates a slot for <code>blockNumber</code> and fills it with the
+     * current data of the block, unless <code>fill</code> is false.
+     */
+    private int allocateSlot(int blockNumber, boolean fill) {
+        markDeltaDirty();
+
+        final int slot =
+                freeSlots.isEmpty() ? slotCount++ : freeSlots.removeFirst();
+        final byte[] block = new byte[blockSize];
+        if(fill) {
+            final long blockStart = (long) blockNumber * blockSize;
+            if(blockStart < length) {
+                readBase(blockStart, block, 0,
+                        (int) Math.min(blockSize, length - blockStart));
+            }
+        }
+
+        delta.seek(getSlotOffset(slot));
+        delta.write(block);
+
+        patchedBlocks.set(blockNumber);
+        slotTable.put(blockNumber, slot);
+        return slot;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int read(byte[] data, int pos, int len) throws RuntimeIOException {
+        checkClosed();
+
+        if(len == 0)
+            return 0;
+        else if(filePointer >= length)
+            return -1;
+
+        final int bytesToRead = (int) Math.min(len, length - filePointer);
+        int bytesRead = 0;
+        while(bytesRead < bytesToRead) {
+            final int blockNumber = (int) (filePointer / blockSize);
+            final int blockOffset = (int) (filePointer % blockSize);
+
+            final int curBytesToRead;
+            if(patchedBlocks.get(blockNumber)) {
+                curBytesToRead = Math.min(bytesToRead - bytesRead,
+                        blockSize - blockOffset);
+                delta.seek(getSlotOffset(slotTable.get(blockNumber)) +
+                        blockOffset);
+                delta.readFully(data, pos + bytesRead, curBytesToRead);
+            }
+            else {
+                /* Read everything up to the next patched block in one go. */
+                final int nextPatched =
+                        patchedBlocks.nextSetBit(blockNumber + 1);
+                final long cleanEnd = (nextPatched < 0) ? length :
+                    (long) nextPatched * blockSize;
+                curBytesToRead = (int) Math.min(bytesToRead - bytesRead,
+                        cleanEnd - filePointer);
+                readBase(filePointer, data, pos + bytesRead, curBytesToRead);
+            }
+
+            bytesRead += curBytesToRead;
+            filePointer += curBytesToRead;
+        }
+
+        return bytesRead;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void write(byte[] b, int off, int len) throws RuntimeIOException {
+        checkClosed();
+
+        if(len == 0)
+            return;
+
+        checkBlockCount(filePointer + len);
+
+        int bytesWritten = 0;
+        while(bytesWritten < len) {
+            final int blockNumber = (int) (filePointer / blockSize);
+            final int blockOffset = (int) (filePointer % blockSize);
+            final int curBytesToWrite =
+                    Math.min(len - bytesWritten, blockSize - blockOffset);
+
+            Integer slot = slotTable.get(blockNumber);
+            if(slot == null) {
+                slot = allocateSlot(blockNumber,
+                        curBytesToWrite < blockSize);
+            }
+            else
+                markDeltaDirty();
+
+            delta.seek(getSlotOffset(slot) + blockOffset);
+            delta.write(b, off + bytesWritten, curBytesToWrite);
+
+            bytesWritten += curBytesToWrite;
+            filePointer += curBytesToWrite;
+            if(filePointer > length)
+                length = filePointer;
+        }
+    }
+
+    /**
+     * Sets the length of the virtual stream. The base is not changed. Data
+     * that is truncated away reads as zeroes if the stream is extended
+     * again.
+     *
+     * @param newLength the new length of the stream.
+     * @throws org.catacombae.io.RuntimeIOException if an I/O error occurred.
+     */
+    //@Override
+    public void setLength(long newLength) throws RuntimeIOException {
+        checkClosed();
+
+        if(newLength < 0) {
+            throw new IllegalArgumentException("newLength is negative: " +
+                    newLength);
+        }
+
+        checkBlockCount(newLength);
+        markDeltaDirty();
+
+        if(newLength < length) {
+            /* Release the blocks that are entirely beyond the new end. */
+            final int firstRemovedBlock =
+                    (int) ((newLength + blockSize - 1) / blockSize);
+            for(int i = patchedBlocks.nextSetBit(firstRemovedBlock); i >= 0;
+                    i = patchedBlocks.nextSetBit(i + 1))
+            {
+                freeSlots.add(slotTable.remove(i));
+                patchedBlocks.clear(i);
+            }
+
+            /* Zero the tail of a patched block that the new end falls in. */
+            final int tailOffset = (int) (newLength % blockSize);
+            final Integer tailSlot =
+                    slotTable.get((int) (newLength / blockSize));
+            if(tailOffset != 0 && tailSlot != null) {
+                delta.seek(getSlotOffset(tailSlot) + tailOffset);
+                delta.write(new byte[blockSize - tailOffset]);
+            }
+
+            if(newLength < baseLimit)
+                baseLimit = newLength;
+        }
+
+        length = newLength;
+    }
+
+    private void writeHeader(byte[] header, long trailerOffset) {
+        Util.arrayPutBE(header, 0, DELTA_MAGIC);
+        Util.arrayPutBE(header, 8, DELTA_VERSION);
+        Util.arrayPutBE(header, 12, blockSize);
+        Util.arrayPutBE(header, 16, baseLength);
+        Util.arrayPutBE(header, 24, baseLimit);
+        Util.arrayPutBE(header, 32, length);
+        Util.arrayPutBE(header, 40, trailerOffset);
+        Util.arrayPutBE(header, 48, slotCount);
+        Util.arrayPutBE(header, 52, patchedBlocks.cardinality());
+    }
+
+    /**
+     * Writes the bitmap and slot table after the last slot, followed by the
+     * header which points to them.
+     */
+    private void writeTrailer() {
+        final int blockCount = (int) ((length + blockSize - 1) / blockSize);
+        final int bitmapSize = (blockCount + 7) / 8;
+        final byte[] trailer =
+                new byte[bitmapSize + patchedBlocks.cardinality() * 4];
+
+        int slotIndexOffset = bitmapSize;
+        for(int i = patchedBlocks.nextSetBit(0); i >= 0;
+                i = patchedBlocks.nextSetBit(i + 1))
+        {
+            trailer[i / 8] |= 1 << (i % 8);
+            Util.arrayPutBE(trailer, slotIndexOffset, slotTable.get(i));
+            slotIndexOffset += 4;
+        }
+
+        final long trailerOffset = getTrailerOffset();
+        delta.seek(trailerOffset);
+        delta.write(trailer);
+        delta.setLength(trailerOffset + trailer.length);
+
+        final byte[] header = new byte[HEADER_SIZE];
+        writeHeader(header, trailerOffset);
+        delta.seek(0);
+        delta.write(header);
+    }
+
+    /**
+     * Writes the bitmap, slot table and header of the delta, making it
+     * consistent.
+     *
+     * @throws org.catacombae.io.RuntimeIOException if an I/O error occurred.
+     */
+    public void flush() throws RuntimeIOException {
+        checkClosed();
+
+        if(!deltaDirty)
+            return;
+
+        writeTrailer();
+        deltaDirty = false;
+    }
+
+    /**
+     * Merges all changes into <code>target</code>, which must be a writable
+     * stream on the storage backing the base stream (or a copy of it with the
+     * same contents). If <code>target</code> is truncatable its length is set
+     * to the length of this stream. Afterwards the delta is emptied, and
+     * this stream reads everything from the base, which must now reflect the
+     * merged data.
+     *
+     * @param target the stream to write the changes to.
+     * @throws org.catacombae.io.RuntimeIOException if an I/O error occurred.
+     */
+    public void commit(RandomAccessStream target) throws RuntimeIOException {
+        checkClosed();
+
+        if(log.debug) {
+            log.debug("Committing " + patchedBlocks.cardinality() +
+                    " patched blocks.");
+        }
+
+        /* Base data which was truncated away and then re-extended must be
+         * zeroed in the target. */
+        final long zeroEnd = Math.min(length, baseLength);
+        if(baseLimit < zeroEnd) {
+            final byte[] zeroes = new byte[blockSize];
+            for(long pos = baseLimit; pos < zeroEnd; ) {
+                final int blockNumber = (int) (pos / blockSize);
+                final int curLength = (int) Math.min(zeroEnd - pos,
+                        (long) (blockNumber + 1) * blockSize - pos);
+                if(!patchedBlocks.get(blockNumber)) {
+                    target.seek(pos);
+                    target.write(zeroes, 0, curLength);
+                }
+                pos += curLength;
+            }
+        }
+
+        final byte[] block = new byte[blockSize];
+        for(int i = patchedBlocks.nextSetBit(0); i >= 0;
+                i = patchedBlocks.nextSetBit(i + 1))
+        {
+            final long blockStart = (long) i * blockSize;
+            final int blockLength =
+                    (int) Math.min(blockSize, length - blockStart);
+
+            delta.seek(getSlotOffset(slotTable.get(i)));
+            delta.readFully(block, 0, blockLength);
+            target.seek(blockStart);
+            target.write(block, 0, blockLength);
+        }
+
+        if(target instanceof TruncatableRandomAccess)
+            ((TruncatableRandomAccess) target).setLength(length);
+
+        baseLength = base.length();
+        revert();
+    }
+
+    /**
+     * Discards all changes, so that this stream reads the unmodified base
+     * again.
+     *
+     * @throws org.catacombae.io.RuntimeIOException if an I/O error occurred.
+     */
+    public void revert() throws RuntimeIOException {
+        checkClosed();
+
+        patchedBlocks.clear();
+        slotTable.clear();
+        freeSlots.clear();
+        slotCount = 0;
+        baseLimit = baseLength;
+        length = baseLength;
+        writeTrailer();
+        deltaDirty = false;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void seek(long pos) throws RuntimeIOException {
+        checkClosed();
+
+        if(pos < 0)
+            throw new IllegalArgumentException("pos is negative: " + pos);
+
+        filePointer = pos;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long length() throws RuntimeIOException {
+        checkClosed();
+        return length;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getFilePointer() throws RuntimeIOException {
+        checkClosed();
+        return filePointer;
+    }
+
+    /**
+     * Flushes the delta and closes the delta and base streams.
+     *
+     * @throws org.catacombae.io.RuntimeIOException if an I/O error occurred.
+     */
+    @Override
+    public void close() throws RuntimeIOException {
+        flush();
+        closed = true;
+        delta.close();
+        base.close();
+    }
+}
@@ -0,0 +1,339 @@
+/*-
+ * Copyright (C) 2026 Erik Larsson
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package org.catacombae.io;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import org.catacombae.util.Log;
+
+/**
+ * A stream which detects sequential reading and prefetches the data following
+ * the current position on a background thread while the caller processes the
+ * data it has already received.<br>
+ * The read-ahead window starts out small and doubles for every window that is
+ * consumed sequentially, up to a maximum size. When the caller seeks away from
+ * the buffered data the window collapses to its minimum size, and reads are
+ * passed straight through to the underlying stream until sequential access is
+ * detected again.<br>
+ * Each instance tracks a single cursor, so typical use is to wrap a
+ * {@link ReadableFileStream} or one {@link ReadableRandomAccessSubstream} per
+ * reading thread. The underlying stream must not be accessed by anyone else
+ * while it is wrapped, and its length must not change. Instances are not
+ * thread-safe.
+ *
+ * @author <a href="https://catacombae.org" target="_top">Erik Larsson</a>
+ */
+public class ReadAheadReadableRandomAccessStream
+        extends BasicReadableRandomAccessStream
+{
+    private static final Log log =
+            Log.getInstance(ReadAheadReadableRandomAccessStream.class);
+
+    /** The default initial size of the read-ahead window (128 KiB). */
+    public static final int DEFAULT_MIN_WINDOW_SIZE = 128 * 1024;
+
+    /** The default maximum size of the read-ahead window (8 MiB). */
+    public static final int DEFAULT_MAX_WINDOW_SIZE = 8 * 1024 * 1024;
+
+    private static final ExecutorService prefetchExecutor =
+            Executors.newCachedThreadPool(new ThreadFactory() {
+        public Thread newThread(Runnable r) {
+            final Thread t = new Thread(r,
+                    ReadAheadReadableRandomAccessStream.class.getSimpleName() +
+                    " prefetch thread");
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
+    private final ReadableRandomAccessStream source;
+    private final long length;
+    private final int minWindowSize;
+    private final int maxWindowSize;
+
+    private int windowSize;
+    private long filePointer = 0;
+    /** The end position of the last read, used to detect sequential access. */
+    private long lastReadEnd = -1;
+
+    /** Buffer holding the data that the caller is currently consuming. */
+    private byte[] currentBuffer = null;
+    private long currentStart = 0;
+    private int currentLength = 0;
+
+    /** Buffer which is filled in the background. */
+    private byte[] prefetchBuffer = null;
+    private long prefetchStart = 0;
+    private int prefetchLength = 0;
+    private Future<Integer> prefetchResult = null;
+
+    private boolean closed = false;
+
+    public ReadAheadReadableRandomAccessStream(
+            ReadableRandomAccessStream source)
+    {
+        this(source, DEFAULT_MIN_WINDOW_SIZE, DEFAULT_MAX_WINDOW_SIZE);
+    }
+
+    public ReadAheadReadableRandomAccessStream(
+            ReadableRandomAccessStream source, int minWindowSize,
+            int maxWindowSize)
+    {
+        if(minWindowSize <= 0 || maxWindowSize < minWindowSize) {
+            throw new IllegalArgumentException("Invalid window sizes: " +
+                    minWindowSize + ", " + maxWindowSize);
+        }
+
+        this.source = source;
+        this.length = source.length();
+        this.minWindowSize = minWindowSize;
+        this.maxWindowSize = maxWindowSize;
+        this.windowSize = minWindowSize;
+    }
+
+    /**
+     * Returns the current size of the read-ahead window.
+     *
+     * @return the current size of the read-ahead window.
+     */
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    private static int readBlock(ReadableRandomAccessStream stream, long pos,
+            byte[] buffer, int len)
+    {
+        stream.seek(pos);
+
+        int bytesRead = 0;
+        while(bytesRead < len) {
+            final int res = stream.read(buffer, bytesRead, len - bytesRead);
+            if(res <= 0)
+                break;
+            bytesRead += res;
+        }
+
+        return bytesRead;
+    }
+
+    private int readDirect(long pos, byte[] buffer, int off, int len) {
+        source.seek(pos);
+        return source.read(buffer, off, len);
+    }
+
+    private void startPrefetch() {
+        final long start = currentStart + currentLength;
+        if(start >= length)
+            return;
+
+        final int len = (int) Math.min(windowSize, length - start);
+        if(prefetchBuffer == null || prefetchBuffer.length < len)
+            prefetchBuffer = new byte[len];
+
+        if(log.debug) {
+            log.debug("Prefetching " + len + " bytes at " + start + ".");
+        }
+
+        final byte[] buffer = prefetchBuffer;
+        prefetchStart = start;
+        prefetchLength = len;
+        prefetchResult = prefetchExecutor.submit(new Callable<Integer>() {
+            public Integer call() {
+                return readBlock(source, start, buffer, len);
+            }
+        });
+    }
+
+    /**
+     * Waits for the outstanding prefetch (if any) to complete.
+     *
+     * @return the number of bytes that were prefetched, or -1 if there was no
+     * outstanding prefetch.
+     */
+    private int finishPrefetch() {
+        if(prefetchResult == null)
+            return -1;
+
+        final Future<Integer> result = prefetchResult;
+        prefetchResult = null;
+
+        boolean interrupted = false;
+        try {
+            while(true) {
+                try {
+                    return result.get();
+                } catch(InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+        } catch(ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            if(cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            else if(cause instanceof Error)
+                throw (Error) cause;
+            else
+                throw new RuntimeException(cause);
+        } finally {
+            if(interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Makes the prefetched window the current one, and starts prefetching the
+     * window after it with a doubled window size.
+     *
+     * @return whether any data was moved into the current buffer.
+     */
+    private boolean advanceWindow() {
+        final int prefetched = finishPrefetch();
+        if(prefetched <= 0)
+            return false;
+
+        final byte[] oldBuffer = currentBuffer;
+        currentBuffer = prefetchBuffer;
+        currentStart = prefetchStart;
+        currentLength = prefetched;
+        prefetchBuffer = oldBuffer;
+
+        windowSize = (int) Math.min((long) windowSize * 2, maxWindowSize);
+        startPrefetch();
+        return true;
+    }
+
+    private void dropWindows() {
+        finishPrefetch();
+        currentLength = 0;
+        windowSize = minWindowSize;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int read(byte[] data, int pos, int len) throws RuntimeIOException {
+        if(closed)
+            throw new RuntimeIOException("Stream is closed!");
+        if(len == 0)
+            return 0;
+        if(filePointer >= length)
+            return -1;
+
+        int bytesRead = 0;
+        while(bytesRead < len && filePointer < length) {
+            if(filePointer >= currentStart &&
+                    filePointer < currentStart + currentLength)
+            {
+                final int bufferOffset = (int) (filePointer - currentStart);
+                final int curBytesToCopy = Math.min(len - bytesRead,
+                        currentLength - bufferOffset);
+                System.arraycopy(currentBuffer, bufferOffset, data,
+                        pos + bytesRead, curBytesToCopy);
+                bytesRead += curBytesToCopy;
+                filePointer += curBytesToCopy;
+            }
+            else if(prefetchResult != null && filePointer >= prefetchStart &&
+                    filePointer < prefetchStart + prefetchLength)
+            {
+                if(!advanceWindow())
+                    break;
+            }
+            else if(filePointer == lastReadEnd ||
+                    filePointer == currentStart + currentLength)
+            {
+                /* Sequential access without a usable window (first window,
+                 * or one we have fallen out of). Read a window synchronously
+                 * and start prefetching the next one. */
+                finishPrefetch();
+                final int curWindowSize =
+                        (int) Math.min(windowSize, length - filePointer);
+                if(currentBuffer == null ||
+                        currentBuffer.length < curWindowSize)
+                {
+                    currentBuffer = new byte[curWindowSize];
+                }
+
+                final int res = readBlock(source, filePointer, currentBuffer,
+                        curWindowSize);
+                if(res <= 0)
+                    break;
+
+                currentStart = filePointer;
+                currentLength = res;
+                startPrefetch();
+            }
+            else {
+                /* Random access. Bypass the buffers. */
+                if(log.debug) {
+                    log.debug("Random access at " + filePointer + ", " +
+                            "collapsing read-ahead window.");
+                }
+
+                dropWindows();
+                final int res = readDirect(filePointer, data, pos + bytesRead,
+                        len - bytesRead);
+                if(res > 0) {
+                    bytesRead += res;
+                    filePointer += res;
+                }
+                break;
+            }
+        }
+
+        lastReadEnd = filePointer;
+        return bytesRead > 0 ? bytesRead : -1;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void seek(long pos) throws RuntimeIOException {
+        filePointer = pos;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long length() throws RuntimeIOException {
+        return length;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getFilePointer() throws RuntimeIOException {
+        return filePointer;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close() throws RuntimeIOException {
+        if(closed)
+            throw new RuntimeException("Already closed.");
+
+        closed = true;
+        try {
+            finishPrefetch();
+        } finally {
+            currentBuffer = null;
+            prefetchBuffer = null;
+            source.close();
+        }
+    }
+}
@@ -18,6 +18,8 @@
 
 package org.catacombae.io;
 
+import java.nio.ByteBuffer;
+
 /**
  * Defines the methods that must exist for a stream to be readable.
  * 
@@ -60,6 +62,20 @@ public interface Readable {
      * @throws org.catacombae.io.RuntimeIOException if an I/O error occurred.
      */
     public int read(byte[] data, int pos, int len) throws RuntimeIOException;
+
+    /**
+     * Reads as much data as possible from the stream into the buffer <code>dst</code>, until there
+     * are no more bytes remaining in the buffer. The data is stored starting at the buffer's
+     * position, which is advanced by the number of bytes read. Returns the number of bytes that
+     * were read into <code>dst</code>. If no bytes could be read due to end of stream, -1 is
+     * returned.
+     *
+     * @param dst the buffer where the output data should be stored.
+     * @return the number of bytes that were read, or -1 if no bytes could be read due to end of
+     * stream.
+     * @throws org.catacombae.io.RuntimeIOException if an I/O error occurred.
+     */
+    public int read(ByteBuffer dst) throws RuntimeIOException;
     
     /**
      * Reads one byte from the stream and return it. If this is not possible due
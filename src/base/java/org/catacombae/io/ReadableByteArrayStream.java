@@ -18,6 +18,8 @@
 
 package org.catacombae.io;
 
+import java.nio.ByteBuffer;
+
 /**
  * A ReadableRandomAccessStream implementation backed by a byte array.
  * 
@@ -68,6 +70,24 @@ public class ReadableByteArrayStream extends BasicReadableRandomAccessStream {
         return trueLen;
     }
     
+    @Override
+    public int read(ByteBuffer dst) {
+        if(closed)
+            throw new RuntimeException("File has been closed!");
+
+        if(!dst.hasRemaining())
+            return 0;
+
+        int remainingBytes = length-filePointer;
+        if(remainingBytes == 0)
+            return -1;
+
+        int trueLen = Math.min(remainingBytes, dst.remaining());
+        dst.put(backingArray, startOffset+filePointer, trueLen);
+        filePointer += trueLen;
+        return trueLen;
+    }
+
     public long length() {
         if(closed)
             throw new RuntimeException("File has been closed!");
@@ -18,6 +18,7 @@
 
 package org.catacombae.io;
 
+import java.nio.ByteBuffer;
 import java.util.zip.CRC32;
 
 /**
@@ -26,7 +27,11 @@ import java.util.zip.CRC32;
  * they return that alter the value of the checksum.
  * 
  * @author <a href="https://catacombae.org" target="_top">Erik Larsson</a>
+ * @deprecated Use {@link ReadableDigestFilterStream} with
+ * {@link StreamDigest.Algorithm#CRC32}, which supports other algorithms and
+ * updates the checksum in large blocks.
  */
+@Deprecated
 public class ReadableCRC32FilterStream implements ReadableRandomAccessStream {
     private ReadableRandomAccessStream source;
     private CRC32 checksum;
@@ -53,10 +58,13 @@ public class ReadableCRC32FilterStream implements ReadableRandomAccessStream {
 	return res;
     }
     public int read(byte[] data, int pos, int len) {
-	int res = source.read(data);
+	int res = source.read(data, pos, len);
 	if(res > 0) checksum.update(data, pos, res);
 	return res;
     }
+    public int read(ByteBuffer dst) {
+	return BasicReadable.defaultRead(this, dst);
+    }
 
     public byte readFully() {
         byte res = source.readFully();
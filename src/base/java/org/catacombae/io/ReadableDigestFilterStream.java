@@ -0,0 +1,384 @@
+/*-
+ * Copyright (C) 2026 Erik Larsson
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package org.catacombae.io;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Updates one or more digests ({@link StreamDigest}) with each byte you read
+ * from the underlying stream. Like in {@link ReadableCRC32FilterStream},
+ * seeking does not reset the digests. It is only the read methods and what
+ * they return that alter the value of the digests.<br>
+ * The underlying stream is read in large blocks into an internal buffer and
+ * the digests are updated with whole runs of consumed data, so reading a few
+ * bytes at a time costs little more than reading large arrays.<br>
+ * In multithreaded mode each digest is computed on its own thread. There are
+ * two read buffers, so the next block is read from the underlying stream while
+ * the digests process the previous one. Computing for instance MD5, SHA-1 and
+ * SHA-256 of a stream then takes about as long as reading it once, or
+ * computing the slowest digest, whichever is slower.<br>
+ * The underlying stream must not be accessed by anyone else while it is
+ * wrapped. Instances are not thread-safe.
+ *
+ * @author <a href="https://catacombae.org" target="_top">Erik Larsson</a>
+ */
+public class ReadableDigestFilterStream extends BasicReadableRandomAccessStream
+{
+    /** The default size of the blocks read from the underlying stream. */
+    public static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+
+    private static final ThreadFactory digestThreadFactory =
+            new ThreadFactory() {
+        public Thread newThread(Runnable r) {
+            final Thread t = new Thread(r,
+                    ReadableDigestFilterStream.class.getSimpleName() +
+                    " digest");
+            t.setDaemon(true);
+            return t;
+        }
+    };
+
+    private final ReadableRandomAccessStream source;
+    private final StreamDigest[] digests;
+    /** One single threaded executor per digest, or null if not threaded. */
+    private final ExecutorService[] executors;
+
+    private final byte[][] buffers;
+    /** Outstanding digest updates reading from each buffer. */
+    private final List<List<Future<?>>> pendingUpdates;
+    private int currentBuffer = 0;
+    /** Stream position of the first byte in the current buffer. */
+    private long bufferStart;
+    /** Number of valid bytes in the current buffer. */
+    private int bufferLength = 0;
+    /** Position of the next byte to return from the current buffer. */
+    private int bufferPos = 0;
+    /** Data in the current buffer before this index has been digested. */
+    private int digestedPos = 0;
+    private boolean closed = false;
+
+    /**
+     * Creates a single threaded ReadableDigestFilterStream which computes
+     * digests with the specified algorithms.
+     *
+     * @param source the stream to read from.
+     * @param algorithms the algorithms of the digests to compute.
+     */
+    public ReadableDigestFilterStream(ReadableRandomAccessStream source,
+            StreamDigest.Algorithm... algorithms)
+    {
+        this(source, false, createDigests(algorithms));
+    }
+
+    /**
+     * Creates a ReadableDigestFilterStream which computes the specified
+     * digests.
+     *
+     * @param source the stream to read from.
+     * @param multithreaded whether each digest should be computed on its own
+     * thread.
+     * @param digests the digests to update with the data that is read.
+     */
+    public ReadableDigestFilterStream(ReadableRandomAccessStream source,
+            boolean multithreaded, StreamDigest... digests)
+    {
+        this(source, multithreaded, DEFAULT_BLOCK_SIZE, digests);
+    }
+
+    /**
+     * Creates a ReadableDigestFilterStream which computes the specified
+     * digests.
+     *
+     * @param source the stream to read from.
+     * @param multithreaded whether each digest should be computed on its own
+     * thread.
+     * @param blockSize the size of the blocks read from the underlying stream.
+     * @param digests the digests to update with the data that is read.
+     */
+    public ReadableDigestFilterStream(ReadableRandomAccessStream source,
+            boolean multithreaded, int blockSize, StreamDigest... digests)
+    {
+        if(source == null)
+            throw new IllegalArgumentException("source may NOT be null");
+        if(digests.length == 0)
+            throw new IllegalArgumentException("No digests specified.");
+        if(blockSize <= 0) {
+            throw new IllegalArgumentException("Invalid block size: " +
+                    blockSize);
+        }
+
+        this.source = source;
+        this.digests = digests.clone();
+        this.bufferStart = source.getFilePointer();
+
+        final int bufferCount = multithreaded ? 2 : 1;
+        this.buffers = new byte[bufferCount][blockSize];
+        this.pendingUpdates = new ArrayList<List<Future<?>>>(bufferCount);
+        for(int i = 0; i < bufferCount; ++i)
+            pendingUpdates.add(new ArrayList<Future<?>>());
+
+        if(multithreaded) {
+            executors = new ExecutorService[digests.length];
+            for(int i = 0; i < executors.length; ++i) {
+                executors[i] =
+                        Executors.newSingleThreadExecutor(digestThreadFactory);
+            }
+        }
+        else
+            executors = null;
+    }
+
+    private static StreamDigest[] createDigests(
+            StreamDigest.Algorithm[] algorithms)
+    {
+        final StreamDigest[] res = new StreamDigest[algorithms.length];
+        for(int i = 0; i < res.length; ++i)
+            res[i] = StreamDigest.create(algorithms[i]);
+        return res;
+    }
+
+    /**
+     * Returns the number of digests that are computed.
+     *
+     * @return the number of digests that are computed.
+     */
+    public int getDigestCount() {
+        return digests.length;
+    }
+
+    /**
+     * Returns the value of digest number <code>index</code> over all data
+     * read so far, without resetting it.
+     *
+     * @param index the index of the digest, in the order they were passed to
+     * the constructor.
+     * @return the value of the digest.
+     */
+    public byte[] getDigestValue(int index) {
+        flushDigests();
+        waitForAllUpdates();
+        return digests[index].getValue();
+    }
+
+    /**
+     * Returns the values of all digests over all data read so far, without
+     * resetting them.
+     *
+     * @return the values of the digests, in the order they were passed to the
+     * constructor.
+     */
+    public byte[][] getDigestValues() {
+        flushDigests();
+        waitForAllUpdates();
+
+        final byte[][] res = new byte[digests.length][];
+        for(int i = 0; i < res.length; ++i)
+            res[i] = digests[i].getValue();
+        return res;
+    }
+
+    /** Resets all digests to their initial state. */
+    public void resetDigests() {
+        flushDigests();
+        waitForAllUpdates();
+
+        digestedPos = bufferPos;
+        for(StreamDigest d : digests)
+            d.reset();
+    }
+
+    /**
+     * Updates the digests with the data that has been returned from the
+     * current buffer since the last update.
+     */
+    private void flushDigests() {
+        if(digestedPos >= bufferPos)
+            return;
+
+        final byte[] buffer = buffers[currentBuffer];
+        final int off = digestedPos;
+        final int len = bufferPos - digestedPos;
+        digestedPos = bufferPos;
+
+        if(executors == null) {
+            for(StreamDigest d : digests)
+                d.update(buffer, off, len);
+            return;
+        }
+
+        final List<Future<?>> pending = pendingUpdates.get(currentBuffer);
+        for(int i = 0; i < digests.length; ++i) {
+            final StreamDigest d = digests[i];
+            pending.add(executors[i].submit(new Callable<Object>() {
+                public Object call() {
+                    d.update(buffer, off, len);
+                    return null;
+                }
+            }));
+        }
+    }
+
+    /**
+     * Waits until no digest update reads from the buffer with the specified
+     * index.
+     */
+    private void waitForUpdates(int bufferIndex) {
+        final List<Future<?>> pending = pendingUpdates.get(bufferIndex);
+
+        boolean interrupted = false;
+        try {
+            for(Future<?> f : pending) {
+                while(true) {
+                    try {
+                        f.get();
+                        break;
+                    } catch(InterruptedException ex) {
+                        interrupted = true;
+                    }
+                }
+            }
+        } catch(ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            if(cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            else if(cause instanceof Error)
+                throw (Error) cause;
+            else
+                throw new RuntimeException(cause);
+        } finally {
+            pending.clear();
+            if(interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    private void waitForAllUpdates() {
+        for(int i = 0; i < buffers.length; ++i)
+            waitForUpdates(i);
+    }
+
+    /**
+     * Reads the next block from the underlying stream into the next buffer.
+     *
+     * @return whether any data could be read.
+     */
+    private boolean fillBuffer() {
+        flushDigests();
+
+        final long nextStart = bufferStart + bufferLength;
+        final int nextBuffer = (currentBuffer + 1) % buffers.length;
+        waitForUpdates(nextBuffer);
+
+        currentBuffer = nextBuffer;
+        bufferStart = nextStart;
+        bufferLength = 0;
+        bufferPos = 0;
+        digestedPos = 0;
+
+        final int res = source.read(buffers[nextBuffer], 0,
+                buffers[nextBuffer].length);
+        if(res <= 0)
+            return false;
+
+        bufferLength = res;
+        return true;
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public int read(byte[] data, int pos, int len) throws RuntimeIOException {
+        if(closed)
+            throw new RuntimeIOException("Stream is closed!");
+
+        int bytesRead = 0;
+        while(bytesRead < len) {
+            if(bufferPos == bufferLength && !fillBuffer())
+                break;
+
+            final int curBytesToRead =
+                    Math.min(len - bytesRead, bufferLength - bufferPos);
+            System.arraycopy(buffers[currentBuffer], bufferPos, data,
+                    pos + bytesRead, curBytesToRead);
+            bufferPos += curBytesToRead;
+            bytesRead += curBytesToRead;
+        }
+
+        return (bytesRead > 0 || len == 0) ? bytesRead : -1;
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public void seek(long pos) throws RuntimeIOException {
+        if(closed)
+            throw new RuntimeIOException("Stream is closed!");
+
+        flushDigests();
+
+        if(pos >= bufferStart && pos <= bufferStart + bufferLength) {
+            /* Within the current buffer. */
+            bufferPos = (int) (pos - bufferStart);
+            digestedPos = bufferPos;
+        }
+        else {
+            source.seek(pos);
+            bufferStart = pos;
+            bufferLength = 0;
+            bufferPos = 0;
+            digestedPos = 0;
+        }
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public long length() throws RuntimeIOException {
+        return source.length();
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public long getFilePointer() throws RuntimeIOException {
+        return bufferStart + bufferPos;
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public void close() throws RuntimeIOException {
+        if(closed)
+            throw new RuntimeException("Already closed.");
+
+        closed = true;
+        try {
+            waitForAllUpdates();
+        } finally {
+            if(executors != null) {
+                for(ExecutorService e : executors)
+                    e.shutdown();
+            }
+
+            source.close();
+        }
+    }
+}
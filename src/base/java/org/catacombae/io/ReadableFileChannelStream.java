@@ -0,0 +1,302 @@
+/*-
+ * Copyright (C) 2026 Erik Larsson
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package org.catacombae.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import org.catacombae.util.Log;
+
+/**
+ * A read-only file stream which services the {@link SynchronizedReadable}
+ * methods through positional reads on a java.nio.channels.FileChannel.<br>
+ * Unlike {@link SynchronizedReadableRandomAccessStream}, <code>readFrom</code>
+ * and <code>readFullyFrom</code> neither take a lock nor touch a shared file
+ * pointer, so any number of threads may read from the same file concurrently.
+ * <br>
+ * The plain {@link Readable} methods operate on a file pointer private to this
+ * object and are, like in {@link ReadableFileStream}, not thread-safe.<br>
+ * Note that interrupting a thread which is blocked in a read closes the
+ * underlying channel for all users of the stream (this is how FileChannel
+ * behaves), so readers should not be interrupted while the stream is in use.
+ *
+ * @author <a href="https://catacombae.org" target="_top">Erik Larsson</a>
+ */
+public class ReadableFileChannelStream
+        extends BasicSynchronizedReadableRandomAccessStream
+        implements AbstractFileStream
+{
+    private static final Log log =
+            Log.getInstance(ReadableFileChannelStream.class);
+
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+    private final String openPath;
+
+    private long filePointer = 0;
+    private long refCount = 1;
+    private boolean closed = false;
+
+    public ReadableFileChannelStream(String filename) {
+        this(new File(filename));
+    }
+
+    public ReadableFileChannelStream(File file) {
+        this(openFile(file), file.getPath());
+    }
+
+    public ReadableFileChannelStream(RandomAccessFile raf, String openPath) {
+        if(log.trace)
+            log.traceEnter(raf, openPath);
+
+        try {
+            if(raf == null)
+                throw new IllegalArgumentException("raf may NOT be null");
+            this.raf = raf;
+            this.channel = raf.getChannel();
+            this.openPath = openPath;
+        } finally {
+            if(log.trace)
+                log.traceLeave(raf, openPath);
+        }
+    }
+
+    private static RandomAccessFile openFile(File file) {
+        try {
+            return new RandomAccessFile(file, "r");
+        } catch(IOException ex) {
+            throw new RuntimeIOException(ex);
+        }
+    }
+
+    /**
+     * Returns the FileChannel that this stream reads from. The channel must
+     * only be used for positional operations, or the file pointer of other
+     * users of the channel may be disturbed.
+     *
+     * @return the FileChannel that this stream reads from.
+     */
+    public FileChannel getChannel() {
+        return channel;
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public int readFrom(final long pos, byte[] b, int off, int len)
+            throws RuntimeIOException {
+        if(log.trace)
+            log.traceEnter(pos, b, off, len);
+
+        try {
+            if(pos < 0)
+                throw new IllegalArgumentException("pos is negative: " + pos);
+
+            if(len == 0)
+                return 0;
+
+            int res = channel.read(ByteBuffer.wrap(b, off, len), pos);
+            if(log.trace)
+                log.traceReturn(res);
+            return res;
+        } catch(IOException ex) {
+            throw new RuntimeIOException("pos=" + pos + "," + ex.toString(),
+                    ex);
+        } finally {
+            if(log.trace)
+                log.traceLeave(pos, b, off, len);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int readFrom(final long pos, ByteBuffer dst)
+            throws RuntimeIOException {
+        if(log.trace)
+            log.traceEnter(pos, dst);
+
+        try {
+            if(pos < 0)
+                throw new IllegalArgumentException("pos is negative: " + pos);
+
+            if(!dst.hasRemaining())
+                return 0;
+
+            int res = channel.read(dst, pos);
+            if(log.trace)
+                log.traceReturn(res);
+            return res;
+        } catch(IOException ex) {
+            throw new RuntimeIOException("pos=" + pos + "," + ex.toString(),
+                    ex);
+        } finally {
+            if(log.trace)
+                log.traceLeave(pos, dst);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void readFullyFrom(final long pos, byte[] data, int offset,
+            int length) throws RuntimeIOException {
+        if(log.trace)
+            log.traceEnter(pos, data, offset, length);
+
+        try {
+            if(length < 0)
+                throw new IllegalArgumentException("length is negative: " +
+                        length);
+            if(pos < 0)
+                throw new IllegalArgumentException("pos is negative: " + pos);
+
+            final ByteBuffer buf = ByteBuffer.wrap(data, offset, length);
+            while(buf.hasRemaining()) {
+                final int res = channel.read(buf,
+                        pos + (buf.position() - offset));
+                if(res < 0) {
+                    throw new RuntimeIOException("Couldn't read the entire " +
+                            "length.");
+                }
+            }
+        } catch(IOException ex) {
+            throw new RuntimeIOException("pos=" + pos + "," + ex.toString(),
+                    ex);
+        } finally {
+            if(log.trace)
+                log.traceLeave(pos, data, offset, length);
+        }
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public long skipFrom(final long pos, final long length)
+            throws RuntimeIOException {
+        final long streamLength = length();
+        final long newPos = pos + length;
+
+        if(newPos > streamLength)
+            return streamLength - pos;
+        else
+            return length;
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public long remainingLength() throws RuntimeIOException {
+        return length() - getFilePointer();
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public int read(byte[] data, int pos, int len) throws RuntimeIOException {
+        final int res = readFrom(filePointer, data, pos, len);
+        if(res > 0)
+            filePointer += res;
+        return res;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int read(ByteBuffer dst) throws RuntimeIOException {
+        final int res = readFrom(filePointer, dst);
+        if(res > 0)
+            filePointer += res;
+        return res;
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public void seek(long pos) throws RuntimeIOException {
+        if(pos < 0)
+            throw new IllegalArgumentException("pos is negative: " + pos);
+
+        filePointer = pos;
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public long length() throws RuntimeIOException {
+        try {
+            return channel.size();
+        } catch(IOException ex) {
+            throw new RuntimeIOException(ex);
+        }
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public long getFilePointer() throws RuntimeIOException {
+        return filePointer;
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public synchronized void close() throws RuntimeIOException {
+        if(log.trace)
+            log.traceEnter();
+
+        try {
+            if(closed)
+                throw new RuntimeException("Already closed.");
+
+            closed = true;
+            --refCount;
+            tryCloseSource();
+        } finally {
+            if(log.trace)
+                log.traceLeave();
+        }
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public synchronized void addReference(Object referrer) {
+        if(closed)
+            throw new RuntimeIOException("Stream is closed!");
+
+        ++refCount;
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public synchronized void removeReference(Object referrer) {
+        if((closed && refCount == 0) || (!closed && refCount == 1)) {
+            throw new RuntimeException("No references!");
+        }
+
+        --refCount;
+        tryCloseSource();
+    }
+
+    private void tryCloseSource() {
+        if(refCount == 0) {
+            try {
+                raf.close();
+            } catch(IOException ex) {
+                throw new RuntimeIOException(ex);
+            }
+        }
+    }
+
+    /* @Override */
+    public String getOpenPath() {
+        return openPath;
+    }
+}
@@ -22,6 +22,8 @@ import org.catacombae.util.Log;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 /**
  * This class wraps a java.io.RandomAccessFile (opened in read-only mode) and
@@ -146,6 +148,25 @@ public class ReadableFileStream implements ReadableRandomAccessStream,
         }
     }
 
+    public int read(ByteBuffer dst) {
+        if(log.trace)
+            log.traceEnter(dst);
+
+        try {
+            /* The channel shares its position with raf, and reads straight
+             * into direct buffers without an intermediate copy. */
+            int res = raf.getChannel().read(dst);
+            if(log.trace)
+                log.traceReturn(res);
+            return res;
+        } catch(IOException ex) {
+            throw new RuntimeIOException(ex);
+        } finally {
+            if(log.trace)
+                log.traceLeave(dst);
+        }
+    }
+
     public byte readFully() {
         if(log.trace) {
             log.traceEnter();
@@ -237,6 +258,16 @@ public class ReadableFileStream implements ReadableRandomAccessStream,
         }
     }
 
+    /**
+     * Returns the FileChannel of the underlying RandomAccessFile. The position
+     * of the channel is the file pointer of this stream.
+     *
+     * @return the FileChannel of the underlying RandomAccessFile.
+     */
+    public FileChannel getChannel() {
+        return raf.getChannel();
+    }
+
     /* @Override */
     public String getOpenPath() {
         return openPath;
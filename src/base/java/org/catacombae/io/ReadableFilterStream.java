@@ -18,6 +18,8 @@
 
 package org.catacombae.io;
 
+import java.nio.ByteBuffer;
+
 /**
  * Wraps a ReadableRandomAccessStream inside this one and maps all operations
  * one to one to the underlying ReadableRandomAccessStream.
@@ -45,6 +47,9 @@ public class ReadableFilterStream implements ReadableRandomAccessStream {
     public int read(byte[] data, int pos, int len) {
 	return backingStore.read(data, pos, len);
     }
+    public int read(ByteBuffer dst) {
+	return backingStore.read(dst);
+    }
 
     public byte readFully() {
         return backingStore.readFully();
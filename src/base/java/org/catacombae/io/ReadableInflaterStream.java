@@ -0,0 +1,717 @@
+/*-
+ * Copyright (C) 2026 Erik Larsson
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package org.catacombae.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import org.catacombae.util.Log;
+
+/**
+ * A ReadableRandomAccessStream which exposes gzip, zlib or raw deflate
+ * compressed data as its uncompressed byte space.<br>
+ * On construction the whole compressed stream is decoded once (verifying the
+ * gzip/zlib checksums) to build an index of seek points. A seek point is
+ * recorded at the first deflate block boundary after every
+ * <code>span</code> bytes of output, and consists of the bit position of the
+ * block in the compressed data and the 32 KiB of output that preceded it (the
+ * dictionary needed to resume decoding there). The index can be persisted to
+ * a sidecar file, so that later instances for the same data start
+ * immediately.<br>
+ * A read decodes from the closest seek point before it, so random reads cost
+ * at most about <code>span</code> bytes of decoding. Decoded data is cached
+ * in blocks of 64 KiB, and the decoder is kept so that sequential reads
+ * continue where the previous read ended.<br>
+ * Multi-member gzip files are supported. Trailing data after the last member
+ * is ignored. Instances are not thread-safe.
+ *
+ * @author <a href="https://catacombae.org" target="_top">Erik Larsson</a>
+ */
+public class ReadableInflaterStream extends BasicReadableRandomAccessStream {
+    private static final Log log = Log.getInstance(ReadableInflaterStream.class);
+
+    /** The compressed data formats. */
+    public static enum Format {
+        /** Detect the format from the first bytes of the data. */
+        AUTO,
+        /** gzip (RFC 1952), possibly with multiple members. */
+        GZIP,
+        /** zlib (RFC 1950). */
+        ZLIB,
+        /** Raw deflate data (RFC 1951) with no header or trailer. */
+        RAW;
+    }
+
+    /** The default distance between seek points (1 MiB). */
+    public static final int DEFAULT_SPAN = 1024 * 1024;
+
+    /** The size of the blocks of decoded data that are cached. */
+    private static final int CACHE_BLOCK_SIZE = 64 * 1024;
+
+    /** The default number of cached blocks (4 MiB). */
+    private static final int DEFAULT_CACHED_BLOCKS = 64;
+
+    /** Number of bytes at the start of the compressed data that the sidecar
+     * index is validated against. */
+    private static final int VALIDATION_SIZE = 64 * 1024;
+
+    private static final long INDEX_MAGIC = 0x4346425A49445831L; // "CFBZIDX1"
+    private static final int INDEX_VERSION = 1;
+
+    private final ReadableRandomAccessStream source;
+    private final Format format;
+    private final int span;
+    private long length;
+
+    /** Uncompressed position of each seek point. */
+    private long[] pointPositions;
+    /** Bit position in the compressed data of each seek point. */
+    private long[] pointBitPositions;
+    /** Deflate compressed window of each seek point. */
+    private byte[][] pointWindows;
+
+    private final Map<Long, byte[]> blockCache;
+    private Decoder liveDecoder = null;
+    private long filePointer = 0;
+    private boolean closed = false;
+
+    /**
+     * Creates a ReadableInflaterStream with automatic format detection and no
+     * sidecar index.
+     *
+     * @param source the compressed data.
+     */
+    public ReadableInflaterStream(ReadableRandomAccessStream source) {
+        this(source, Format.AUTO, null, DEFAULT_SPAN);
+    }
+
+    /**
+     * Creates a ReadableInflaterStream with automatic format detection, using
+     * <code>indexFile</code> as sidecar index.
+     *
+     * @param source the compressed data.
+     * @param indexFile the sidecar index file, which is loaded if it exists
+     * and matches the data and created otherwise. May be <code>null</code>.
+     */
+    public ReadableInflaterStream(ReadableRandomAccessStream source,
+            File indexFile) {
+        this(source, Format.AUTO, indexFile, DEFAULT_SPAN);
+    }
+
+    /**
+     * Creates a ReadableInflaterStream.
+     *
+     * @param source the compressed data.
+     * @param format the format of the compressed data.
+     * @param indexFile the sidecar index file, which is loaded if it exists
+     * and matches the data and created otherwise. May be <code>null</code>.
+     * @param span the minimum distance in uncompressed bytes between seek
+     * points. Smaller spans give faster random access and a larger index.
+     */
+    public ReadableInflaterStream(ReadableRandomAccessStream source,
+            Format format, File indexFile, int span) {
+        if(log.trace)
+            log.traceEnter(source, format, indexFile, span);
+
+        try {
+            if(source == null)
+                throw new IllegalArgumentException("source may NOT be null");
+            if(span <= 0)
+                throw new IllegalArgumentException("Invalid span: " + span);
+
+            this.source = source;
+            this.format =
+                    (format == Format.AUTO) ? detectFormat(source) : format;
+            this.span = span;
+            this.blockCache = new LinkedHashMap<Long, byte[]>(16, 0.75f,
+                    true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(
+                        Map.Entry<Long, byte[]> eldest) {
+                    return size() > DEFAULT_CACHED_BLOCKS;
+                }
+            };
+
+            if(indexFile == null || !loadIndex(indexFile)) {
+                buildIndex();
+                if(indexFile != null)
+                    saveIndex(indexFile);
+            }
+        } finally {
+            if(log.trace)
+                log.traceLeave(source, format, indexFile, span);
+        }
+    }
+
+    private static Format detectFormat(ReadableRandomAccessStream source) {
+        if(source.length() < 2)
+            return Format.RAW;
+
+        final byte[] magic = new byte[2];
+        source.seek(0);
+        source.readFully(magic);
+
+        final int b0 = magic[0] & 0xFF;
+        final int b1 = magic[1] & 0xFF;
+        if(b0 == 0x1F && b1 == 0x8B)
+            return Format.GZIP;
+        else if((b0 & 0x0F) == 8 && (b0 >>> 4) <= 7 &&
+                ((b0 << 8) | b1) % 31 == 0)
+            return Format.ZLIB;
+        else
+            return Format.RAW;
+    }
+
+    /**
+     * Returns the format of the compressed data.
+     *
+     * @return the format of the compressed data.
+     */
+    public Format getFormat() {
+        return format;
+    }
+
+    /**
+     * Returns the number of seek points in the index.
+     *
+     * @return the number of seek points in the index.
+     */
+    public int getSeekPointCount() {
+        return pointPositions.length;
+    }
+
+    /**
+     * Decodes the data of one gzip, zlib or raw deflate stream, handling the
+     * headers and trailers around the deflate data.
+     */
+    private class Decoder {
+        final DeflateDecoder deflate;
+        /** Checksum of the current member's output, if verifying. */
+        final Checksum checksum;
+        long position;
+        long memberLength = 0;
+        boolean finished = false;
+
+        /** Creates a decoder positioned at the start of the data. */
+        Decoder(boolean verify) {
+            this.deflate = new DeflateDecoder(source, 0, null);
+            this.position = 0;
+
+            if(format == Format.GZIP) {
+                if(!readGzipHeader(false))
+                    throw new RuntimeIOException("Not a gzip file.");
+            }
+            else if(format == Format.ZLIB)
+                readZlibHeader();
+
+            if(!verify || format == Format.RAW)
+                this.checksum = null;
+            else if(format == Format.GZIP)
+                this.checksum = new CRC32();
+            else
+                this.checksum = new Adler32();
+        }
+
+        /** Creates a decoder positioned at seek point <code>index</code>. */
+        Decoder(int index) {
+            this.deflate = new DeflateDecoder(source,
+                    pointBitPositions[index], inflateWindow(index));
+            this.position = pointPositions[index];
+            this.checksum = null;
+        }
+
+        private int readByte() {
+            final int res = deflate.readByte();
+            if(res < 0) {
+                throw new RuntimeIOException("Unexpected end of compressed " +
+                        "data.");
+            }
+            return res;
+        }
+
+        private long readLE(int byteCount) {
+            long res = 0;
+            for(int i = 0; i < byteCount; ++i)
+                res |= (long) readByte() << (8 * i);
+            return res;
+        }
+
+        /**
+         * Reads a gzip member header.
+         *
+         * @param optional if <code>true</code>, return <code>false</code> if
+         * the data doesn't start with a gzip header (trailing data).
+         */
+        private boolean readGzipHeader(boolean optional) {
+            final int id1 = deflate.readByte();
+            final int id2 = (id1 == 0x1F) ? deflate.readByte() : -1;
+            if(id1 != 0x1F || id2 != 0x8B) {
+                if(optional)
+                    return false;
+                throw new RuntimeIOException("Invalid gzip header.");
+            }
+
+            final int method = readByte();
+            if(method != 8) {
+                throw new RuntimeIOException("Unsupported gzip compression " +
+                        "method: " + method);
+            }
+
+            final int flags = readByte();
+            readLE(6); // MTIME, XFL, OS
+            if((flags & 0x04) != 0) {
+                /* FEXTRA */
+                final int extraLength = (int) readLE(2);
+                for(int i = 0; i < extraLength; ++i)
+                    readByte();
+            }
+            if((flags & 0x08) != 0) {
+                /* FNAME */
+                while(readByte() != 0);
+            }
+            if((flags & 0x10) != 0) {
+                /* FCOMMENT */
+                while(readByte() != 0);
+            }
+            if((flags & 0x02) != 0) {
+                /* FHCRC */
+                readLE(2);
+            }
+
+            return true;
+        }
+
+        private void readZlibHeader() {
+            readByte(); // CMF, validated by detectFormat
+            final int flags = readByte();
+            if((flags & 0x20) != 0) {
+                throw new RuntimeIOException("zlib streams with a preset " +
+                        "dictionary are not supported.");
+            }
+        }
+
+        /**
+         * Handles the end of a deflate stream.
+         *
+         * @return whether another gzip member follows.
+         */
+        private boolean finishStream() {
+            deflate.alignToByte();
+
+            if(format == Format.GZIP) {
+                final long crc = readLE(4);
+                final long size = readLE(4);
+                if(checksum != null) {
+                    if(crc != checksum.getValue()) {
+                        throw new RuntimeIOException("gzip CRC32 mismatch " +
+                                "at uncompressed position " + position + ".");
+                    }
+                    else if(size != (memberLength & 0xFFFFFFFFL)) {
+                        throw new RuntimeIOException("gzip length mismatch " +
+                                "at uncompressed position " + position + ".");
+                    }
+                }
+
+                if(!readGzipHeader(true))
+                    return false;
+
+                if(checksum != null)
+                    checksum.reset();
+                memberLength = 0;
+                deflate.startNextStream();
+                return true;
+            }
+            else if(format == Format.ZLIB) {
+                long adler = 0;
+                for(int i = 0; i < 4; ++i)
+                    adler = (adler << 8) | readByte();
+                if(checksum != null && adler != checksum.getValue()) {
+                    throw new RuntimeIOException("zlib Adler32 mismatch.");
+                }
+            }
+
+            return false;
+        }
+
+        /**
+         * Decodes up to <code>len</code> bytes.
+         *
+         * @return the number of bytes decoded, which may be 0 only if
+         * <code>stopAtBlockBoundary</code> is set, or -1 at the end of the
+         * data.
+         */
+        int read(byte[] b, int off, int len, boolean stopAtBlockBoundary) {
+            while(!finished) {
+                final int res =
+                        deflate.inflate(b, off, len, stopAtBlockBoundary);
+                if(res > 0 || !deflate.isFinished() || len == 0) {
+                    if(checksum != null)
+                        checksum.update(b, off, res);
+                    position += res;
+                    memberLength += res;
+                    return res;
+                }
+
+                if(!finishStream())
+                    finished = true;
+            }
+
+            return -1;
+        }
+
+        /** Decodes and discards <code>n</code> bytes. */
+        void skip(long n, byte[] scratch) {
+            while(n > 0) {
+                final int res = read(scratch, 0,
+                        (int) Math.min(n, scratch.length), false);
+                if(res < 0) {
+                    throw new RuntimeIOException("Unexpected end of " +
+                            "compressed data.");
+                }
+                n -= res;
+            }
+        }
+    }
+
+    private void buildIndex() {
+        if(log.debug)
+            log.debug("Building seek index for " + source + "...");
+
+        final List<Long> positions = new ArrayList<Long>();
+        final List<Long> bitPositions = new ArrayList<Long>();
+        final List<byte[]> windows = new ArrayList<byte[]>();
+
+        final Decoder decoder = new Decoder(true);
+        final byte[] buffer = new byte[CACHE_BLOCK_SIZE];
+        long lastPointPosition = -span;
+        while(true) {
+            if(decoder.deflate.isAtBlockBoundary() &&
+                    decoder.position - lastPointPosition >= span)
+            {
+                positions.add(decoder.position);
+                bitPositions.add(decoder.deflate.getBitPosition());
+                windows.add(deflateWindow(decoder.deflate.getWindow()));
+                lastPointPosition = decoder.position;
+            }
+
+            if(decoder.read(buffer, 0, buffer.length, true) < 0)
+                break;
+        }
+
+        this.length = decoder.position;
+        this.pointPositions = new long[positions.size()];
+        this.pointBitPositions = new long[positions.size()];
+        this.pointWindows = windows.toArray(new byte[windows.size()][]);
+        for(int i = 0; i < pointPositions.length; ++i) {
+            pointPositions[i] = positions.get(i);
+            pointBitPositions[i] = bitPositions.get(i);
+        }
+
+        if(log.debug) {
+            log.debug("Built seek index with " + pointPositions.length +
+                    " points for " + length + " uncompressed bytes.");
+        }
+    }
+
+    private static byte[] deflateWindow(byte[] window) {
+        final Deflater deflater = new Deflater();
+        try {
+            deflater.setInput(window);
+            deflater.finish();
+
+            final ByteArrayOutputStream out =
+                    new ByteArrayOutputStream(window.length / 2 + 64);
+            final byte[] buffer = new byte[8192];
+            while(!deflater.finished()) {
+                final int res = deflater.deflate(buffer);
+                out.write(buffer, 0, res);
+            }
+
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private byte[] inflateWindow(int index) {
+        final Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(pointWindows[index]);
+
+            final byte[] buffer = new byte[DeflateDecoder.WINDOW_SIZE];
+            int length = 0;
+            while(!inflater.finished() && length < buffer.length) {
+                final int res = inflater.inflate(buffer, length,
+                        buffer.length - length);
+                if(res == 0 && !inflater.finished() &&
+                        (inflater.needsInput() || inflater.needsDictionary()))
+                    throw new RuntimeIOException("Corrupt seek point window.");
+                length += res;
+            }
+
+            final byte[] res = new byte[length];
+            System.arraycopy(buffer, 0, res, 0, length);
+            return res;
+        } catch(DataFormatException ex) {
+            throw new RuntimeIOException("Corrupt seek point window: " +
+                    ex.getMessage());
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /** Computes the CRC32 of the first bytes of the compressed data. */
+    private long getValidationChecksum() {
+        final byte[] data =
+                new byte[(int) Math.min(VALIDATION_SIZE, source.length())];
+        source.seek(0);
+        source.readFully(data);
+
+        final CRC32 crc = new CRC32();
+        crc.update(data);
+        return crc.getValue();
+    }
+
+    private boolean loadIndex(File indexFile) {
+        if(!indexFile.exists())
+            return false;
+
+        try {
+            final DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(new FileInputStream(indexFile)));
+            try {
+                if(in.readLong() != INDEX_MAGIC ||
+                        in.readInt() != INDEX_VERSION ||
+                        in.readLong() != source.length() ||
+                        in.readLong() != getValidationChecksum() ||
+                        in.readInt() != format.ordinal() ||
+                        in.readInt() != span)
+                {
+                    if(log.debug)
+                        log.debug("Index " + indexFile + " doesn't match.");
+                    return false;
+                }
+
+                final long newLength = in.readLong();
+                final int pointCount = in.readInt();
+                final long[] positions = new long[pointCount];
+                final long[] bitPositions = new long[pointCount];
+                final byte[][] windows = new byte[pointCount][];
+                for(int i = 0; i < pointCount; ++i) {
+                    positions[i] = in.readLong();
+                    bitPositions[i] = in.readLong();
+                    windows[i] = new byte[in.readInt()];
+                    in.readFully(windows[i]);
+                }
+
+                this.length = newLength;
+                this.pointPositions = positions;
+                this.pointBitPositions = bitPositions;
+                this.pointWindows = windows;
+                return true;
+            } finally {
+                in.close();
+            }
+        } catch(IOException ex) {
+            if(log.debug) {
+                log.debug("Failed to load index " + indexFile + ": " + ex);
+            }
+            return false;
+        }
+    }
+
+    private void saveIndex(File indexFile) {
+        try {
+            final DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(indexFile)));
+            boolean success = false;
+            try {
+                out.writeLong(INDEX_MAGIC);
+                out.writeInt(INDEX_VERSION);
+                out.writeLong(source.length());
+                out.writeLong(getValidationChecksum());
+                out.writeInt(format.ordinal());
+                out.writeInt(span);
+                out.writeLong(length);
+                out.writeInt(pointPositions.length);
+                for(int i = 0; i < pointPositions.length; ++i) {
+                    out.writeLong(pointPositions[i]);
+                    out.writeLong(pointBitPositions[i]);
+                    out.writeInt(pointWindows[i].length);
+                    out.write(pointWindows[i]);
+                }
+                success = true;
+            } finally {
+                out.close();
+                if(!success)
+                    indexFile.delete();
+            }
+        } catch(IOException ex) {
+            /* The index is only an optimization, so carry on without it. */
+            if(log.debug) {
+                log.debug("Failed to save index " + indexFile + ": " + ex);
+            }
+        }
+    }
+
+    /**
+     * Returns the index of the last seek point at or before uncompressed
+     * position <code>pos</code>.
+     */
+    private int findSeekPoint(long pos) {
+        int low = 0;
+        int high = pointPositions.length - 1;
+        while(low < high) {
+            final int mid = (low + high + 1) >>> 1;
+            if(pointPositions[mid] <= pos)
+                low = mid;
+            else
+                high = mid - 1;
+        }
+
+        return low;
+    }
+
+    /**
+     * Returns cached block <code>blockIndex</code>, decoding it (and any
+     * blocks between the current decoder position and it) if needed.
+     */
+    private byte[] getBlock(long blockIndex) {
+        byte[] block = blockCache.get(blockIndex);
+        if(block != null)
+            return block;
+
+        final long blockStart = blockIndex * CACHE_BLOCK_SIZE;
+        final int pointIndex = findSeekPoint(blockStart);
+        if(liveDecoder == null || liveDecoder.finished ||
+                liveDecoder.position > blockStart ||
+                liveDecoder.position < pointPositions[pointIndex])
+        {
+            liveDecoder = new Decoder(pointIndex);
+        }
+
+        final Decoder decoder = liveDecoder;
+        if(decoder.position % CACHE_BLOCK_SIZE != 0) {
+            /* Fresh decoder at an unaligned seek point. Skip to the next
+             * block boundary. */
+            decoder.skip(CACHE_BLOCK_SIZE -
+                    decoder.position % CACHE_BLOCK_SIZE,
+                    new byte[CACHE_BLOCK_SIZE]);
+        }
+
+        while(true) {
+            final long curBlockIndex = decoder.position / CACHE_BLOCK_SIZE;
+            final byte[] curBlock = new byte[(int) Math.min(CACHE_BLOCK_SIZE,
+                    length - decoder.position)];
+            int bytesRead = 0;
+            while(bytesRead < curBlock.length) {
+                final int res = decoder.read(curBlock, bytesRead,
+                        curBlock.length - bytesRead, false);
+                if(res < 0) {
+                    throw new RuntimeIOException("Unexpected end of " +
+                            "compressed data.");
+                }
+                bytesRead += res;
+            }
+
+            blockCache.put(curBlockIndex, curBlock);
+            if(curBlockIndex == blockIndex)
+                return curBlock;
+        }
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public int read(byte[] data, int pos, int len) throws RuntimeIOException {
+        if(closed)
+            throw new RuntimeIOException("Stream is closed!");
+
+        if(len == 0)
+            return 0;
+        else if(filePointer >= length)
+            return -1;
+
+        final int bytesToRead = (int) Math.min(len, length - filePointer);
+        int bytesRead = 0;
+        while(bytesRead < bytesToRead) {
+            final byte[] block = getBlock(filePointer / CACHE_BLOCK_SIZE);
+            final int blockOffset = (int) (filePointer % CACHE_BLOCK_SIZE);
+            final int curBytesToRead = Math.min(bytesToRead - bytesRead,
+                    block.length - blockOffset);
+
+            System.arraycopy(block, blockOffset, data, pos + bytesRead,
+                    curBytesToRead);
+            bytesRead += curBytesToRead;
+            filePointer += curBytesToRead;
+        }
+
+        return bytesRead;
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public void seek(long pos) throws RuntimeIOException {
+        if(pos < 0)
+            throw new IllegalArgumentException("pos is negative: " + pos);
+
+        filePointer = pos;
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public long length() throws RuntimeIOException {
+        return length;
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public long getFilePointer() throws RuntimeIOException {
+        return filePointer;
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public void close() throws RuntimeIOException {
+        if(closed)
+            throw new RuntimeException("Already closed.");
+
+        closed = true;
+        liveDecoder = null;
+        blockCache.clear();
+        source.close();
+    }
+}
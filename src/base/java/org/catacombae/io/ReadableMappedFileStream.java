@@ -0,0 +1,298 @@
+/*-
+ * Copyright (C) 2026 Erik Larsson
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package org.catacombae.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import org.catacombae.util.Log;
+
+/**
+ * This class maps a file (opened in read-only mode) into memory and maps its
+ * operations to the operations of ReadableRandomAccessStream.<br>
+ * The file is mapped in segments of a fixed size, which are created lazily on
+ * first access, so files larger than the 2 GiB limit of a single
+ * MappedByteBuffer can be accessed. Reads from a segment that has already been
+ * mapped are served directly from the page cache without any system call.<br>
+ * Java offers no way to explicitly unmap a MappedByteBuffer, so the mappings
+ * are released when they are garbage collected, some time after
+ * <code>close()</code> has been called.
+ *
+ * @author <a href="https://catacombae.org" target="_top">Erik Larsson</a>
+ */
+public class ReadableMappedFileStream extends BasicReadableRandomAccessStream
+        implements AbstractFileStream
+{
+    private static final Log log =
+            Log.getInstance(ReadableMappedFileStream.class);
+
+    /** The default size of each mapped segment (1 GiB). */
+    public static final int DEFAULT_SEGMENT_SIZE = 1024 * 1024 * 1024;
+
+    protected final RandomAccessFile raf;
+    protected final FileChannel channel;
+    protected final int segmentSize;
+    private final FileChannel.MapMode mapMode;
+    private final String openPath;
+
+    /** Mapped segments, indexed by position / segmentSize. */
+    protected MappedByteBuffer[] segments;
+    /** The length of the stream. */
+    protected long length;
+    /**
+     * The length of the underlying file, which determines the extent of the
+     * mappings. Subclasses may keep the file larger than the stream.
+     */
+    protected long fileLength;
+    protected long filePointer = 0;
+    private boolean closed = false;
+
+    public ReadableMappedFileStream(String filename) {
+        this(new File(filename));
+    }
+
+    public ReadableMappedFileStream(File file) {
+        this(file, DEFAULT_SEGMENT_SIZE);
+    }
+
+    public ReadableMappedFileStream(File file, int segmentSize) {
+        this(file, "r", segmentSize);
+    }
+
+    protected ReadableMappedFileStream(File file, String mode,
+            int segmentSize)
+    {
+        if(log.trace)
+            log.traceEnter(file, mode, segmentSize);
+
+        try {
+            if(segmentSize <= 0) {
+                throw new IllegalArgumentException("Invalid segment size: " +
+                        segmentSize);
+            }
+
+            this.raf = new RandomAccessFile(file, mode);
+            this.channel = raf.getChannel();
+            this.segmentSize = segmentSize;
+            this.mapMode = mode.equals("r") ? FileChannel.MapMode.READ_ONLY :
+                FileChannel.MapMode.READ_WRITE;
+            this.openPath = file.getPath();
+            this.length = raf.length();
+            this.fileLength = length;
+            this.segments = new MappedByteBuffer[getSegmentCount(length)];
+        } catch(IOException ex) {
+            throw new RuntimeIOException(ex);
+        } finally {
+            if(log.trace)
+                log.traceLeave(file, mode, segmentSize);
+        }
+    }
+
+    private int getSegmentCount(long fileLength) {
+        final long count = (fileLength + segmentSize - 1) / segmentSize;
+        if(count > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("File too large for segment " +
+                    "size " + segmentSize + ": " + fileLength);
+        }
+
+        return (int) count;
+    }
+
+    /**
+     * Returns the mapped segment with the specified index, mapping it if
+     * needed. The returned buffer covers the whole segment or, for the last
+     * segment, the part of it that lies within the underlying file.
+     *
+     * @param index the index of the segment.
+     * @return the mapped segment.
+     */
+    protected MappedByteBuffer getSegment(int index) {
+        if(closed)
+            throw new RuntimeIOException("Stream is closed!");
+
+        final long segmentStart = (long) index * segmentSize;
+        final int segmentLength =
+                (int) Math.min(segmentSize, fileLength - segmentStart);
+
+        MappedByteBuffer segment = segments[index];
+        if(segment == null || segment.capacity() != segmentLength) {
+            if(log.debug) {
+                log.debug("Mapping segment " + index + " (" + segmentStart +
+                        ", " + segmentLength + ")");
+            }
+
+            try {
+                segment = channel.map(mapMode, segmentStart, segmentLength);
+            } catch(IOException ex) {
+                throw new RuntimeIOException("Failed to map segment at " +
+                        segmentStart + "," + ex.toString(), ex);
+            }
+
+            segments[index] = segment;
+        }
+
+        return segment;
+    }
+
+    /**
+     * Changes the cached length of the underlying file, resizing the segment
+     * table if needed. Segments whose extent has changed are remapped on next
+     * access. The length of the stream is not affected.
+     *
+     * @param newLength the new length of the underlying file.
+     */
+    protected void setMappedLength(long newLength) {
+        final int segmentCount = getSegmentCount(newLength);
+        if(segmentCount != segments.length) {
+            MappedByteBuffer[] newSegments =
+                    new MappedByteBuffer[segmentCount];
+            System.arraycopy(segments, 0, newSegments, 0,
+                    Math.min(segments.length, segmentCount));
+            segments = newSegments;
+        }
+
+        fileLength = newLength;
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public void seek(long pos) {
+        if(pos < 0)
+            throw new IllegalArgumentException("pos is negative: " + pos);
+
+        filePointer = pos;
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public int read(byte[] data, int pos, int len) {
+        if(log.trace)
+            log.traceEnter(data, pos, len);
+
+        try {
+            if(filePointer >= length)
+                return len == 0 ? 0 : -1;
+
+            final int bytesToRead =
+                    (int) Math.min(len, length - filePointer);
+            int bytesRead = 0;
+            while(bytesRead < bytesToRead) {
+                final int segmentIndex = (int) (filePointer / segmentSize);
+                final int segmentOffset = (int) (filePointer % segmentSize);
+                final MappedByteBuffer segment = getSegment(segmentIndex);
+                final int curBytesToRead = Math.min(bytesToRead - bytesRead,
+                        segment.capacity() - segmentOffset);
+
+                segment.position(segmentOffset);
+                segment.get(data, pos + bytesRead, curBytesToRead);
+
+                bytesRead += curBytesToRead;
+                filePointer += curBytesToRead;
+            }
+
+            if(log.trace)
+                log.traceReturn(bytesRead);
+            return bytesRead;
+        } finally {
+            if(log.trace)
+                log.traceLeave(data, pos, len);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int read(ByteBuffer dst) {
+        if(log.trace)
+            log.traceEnter(dst);
+
+        try {
+            if(!dst.hasRemaining())
+                return 0;
+            if(filePointer >= length)
+                return -1;
+
+            final int bytesToRead =
+                    (int) Math.min(dst.remaining(), length - filePointer);
+            int bytesRead = 0;
+            while(bytesRead < bytesToRead) {
+                final int segmentIndex = (int) (filePointer / segmentSize);
+                final int segmentOffset = (int) (filePointer % segmentSize);
+                final MappedByteBuffer segment = getSegment(segmentIndex);
+                final int curBytesToRead = Math.min(bytesToRead - bytesRead,
+                        segment.capacity() - segmentOffset);
+
+                segment.limit(segmentOffset + curBytesToRead);
+                segment.position(segmentOffset);
+                dst.put(segment);
+                segment.limit(segment.capacity());
+
+                bytesRead += curBytesToRead;
+                filePointer += curBytesToRead;
+            }
+
+            if(log.trace)
+                log.traceReturn(bytesRead);
+            return bytesRead;
+        } finally {
+            if(log.trace)
+                log.traceLeave(dst);
+        }
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public long length() {
+        return length;
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public long getFilePointer() {
+        return filePointer;
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public void close() {
+        if(log.trace)
+            log.traceEnter();
+
+        try {
+            if(closed)
+                throw new RuntimeException("Already closed.");
+
+            closed = true;
+            segments = null;
+            raf.close();
+        } catch(IOException ex) {
+            throw new RuntimeIOException(ex);
+        } finally {
+            if(log.trace)
+                log.traceLeave();
+        }
+    }
+
+    /* @Override */
+    public String getOpenPath() {
+        return openPath;
+    }
+}
@@ -18,6 +18,7 @@
 
 package org.catacombae.io;
 
+import java.nio.ByteBuffer;
 import org.catacombae.util.Util;
 
 /**
@@ -98,4 +99,18 @@ public class ReadableRandomAccessSubstream extends BasicReadableRandomAccessStre
         }
     }
 
+    @Override
+    public int read(ByteBuffer dst) throws RuntimeIOException {
+        int bytesRead = sourceStream.readFrom(internalFP, dst);
+        if(bytesRead > 0) {
+            internalFP += bytesRead;
+            return bytesRead;
+        }
+        else if(!dst.hasRemaining()) {
+            return 0;
+        }
+        else {
+            return -1;
+        }
+    }
 }
@@ -0,0 +1,94 @@
+/*-
+ * Copyright (C) 2026 Erik Larsson
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package org.catacombae.io;
+
+import java.util.Iterator;
+
+/**
+ * Interface for streams which know which of their regions are holes, i.e.
+ * read as zeroes without being backed by any data. Tools that copy, hash or
+ * scan a stream can use the extents to skip the holes without reading them.
+ * <br>
+ * For streams that don't implement this interface, {@link HoleMap} finds the
+ * holes by scanning for zero blocks.
+ *
+ * @author <a href="https://catacombae.org" target="_top">Erik Larsson</a>
+ */
+public interface SparseStream {
+    /**
+     * A contiguous region of a stream which is either all data or all hole.
+     */
+    public static class Extent {
+        private final long start;
+        private final long length;
+        private final boolean hole;
+
+        public Extent(long start, long length, boolean hole) {
+            if(start < 0)
+                throw new IllegalArgumentException("Negative start: " + start);
+            if(length < 0) {
+                throw new IllegalArgumentException("Negative length: " +
+                        length);
+            }
+
+            this.start = start;
+            this.length = length;
+            this.hole = hole;
+        }
+
+        /** Returns the stream position where this extent starts. */
+        public long getStart() {
+            return start;
+        }
+
+        /** Returns the length of this extent in bytes. */
+        public long getLength() {
+            return length;
+        }
+
+        /** Returns the stream position just after the end of this extent. */
+        public long getEnd() {
+            return start + length;
+        }
+
+        /**
+         * Returns whether this extent is a hole. A hole reads as zeroes. A
+         * data extent may also contain zeroes.
+         */
+        public boolean isHole() {
+            return hole;
+        }
+
+        @Override
+        public String toString() {
+            return (hole ? "hole" : "data") + "[" + start + ", " + getEnd() +
+                    ")";
+        }
+    }
+
+    /**
+     * Returns the extents of the stream in offset order. The extents are
+     * contiguous, cover the whole stream and adjacent extents are never of
+     * the same kind.
+     *
+     * @return an iterator over the extents of the stream.
+     * @throws org.catacombae.io.RuntimeIOException if an I/O error occurred.
+     */
+    public Iterator<Extent> getExtents() throws RuntimeIOException;
+}
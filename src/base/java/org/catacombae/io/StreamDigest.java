@@ -0,0 +1,191 @@
+/*-
+ * Copyright (C) 2026 Erik Larsson
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package org.catacombae.io;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+import org.catacombae.util.CRC32C;
+
+/**
+ * A checksum or message digest that can be computed over the data read from a
+ * stream by {@link ReadableDigestFilterStream}. Checksums (CRC32, CRC32C,
+ * Adler32) and java.security.MessageDigest algorithms are hidden behind the
+ * same interface. Custom algorithms can be plugged in by subclassing.<br>
+ * Instances are not thread-safe.
+ *
+ * @author <a href="https://catacombae.org" target="_top">Erik Larsson</a>
+ */
+public abstract class StreamDigest {
+    /**
+     * The built-in digest algorithms.
+     */
+    public static enum Algorithm {
+        CRC32("CRC32"),
+        CRC32C("CRC32C"),
+        ADLER32("Adler32"),
+        MD5("MD5"),
+        SHA1("SHA-1"),
+        SHA256("SHA-256");
+
+        private final String name;
+
+        private Algorithm(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Returns the name of the algorithm, which for MessageDigest
+         * algorithms is the standard Java algorithm name.
+         *
+         * @return the name of the algorithm.
+         */
+        public String getName() {
+            return name;
+        }
+    }
+
+    /**
+     * Creates a new digest for one of the built-in algorithms.
+     *
+     * @param algorithm the algorithm of the new digest.
+     * @return a new digest in its initial state.
+     */
+    public static StreamDigest create(Algorithm algorithm) {
+        switch(algorithm) {
+            case CRC32:
+                return new ChecksumDigest(algorithm.getName(), new CRC32());
+            case CRC32C:
+                return new ChecksumDigest(algorithm.getName(), new CRC32C());
+            case ADLER32:
+                return new ChecksumDigest(algorithm.getName(), new Adler32());
+            case MD5:
+            case SHA1:
+            case SHA256:
+                try {
+                    return new MessageDigestDigest(
+                            MessageDigest.getInstance(algorithm.getName()));
+                } catch(NoSuchAlgorithmException ex) {
+                    throw new RuntimeException("Required algorithm " +
+                            algorithm.getName() + " not available.", ex);
+                }
+            default:
+                throw new RuntimeException("Unknown algorithm: " + algorithm);
+        }
+    }
+
+    /**
+     * Returns the name of the algorithm of this digest.
+     *
+     * @return the name of the algorithm of this digest.
+     */
+    public abstract String getName();
+
+    /**
+     * Updates the digest with <code>len</code> bytes from <code>b</code>,
+     * starting at <code>off</code>.
+     *
+     * @param b the array containing the data.
+     * @param off the offset of the data in <code>b</code>.
+     * @param len the number of bytes to update the digest with.
+     */
+    public abstract void update(byte[] b, int off, int len);
+
+    /**
+     * Returns the digest of the data so far, without resetting it. Checksums
+     * are returned as 4 big endian bytes.
+     *
+     * @return the digest of the data so far.
+     */
+    public abstract byte[] getValue();
+
+    /** Resets the digest to its initial state. */
+    public abstract void reset();
+
+    private static class ChecksumDigest extends StreamDigest {
+        private final String name;
+        private final Checksum checksum;
+
+        public ChecksumDigest(String name, Checksum checksum) {
+            this.name = name;
+            this.checksum = checksum;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public void update(byte[] b, int off, int len) {
+            checksum.update(b, off, len);
+        }
+
+        @Override
+        public byte[] getValue() {
+            final long value = checksum.getValue();
+            return new byte[] {
+                (byte) (value >>> 24), (byte) (value >>> 16),
+                (byte) (value >>> 8), (byte) value
+            };
+        }
+
+        @Override
+        public void reset() {
+            checksum.reset();
+        }
+    }
+
+    private static class MessageDigestDigest extends StreamDigest {
+        private final MessageDigest digest;
+
+        public MessageDigestDigest(MessageDigest digest) {
+            this.digest = digest;
+        }
+
+        @Override
+        public String getName() {
+            return digest.getAlgorithm();
+        }
+
+        @Override
+        public void update(byte[] b, int off, int len) {
+            digest.update(b, off, len);
+        }
+
+        @Override
+        public byte[] getValue() {
+            /* MessageDigest.digest() resets the digest, so compute the value
+             * on a copy. */
+            try {
+                return ((MessageDigest) digest.clone()).digest();
+            } catch(CloneNotSupportedException ex) {
+                throw new RuntimeException("Digest " + digest.getAlgorithm() +
+                        " can't be cloned.", ex);
+            }
+        }
+
+        @Override
+        public void reset() {
+            digest.reset();
+        }
+    }
+}
@@ -18,6 +18,8 @@
 
 package org.catacombae.io;
 
+import java.nio.ByteBuffer;
+
 /**
  * Interface that defines methods to access a ReadableRandomAccessStream in a thread-safe way.
  * 
@@ -32,6 +34,9 @@ public interface SynchronizedReadable {
     
     /** Atomic seek+read. Does <b>not</b> change the file pointer of the stream permanently! */
     public int readFrom(final long pos, byte[] b, int off, int len) throws RuntimeIOException;
+
+    /** Atomic seek+read. Does <b>not</b> change the file pointer of the stream permanently! */
+    public int readFrom(final long pos, ByteBuffer dst) throws RuntimeIOException;
     
     /** Atomic seek+read. Does <b>not</b> change the file pointer of the stream permanently! */
     public void readFullyFrom(final long pos, byte[] data) throws RuntimeIOException;
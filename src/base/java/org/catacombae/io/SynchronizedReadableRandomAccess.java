@@ -39,4 +39,26 @@ public interface SynchronizedReadableRandomAccess extends SynchronizedReadable,
      * @param referrer the object referring to this stream.
      */
     public void removeReference(Object referrer);
+
+    /**
+     * Reads a batch of regions from the stream in one operation. Region
+     * <code>i</code> starts at stream position <code>positions[i]</code> and
+     * is read into <code>data[i]</code> at <code>offsets[i]</code> until
+     * <code>lengths[i]</code> bytes have been read.<br>
+     * Implementations are free to reorder the reads and to merge regions that
+     * are adjacent or close to each other into larger reads, so the regions
+     * may be given in any order and may overlap. Like the other
+     * <code>readFrom</code> methods, this does <b>not</b> change the file
+     * pointer of the stream.
+     *
+     * @param positions the stream positions of the regions.
+     * @param data the arrays where the data of each region should be stored.
+     * @param offsets the offsets in the output arrays where the data of each
+     * region should be stored.
+     * @param lengths the number of bytes to read for each region.
+     * @throws org.catacombae.io.RuntimeIOException if the stream doesn't
+     * contain all of the regions, or if an I/O error occurred.
+     */
+    public void readFullyFromMany(long[] positions, byte[][] data,
+            int[] offsets, int[] lengths) throws RuntimeIOException;
 }
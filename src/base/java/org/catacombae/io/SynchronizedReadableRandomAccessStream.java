@@ -18,13 +18,28 @@
 
 package org.catacombae.io;
 
+import java.nio.ByteBuffer;
 import java.util.HashMap;
+import java.util.LinkedList;
 import org.catacombae.util.Util;
 
 /**
  * This class adds concurrency safety to a random access stream. It includes a
  * seek+read atomic operation. All operations on this object is synchronized on
- * its own monitor.
+ * its own monitor, except <code>length()</code> and
+ * <code>getFilePointer()</code>, which don't lock. <code>length()</code> asks
+ * the underlying stream directly, so its <code>length()</code> must be safe to
+ * call concurrently with its other methods, as it is for the streams in this
+ * package. <code>getFilePointer()</code> returns the file pointer as last set
+ * through this stream.<br>
+ * In pooled mode, created with a {@link HandleFactory}, the stream additionally
+ * keeps a small pool of independently opened handles to the same data. Each
+ * concurrent <code>readFrom</code> borrows a handle from the pool and seeks and
+ * reads on it without taking the lock, so that reads from backing streams
+ * which can't do positional reads (such as a {@link ReadableConcatenatedStream}
+ * over files) can proceed in parallel. Handles are opened lazily, up to the
+ * pool size. When all handles are busy, reads fall back to the locked main
+ * stream.
  *
  * @author <a href="https://catacombae.org" target="_top">Erik Larsson</a>
  */
@@ -45,6 +60,24 @@ public class SynchronizedReadableRandomAccessStream
             SynchronizedReadableRandomAccessStream.class.getSimpleName() +
             ".references_debug");
 
+    /**
+     * Opens new, independent handles to the data of the main stream for a
+     * pooled SynchronizedReadableRandomAccessStream.
+     */
+    public static interface HandleFactory {
+        /**
+         * Opens a new handle. The handle must have its own file pointer and
+         * must not share any unsynchronized state with the main stream or
+         * with other handles.
+         *
+         * @return a newly opened handle.
+         * @throws org.catacombae.io.RuntimeIOException if an I/O error
+         * occurred.
+         */
+        public ReadableRandomAccessStream openHandle()
+                throws RuntimeIOException;
+    }
+
     /** The underlying stream. */
     private ReadableRandomAccessStream ras;
     private long refCount;
@@ -52,10 +85,50 @@ public class SynchronizedReadableRandomAccessStream
     private HashMap<Object, Reference> references =
             REFERENCES_DEBUG ? new HashMap<Object, Reference>() : null;
 
+    /**
+     * Mirror of the file pointer of <code>ras</code>, only used by the
+     * lock-free {@link #getFilePointer()}. The file pointer of
+     * <code>ras</code> itself is the one that counts, and is what the locked
+     * methods use.
+     */
+    private volatile long filePointer;
+
+    private final HandleFactory handleFactory;
+    private final int poolSize;
+    /** Idle pool handles. All pool state is guarded by this list. */
+    private final LinkedList<ReadableRandomAccessStream> idleHandles;
+    private int openHandleCount = 0;
+    private boolean handlesClosed = false;
+
     public SynchronizedReadableRandomAccessStream(
             ReadableRandomAccessStream sourceStream) {
+        this(sourceStream, null, 0);
+    }
+
+    /**
+     * Creates a pooled SynchronizedReadableRandomAccessStream.
+     *
+     * @param sourceStream the main stream, which serves the file pointer based
+     * operations.
+     * @param handleFactory the factory which opens additional handles for the
+     * pool, or <code>null</code> for no pool.
+     * @param poolSize the maximum number of additional handles to open.
+     */
+    public SynchronizedReadableRandomAccessStream(
+            ReadableRandomAccessStream sourceStream,
+            HandleFactory handleFactory, int poolSize) {
+        if(poolSize < 0) {
+            throw new IllegalArgumentException("Negative pool size: " +
+                    poolSize);
+        }
+
         this.ras = sourceStream;
         this.refCount = 1;
+        this.filePointer = sourceStream.getFilePointer();
+        this.handleFactory = poolSize > 0 ? handleFactory : null;
+        this.poolSize = poolSize;
+        this.idleHandles = this.handleFactory != null ?
+            new LinkedList<ReadableRandomAccessStream>() : null;
 
         if(REFERENCES_DEBUG) {
             references.put(this, new Reference(this,
@@ -74,9 +147,101 @@ public class SynchronizedReadableRandomAccessStream
         return ras;
     }
 
+    /**
+     * Returns the maximum number of additional handles in the pool, or 0 if
+     * this stream isn't pooled.
+     *
+     * @return the maximum number of additional handles in the pool.
+     */
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    /**
+     * Borrows an idle handle from the pool, opening a new one if there is
+     * room for it.
+     *
+     * @return a handle, or <code>null</code> if all handles are busy.
+     */
+    private ReadableRandomAccessStream acquireHandle() {
+        synchronized(idleHandles) {
+            if(handlesClosed)
+                throw new RuntimeIOException("Stream is closed!");
+
+            if(!idleHandles.isEmpty())
+                return idleHandles.removeFirst();
+            else if(openHandleCount >= poolSize)
+                return null;
+
+            ++openHandleCount;
+        }
+
+        boolean success = false;
+        try {
+            final ReadableRandomAccessStream handle =
+                    handleFactory.openHandle();
+            success = true;
+            return handle;
+        } finally {
+            if(!success) {
+                synchronized(idleHandles) {
+                    --openHandleCount;
+                }
+            }
+        }
+    }
+
+    private void releaseHandle(ReadableRandomAccessStream handle) {
+        synchronized(idleHandles) {
+            if(!handlesClosed) {
+                idleHandles.addLast(handle);
+                return;
+            }
+
+            --openHandleCount;
+        }
+
+        /* The stream was closed while the handle was lent out. */
+        handle.close();
+    }
+
+    private void closeHandles() {
+        final ReadableRandomAccessStream[] handles;
+        synchronized(idleHandles) {
+            handlesClosed = true;
+            handles = idleHandles.toArray(
+                    new ReadableRandomAccessStream[idleHandles.size()]);
+            openHandleCount -= handles.length;
+            idleHandles.clear();
+        }
+
+        for(ReadableRandomAccessStream handle : handles) {
+            handle.close();
+        }
+    }
+
     /** {@inheritDoc} */
     //@Override
-    public synchronized int readFrom(final long pos, byte[] b, int off, int len)
+    public int readFrom(final long pos, byte[] b, int off, int len)
+            throws RuntimeIOException {
+        if(handleFactory != null) {
+            final ReadableRandomAccessStream handle = acquireHandle();
+            if(handle != null) {
+                try {
+                    handle.seek(pos);
+                    return handle.read(b, off, len);
+                } finally {
+                    releaseHandle(handle);
+                }
+            }
+        }
+
+        synchronized(this) {
+            return lockedReadFrom(pos, b, off, len);
+        }
+    }
+
+    private int lockedReadFrom(final long pos, byte[] b, int off, int len)
             throws RuntimeIOException {
         if(DEBUG) {
             System.err.println(
@@ -84,14 +249,14 @@ public class SynchronizedReadableRandomAccessStream
                     ", byte[" + b.length + "], " + off + ", " + len + ");");
         }
 
-        final long oldFP = getFilePointer();
+        final long oldFP = ras.getFilePointer();
 
         if(DEBUG) { System.err.println("  oldFP=" + oldFP); }
 
         if(oldFP != pos) {
             if(DEBUG) { System.err.println("  seeking to " + pos + "..."); }
 
-            seek(pos);
+            ras.seek(pos);
         }
 
         int res;
@@ -99,14 +264,14 @@ public class SynchronizedReadableRandomAccessStream
         try {
             if(DEBUG) { System.err.println("  Reading " + len + " bytes..."); }
 
-            res = read(b, off, len);
+            res = ras.read(b, off, len);
 
             if(DEBUG) { System.err.println("    read " + res + " bytes."); }
         }
         finally {
             if(DEBUG) { System.err.println("  seeking to " + oldFP + "..."); }
 
-            seek(oldFP); // Reset file pointer to previous position
+            ras.seek(oldFP); // Reset file pointer to previous position
 
         }
 
@@ -115,9 +280,43 @@ public class SynchronizedReadableRandomAccessStream
         return res;
     }
 
+    /**
+     * Atomic seek+read which passes <code>dst</code> on to the underlying
+     * stream, so that streams with native ByteBuffer support need no
+     * intermediate copy.
+     */
+    @Override
+    public int readFrom(final long pos, ByteBuffer dst)
+            throws RuntimeIOException {
+        if(handleFactory != null) {
+            final ReadableRandomAccessStream handle = acquireHandle();
+            if(handle != null) {
+                try {
+                    handle.seek(pos);
+                    return handle.read(dst);
+                } finally {
+                    releaseHandle(handle);
+                }
+            }
+        }
+
+        synchronized(this) {
+            final long oldFP = ras.getFilePointer();
+            if(oldFP != pos)
+                ras.seek(pos);
+
+            try {
+                return ras.read(dst);
+            }
+            finally {
+                ras.seek(oldFP); // Reset file pointer to previous position
+            }
+        }
+    }
+
     /** {@inheritDoc} */
     //@Override
-    public synchronized long skipFrom(final long pos, final long length)
+    public long skipFrom(final long pos, final long length)
             throws RuntimeIOException {
         final long streamLength = length();
         final long newPos = pos + length;
@@ -137,7 +336,7 @@ public class SynchronizedReadableRandomAccessStream
 
     /** {@inheritDoc} */
     //@Override
-    public synchronized long remainingLength() throws RuntimeIOException {
+    public long remainingLength() throws RuntimeIOException {
         return length() - getFilePointer();
     }
 
@@ -168,32 +367,47 @@ public class SynchronizedReadableRandomAccessStream
 
     private void tryCloseSource() {
         if(refCount == 0) {
+            if(handleFactory != null) {
+                closeHandles();
+            }
+
             ras.close();
         }
     }
 
-    /** {@inheritDoc} */
+    /**
+     * {@inheritDoc}<br>
+     * This method doesn't lock, and returns the file pointer as last set
+     * through this stream. If the source stream is moved directly (through
+     * {@link #getSourceStream()}), the returned value is stale until the next
+     * seek on this stream.
+     */
     //@Override
-    public synchronized long getFilePointer() throws RuntimeIOException {
-        return ras.getFilePointer();
+    public long getFilePointer() throws RuntimeIOException {
+        return filePointer;
     }
 
     /** {@inheritDoc} */
     //@Override
-    public synchronized long length() throws RuntimeIOException {
+    public long length() throws RuntimeIOException {
         return ras.length();
     }
 
     /** {@inheritDoc} */
     @Override
     public synchronized int read() throws RuntimeIOException {
-        return ras.read();
+        final int res = ras.read();
+        if(res >= 0) {
+            ++filePointer;
+        }
+
+        return res;
     }
 
     /** {@inheritDoc} */
     @Override
     public synchronized int read(byte[] b) throws RuntimeIOException {
-        return ras.read(b);
+        return advance(ras.read(b));
     }
 
     /** {@inheritDoc} */
@@ -206,13 +420,28 @@ public class SynchronizedReadableRandomAccessStream
             System.err.println("  ras=" + ras);
         }
 
-        return ras.read(b, off, len);
+        return advance(ras.read(b, off, len));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized int read(ByteBuffer dst) throws RuntimeIOException {
+        return advance(ras.read(dst));
+    }
+
+    private int advance(int bytesRead) {
+        if(bytesRead > 0) {
+            filePointer += bytesRead;
+        }
+
+        return bytesRead;
     }
 
     /** {@inheritDoc} */
     //@Override
     public synchronized void seek(long pos) throws RuntimeIOException {
         ras.seek(pos);
+        filePointer = ras.getFilePointer();
     }
 
     /** {@inheritDoc} */
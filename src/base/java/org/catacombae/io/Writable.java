@@ -18,6 +18,8 @@
 
 package org.catacombae.io;
 
+import java.nio.ByteBuffer;
+
 /**
  * This interface defines the methods that must exist for a stream to be writable.
  * 
@@ -40,6 +42,14 @@ public interface Writable {
      * @param len the number of bytes to write to the stream.
      */
     public void write(byte[] data, int off, int len) throws RuntimeIOException;
+
+    /**
+     * Writes the remaining contents of <code>src</code> to the stream, at its current position.
+     * When this method returns, the position of <code>src</code> is equal to its limit.
+     *
+     * @param src buffer containing the data to write to the stream.
+     */
+    public void write(ByteBuffer src) throws RuntimeIOException;
     
     /**
      * Writes a single byte to the stream. <code>data</code> will be unsigned first, so valid ranges
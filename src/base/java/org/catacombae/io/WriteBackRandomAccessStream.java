@@ -0,0 +1,327 @@
+/*-
+ * Copyright (C) 2026 Erik Larsson
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package org.catacombae.io;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import org.catacombae.util.Log;
+
+/**
+ * A write-back buffer in front of a TruncatableRandomAccessStream, typically a
+ * {@link FileStream}.<br>
+ * Writes are collected in fixed size, aligned blocks in memory, so that any
+ * number of small, overlapping or adjacent writes to the same region cost one
+ * write to the underlying stream. Reads see the buffered data. The buffered
+ * blocks are written back in offset order, with runs of consecutive blocks
+ * merged into single writes, on {@link #flush()}, {@link #close()},
+ * {@link #setLength(long)} and whenever the amount of buffered data exceeds a
+ * threshold.<br>
+ * A block which is only partially overwritten is first read from the
+ * underlying stream. The underlying stream must not be accessed by anyone else
+ * while it is wrapped. Instances are not thread-safe.
+ *
+ * @author <a href="https://catacombae.org" target="_top">Erik Larsson</a>
+ */
+public class WriteBackRandomAccessStream extends BasicRandomAccessStream
+        implements TruncatableRandomAccessStream
+{
+    private static final Log log =
+            Log.getInstance(WriteBackRandomAccessStream.class);
+
+    /** The default size of the buffered blocks (4 KiB). */
+    public static final int DEFAULT_BLOCK_SIZE = 4096;
+
+    /** The default maximum amount of buffered data (16 MiB). */
+    public static final long DEFAULT_MAX_DIRTY_BYTES = 16 * 1024 * 1024;
+
+    /** Maximum size of a single write when flushing consecutive blocks. */
+    private static final int MAX_FLUSH_WRITE_SIZE = 1024 * 1024;
+
+    private final TruncatableRandomAccessStream backing;
+    private final int blockSize;
+    private final long maxDirtyBlocks;
+
+    /** Dirty blocks indexed by block number, in offset order. */
+    private final TreeMap<Long, byte[]> dirtyBlocks =
+            new TreeMap<Long, byte[]>();
+
+    /** The length of the underlying stream. */
+    private long backingLength;
+    /** The length of the stream including buffered writes. */
+    private long length;
+    private long filePointer = 0;
+    private boolean closed = false;
+
+    public WriteBackRandomAccessStream(TruncatableRandomAccessStream backing) {
+        this(backing, DEFAULT_BLOCK_SIZE, DEFAULT_MAX_DIRTY_BYTES);
+    }
+
+    public WriteBackRandomAccessStream(TruncatableRandomAccessStream backing,
+            int blockSize, long maxDirtyBytes)
+    {
+        if(blockSize <= 0) {
+            throw new IllegalArgumentException("Invalid block size: " +
+                    blockSize);
+        }
+        if(maxDirtyBytes < blockSize) {
+            throw new IllegalArgumentException("maxDirtyBytes is smaller " +
+                    "than the block size: " + maxDirtyBytes);
+        }
+
+        this.backing = backing;
+        this.blockSize = blockSize;
+        this.maxDirtyBlocks = maxDirtyBytes / blockSize;
+        this.backingLength = backing.length();
+        this.length = backingLength;
+    }
+
+    /**
+     * Returns the number of bytes currently buffered.
+     *
+     * @return the number of bytes currently buffered.
+     */
+    public long getDirtyByteCount() {
+        return (long) dirtyBlocks.size() * blockSize;
+    }
+
+    private void checkClosed() {
+        if(closed)
+            throw new RuntimeIOException("Stream is closed!");
+    }
+
+    /**
+     * Fills <code>block</code> with the current contents of the underlying
+     * stream for block number <code>blockNumber</code>. Data beyond the end of
+     * the underlying stream is left zeroed.
+     */
+    private void loadBlock(long blockNumber, byte[] block) {
+        final long blockStart = blockNumber * blockSize;
+        if(blockStart >= backingLength)
+            return;
+
+        backing.seek(blockStart);
+        backing.readFully(block, 0,
+                (int) Math.min(blockSize, backingLength - blockStart));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void write(byte[] b, int off, int len) throws RuntimeIOException {
+        checkClosed();
+
+        int bytesWritten = 0;
+        while(bytesWritten < len) {
+            final long blockNumber = filePointer / blockSize;
+            final int blockOffset = (int) (filePointer % blockSize);
+            final int curBytesToWrite =
+                    Math.min(len - bytesWritten, blockSize - blockOffset);
+
+            byte[] block = dirtyBlocks.get(blockNumber);
+            if(block == null) {
+                if(dirtyBlocks.size() >= maxDirtyBlocks)
+                    flush();
+
+                block = new byte[blockSize];
+                if(curBytesToWrite < blockSize)
+                    loadBlock(blockNumber, block);
+                dirtyBlocks.put(blockNumber, block);
+            }
+
+            System.arraycopy(b, off + bytesWritten, block, blockOffset,
+                    curBytesToWrite);
+
+            bytesWritten += curBytesToWrite;
+            filePointer += curBytesToWrite;
+            if(filePointer > length)
+                length = filePointer;
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int read(byte[] data, int pos, int len) throws RuntimeIOException {
+        checkClosed();
+
+        if(len == 0)
+            return 0;
+        if(filePointer >= length)
+            return -1;
+
+        final int bytesToRead = (int) Math.min(len, length - filePointer);
+        int bytesRead = 0;
+        while(bytesRead < bytesToRead) {
+            final long blockNumber = filePointer / blockSize;
+            final byte[] block = dirtyBlocks.get(blockNumber);
+
+            int res;
+            if(block != null) {
+                final int blockOffset = (int) (filePointer % blockSize);
+                res = Math.min(bytesToRead - bytesRead,
+                        blockSize - blockOffset);
+                System.arraycopy(block, blockOffset, data, pos + bytesRead,
+                        res);
+            }
+            else {
+                /* Read everything up to the next dirty block in one go. */
+                final SortedMap<Long, byte[]> following =
+                        dirtyBlocks.tailMap(blockNumber + 1);
+                final long cleanEnd = following.isEmpty() ? length :
+                    following.firstKey() * blockSize;
+                res = (int) Math.min(bytesToRead - bytesRead,
+                        cleanEnd - filePointer);
+
+                if(filePointer < backingLength) {
+                    backing.seek(filePointer);
+                    res = backing.read(data, pos + bytesRead,
+                            (int) Math.min(res, backingLength - filePointer));
+                    if(res <= 0)
+                        break;
+                }
+                else {
+                    /* Gap between the end of the underlying stream and data
+                     * written beyond it. */
+                    for(int i = 0; i < res; ++i)
+                        data[pos + bytesRead + i] = 0;
+                }
+            }
+
+            bytesRead += res;
+            filePointer += res;
+        }
+
+        return bytesRead > 0 ? bytesRead : -1;
+    }
+
+    /**
+     * Writes all buffered blocks to the underlying stream, in offset order.
+     *
+     * @throws org.catacombae.io.RuntimeIOException if an I/O error occurred.
+     */
+    public void flush() throws RuntimeIOException {
+        checkClosed();
+
+        if(dirtyBlocks.isEmpty())
+            return;
+
+        if(log.debug) {
+            log.debug("Flushing " + dirtyBlocks.size() + " blocks.");
+        }
+
+        final byte[] runBuffer = new byte[(int) Math.min(
+                MAX_FLUSH_WRITE_SIZE / blockSize * (long) blockSize,
+                (long) dirtyBlocks.size() * blockSize)];
+        long runStart = -1;
+        int runLength = 0;
+
+        for(Map.Entry<Long, byte[]> e : dirtyBlocks.entrySet()) {
+            final long blockStart = e.getKey() * blockSize;
+            final int blockLength =
+                    (int) Math.min(blockSize, length - blockStart);
+            if(blockLength <= 0)
+                continue; // Truncated away.
+
+            if(runLength > 0 && (blockStart != runStart + runLength ||
+                    runLength + blockLength > runBuffer.length))
+            {
+                writeRun(runStart, runBuffer, runLength);
+                runLength = 0;
+            }
+
+            if(runLength == 0)
+                runStart = blockStart;
+
+            if(runBuffer.length < blockLength) {
+                /* Block larger than the run buffer. Write it directly. */
+                writeRun(blockStart, e.getValue(), blockLength);
+            }
+            else {
+                System.arraycopy(e.getValue(), 0, runBuffer, runLength,
+                        blockLength);
+                runLength += blockLength;
+            }
+        }
+
+        if(runLength > 0)
+            writeRun(runStart, runBuffer, runLength);
+
+        dirtyBlocks.clear();
+        backingLength = backing.length();
+    }
+
+    private void writeRun(long pos, byte[] data, int len) {
+        backing.seek(pos);
+        backing.write(data, 0, len);
+    }
+
+    /**
+     * Flushes all buffered blocks and, if the underlying stream is a
+     * {@link FileStream}, forces its contents to the storage device.
+     *
+     * @throws org.catacombae.io.RuntimeIOException if an I/O error occurred.
+     */
+    public void force() throws RuntimeIOException {
+        flush();
+
+        if(backing instanceof FileStream)
+            ((FileStream) backing).force();
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public void setLength(long newLength) throws RuntimeIOException {
+        flush();
+        backing.setLength(newLength);
+        backingLength = newLength;
+        length = newLength;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void seek(long pos) throws RuntimeIOException {
+        checkClosed();
+        filePointer = pos;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long length() throws RuntimeIOException {
+        checkClosed();
+        return length;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getFilePointer() throws RuntimeIOException {
+        checkClosed();
+        return filePointer;
+    }
+
+    /**
+     * Flushes all buffered blocks and closes the underlying stream.
+     *
+     * @throws org.catacombae.io.RuntimeIOException if an I/O error occurred.
+     */
+    @Override
+    public void close() throws RuntimeIOException {
+        flush();
+        closed = true;
+        backing.close();
+    }
+}
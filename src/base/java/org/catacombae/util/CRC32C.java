@@ -0,0 +1,117 @@
+/*-
+ * Copyright (C) 2026 Erik Larsson
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package org.catacombae.util;
+
+import java.util.zip.Checksum;
+
+/**
+ * Computes the CRC-32C (Castagnoli) checksum of a data stream, as used by
+ * iSCSI, ext4 and btrfs among others.<br>
+ * The Java class library only gained a CRC-32C implementation in Java 9, so
+ * this is a pure Java implementation using the slicing-by-8 algorithm, which
+ * processes eight bytes per table round.
+ *
+ * @author <a href="https://catacombae.org" target="_top">Erik Larsson</a>
+ */
+public class CRC32C implements Checksum {
+    /** The reflected Castagnoli polynomial. */
+    private static final int POLYNOMIAL = 0x82F63B78;
+
+    /**
+     * Lookup tables. <code>TABLE[0]</code> is the classic byte-wise table, and
+     * <code>TABLE[k][n]</code> is the CRC of byte <code>n</code> followed by
+     * <code>k</code> zero bytes.
+     */
+    private static final int[][] TABLE = new int[8][256];
+
+    static {
+        for(int n = 0; n < 256; ++n) {
+            int crc = n;
+            for(int k = 0; k < 8; ++k)
+                crc = (crc & 1) != 0 ? (crc >>> 1) ^ POLYNOMIAL : crc >>> 1;
+            TABLE[0][n] = crc;
+        }
+
+        for(int n = 0; n < 256; ++n) {
+            int crc = TABLE[0][n];
+            for(int k = 1; k < 8; ++k) {
+                crc = TABLE[0][crc & 0xFF] ^ (crc >>> 8);
+                TABLE[k][n] = crc;
+            }
+        }
+    }
+
+    /** The current CRC, in its inverted form. */
+    private int crc = 0xFFFFFFFF;
+
+    /** {@inheritDoc} */
+    //@Override
+    public void update(int b) {
+        crc = TABLE[0][(crc ^ b) & 0xFF] ^ (crc >>> 8);
+    }
+
+    /**
+     * Updates the checksum with the bytes of <code>b</code>.
+     *
+     * @param b the bytes to update the checksum with.
+     */
+    public void update(byte[] b) {
+        update(b, 0, b.length);
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public void update(byte[] b, int off, int len) {
+        if(off < 0 || len < 0 || off > b.length - len)
+            throw new ArrayIndexOutOfBoundsException();
+
+        final int[] t0 = TABLE[0], t1 = TABLE[1], t2 = TABLE[2],
+                t3 = TABLE[3], t4 = TABLE[4], t5 = TABLE[5], t6 = TABLE[6],
+                t7 = TABLE[7];
+
+        int c = crc;
+        int i = off;
+        final int end = off + len;
+        for(final int end8 = end - 7; i < end8; i += 8) {
+            final int lo = c ^ ((b[i] & 0xFF) | ((b[i + 1] & 0xFF) << 8) |
+                    ((b[i + 2] & 0xFF) << 16) | ((b[i + 3] & 0xFF) << 24));
+            c = t7[lo & 0xFF] ^ t6[(lo >>> 8) & 0xFF] ^
+                    t5[(lo >>> 16) & 0xFF] ^ t4[lo >>> 24] ^
+                    t3[b[i + 4] & 0xFF] ^ t2[b[i + 5] & 0xFF] ^
+                    t1[b[i + 6] & 0xFF] ^ t0[b[i + 7] & 0xFF];
+        }
+
+        for(; i < end; ++i)
+            c = t0[(c ^ b[i]) & 0xFF] ^ (c >>> 8);
+
+        crc = c;
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public long getValue() {
+        return (~crc) & 0xFFFFFFFFL;
+    }
+
+    /** {@inheritDoc} */
+    //@Override
+    public void reset() {
+        crc = 0xFFFFFFFF;
+    }
+}
@@ -0,0 +1,264 @@
+/*-
+ * Copyright (C) 2026 Erik Larsson
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package org.catacombae.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import org.catacombae.io.ReadableRandomAccessStream;
+import org.catacombae.io.RuntimeIOException;
+import org.catacombae.io.SynchronizedReadable;
+
+/**
+ * CRC32 utility functions, for combining the CRC32 checksums of adjacent
+ * blocks of data and for computing the CRC32 of a stream in parallel.
+ *
+ * @author <a href="https://catacombae.org" target="_top">Erik Larsson</a>
+ */
+public class CRC32Util {
+    /** The reflected CRC-32 polynomial, as used by java.util.zip.CRC32. */
+    private static final long POLYNOMIAL = 0xEDB88320L;
+
+    /** Size of each read done by the parallel checksum routine (1 MiB). */
+    private static final int READ_SIZE = 1024 * 1024;
+
+    /**
+     * Ranges smaller than this aren't worth a thread of their own in the
+     * parallel checksum routine.
+     */
+    private static final long MIN_RANGE_SIZE = 4 * 1024 * 1024;
+
+    /**
+     * Combines the CRC32 checksums of two adjacent blocks of data into the
+     * checksum of their concatenation. This is equivalent to zlib's
+     * <code>crc32_combine</code>, and runs in O(log(len2)) time without
+     * access to the data.
+     *
+     * @param crc1 the CRC32 of the first block, as returned by
+     * CRC32.getValue().
+     * @param crc2 the CRC32 of the second block.
+     * @param len2 the length of the second block in bytes.
+     * @return the CRC32 of the first block followed by the second block.
+     */
+    public static long combine(long crc1, long crc2, long len2) {
+        if(len2 < 0)
+            throw new IllegalArgumentException("len2 is negative: " + len2);
+        else if(len2 == 0)
+            return crc1;
+
+        /* Appending len2 zero bytes to the first block is a linear operation
+         * on the CRC, represented by a 32x32 matrix over GF(2). The matrix for
+         * 2^k zero bits is found by repeated squaring, starting with the
+         * operator for one zero bit. */
+        long[] even = new long[32];
+        long[] odd = new long[32];
+
+        odd[0] = POLYNOMIAL;
+        long row = 1;
+        for(int n = 1; n < 32; ++n) {
+            odd[n] = row;
+            row <<= 1;
+        }
+
+        gf2MatrixSquare(even, odd); // Two zero bits.
+        gf2MatrixSquare(odd, even); // Four zero bits.
+
+        /* Apply len2 zero bytes to crc1. The first squaring below gives the
+         * operator for one zero byte. */
+        long crc = crc1 & 0xFFFFFFFFL;
+        long remaining = len2;
+        do {
+            gf2MatrixSquare(even, odd);
+            if((remaining & 1) != 0)
+                crc = gf2MatrixTimes(even, crc);
+            remaining >>>= 1;
+            if(remaining == 0)
+                break;
+
+            gf2MatrixSquare(odd, even);
+            if((remaining & 1) != 0)
+                crc = gf2MatrixTimes(odd, crc);
+            remaining >>>= 1;
+        } while(remaining != 0);
+
+        return crc ^ (crc2 & 0xFFFFFFFFL);
+    }
+
+    private static long gf2MatrixTimes(long[] mat, long vec) {
+        long sum = 0;
+        for(int i = 0; vec != 0; ++i, vec >>>= 1) {
+            if((vec & 1) != 0)
+                sum ^= mat[i];
+        }
+
+        return sum;
+    }
+
+    private static void gf2MatrixSquare(long[] square, long[] mat) {
+        for(int n = 0; n < 32; ++n)
+            square[n] = gf2MatrixTimes(mat, mat[n]);
+    }
+
+    /**
+     * Computes the CRC32 of <code>length</code> bytes of <code>stream</code>,
+     * starting at <code>pos</code>. The region is split into up to
+     * <code>threadCount</code> ranges, which are checksummed on separate
+     * threads, and the results are combined.<br>
+     * If <code>stream</code> is a {@link SynchronizedReadable}, the ranges are
+     * read with its positional methods. Otherwise the reads are serialized on
+     * the stream, which still lets the checksum computations overlap, and the
+     * file pointer of the stream is left undefined.
+     *
+     * @param stream the stream to checksum.
+     * @param pos the position of the first byte to checksum.
+     * @param length the number of bytes to checksum.
+     * @param threadCount the maximum number of threads to use.
+     * @return the CRC32 of the region, as returned by CRC32.getValue().
+     * @throws org.catacombae.io.RuntimeIOException if an I/O error occurred.
+     */
+    public static long parallelChecksum(final ReadableRandomAccessStream stream,
+            long pos, long length, int threadCount) throws RuntimeIOException
+    {
+        if(pos < 0)
+            throw new IllegalArgumentException("pos is negative: " + pos);
+        if(length < 0) {
+            throw new IllegalArgumentException("length is negative: " +
+                    length);
+        }
+        if(threadCount <= 0) {
+            throw new IllegalArgumentException("Invalid thread count: " +
+                    threadCount);
+        }
+
+        final int rangeCount = (int) Math.max(1, Math.min(threadCount,
+                length / MIN_RANGE_SIZE));
+        if(rangeCount == 1)
+            return checksumRange(stream, pos, length);
+
+        final long rangeSize = length / rangeCount;
+        final ExecutorService executor =
+                Executors.newFixedThreadPool(rangeCount - 1);
+        final List<Future<Long>> results = new ArrayList<Future<Long>>();
+        try {
+            for(int i = 1; i < rangeCount; ++i) {
+                final long rangeStart = pos + i * rangeSize;
+                final long rangeLength = (i == rangeCount - 1) ?
+                    length - i * rangeSize : rangeSize;
+                results.add(executor.submit(new Callable<Long>() {
+                    public Long call() {
+                        return checksumRange(stream, rangeStart, rangeLength);
+                    }
+                }));
+            }
+
+            long crc = checksumRange(stream, pos, rangeSize);
+            for(int i = 0; i < results.size(); ++i) {
+                final long rangeLength = (i == results.size() - 1) ?
+                    length - (i + 1) * rangeSize : rangeSize;
+                crc = combine(crc, getResult(results.get(i)), rangeLength);
+            }
+
+            return crc;
+        } finally {
+            /* The workers must not be interrupted, since an interrupted read
+             * closes the FileChannel of an interruptible stream for everyone.
+             * Instead skip the ranges that haven't started and wait for the
+             * running ones, so that the stream is idle when we return. */
+            for(Future<Long> result : results)
+                result.cancel(false);
+            executor.shutdown();
+            awaitTermination(executor);
+        }
+    }
+
+    private static void awaitTermination(ExecutorService executor) {
+        boolean interrupted = false;
+        while(true) {
+            try {
+                if(executor.awaitTermination(Long.MAX_VALUE,
+                        TimeUnit.NANOSECONDS))
+                {
+                    break;
+                }
+            } catch(InterruptedException ex) {
+                interrupted = true;
+            }
+        }
+
+        if(interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    private static long getResult(Future<Long> result) {
+        boolean interrupted = false;
+        try {
+            while(true) {
+                try {
+                    return result.get();
+                } catch(InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+        } catch(ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            if(cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            else if(cause instanceof Error)
+                throw (Error) cause;
+            else
+                throw new RuntimeException(cause);
+        } finally {
+            if(interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    private static long checksumRange(ReadableRandomAccessStream stream,
+            long pos, long length) {
+        final CRC32 crc = new CRC32();
+        final byte[] buffer = new byte[(int) Math.min(READ_SIZE, length)];
+
+        long bytesProcessed = 0;
+        while(bytesProcessed < length) {
+            final int curBytesToRead =
+                    (int) Math.min(buffer.length, length - bytesProcessed);
+            if(stream instanceof SynchronizedReadable) {
+                ((SynchronizedReadable) stream).readFullyFrom(
+                        pos + bytesProcessed, buffer, 0, curBytesToRead);
+            }
+            else {
+                synchronized(stream) {
+                    stream.seek(pos + bytesProcessed);
+                    stream.readFully(buffer, 0, curBytesToRead);
+                }
+            }
+
+            crc.update(buffer, 0, curBytesToRead);
+            bytesProcessed += curBytesToRead;
+        }
+
+        return crc.getValue();
+    }
+}
@@ -18,8 +18,18 @@
 
 package org.catacombae.util;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import org.catacombae.io.FileStream;
+import org.catacombae.io.Readable;
+import org.catacombae.io.ReadableFileChannelStream;
+import org.catacombae.io.ReadableFileStream;
 import org.catacombae.io.ReadableRandomAccessStream;
 import org.catacombae.io.RuntimeIOException;
+import org.catacombae.io.Writable;
 
 /**
  * CatacombaeIO-specific utility class.
@@ -27,6 +37,42 @@ import org.catacombae.io.RuntimeIOException;
  * @author <a href="https://catacombae.org" target="_top">Erik Larsson</a>
  */
 public class IOUtil {
+    /**
+     * Size of each of the two buffers used by the buffered copy (1 MiB). Also
+     * the threshold below which a copy is done on the calling thread.
+     */
+    private static final int COPY_BUFFER_SIZE = 1024 * 1024;
+
+    /**
+     * Reads in the buffered copy start at multiples of this from the start of
+     * the source stream, after the first one.
+     */
+    private static final int COPY_ALIGNMENT = 4096;
+
+    /** Maximum amount of data moved by a single transferTo call (64 MiB). */
+    private static final long MAX_TRANSFER_SIZE = 64 * 1024 * 1024;
+
+    /** Marks the end of the data in the queue of filled copy buffers. */
+    private static final Object END_OF_DATA = new Object();
+
+    /** Tells the copy reader thread to stop. */
+    private static final ByteBuffer ABORT = ByteBuffer.allocate(0);
+
+    /**
+     * Receives progress notifications from the copy methods.
+     */
+    public static interface CopyProgressListener {
+        /**
+         * Called on the copying thread each time a chunk of data has been
+         * written.
+         *
+         * @param bytesCopied the number of bytes copied so far.
+         * @param totalBytes the total number of bytes to copy, or -1 if the
+         * copy continues until the end of the source.
+         */
+        public void copyProgress(long bytesCopied, long totalBytes);
+    }
+
     /**
      * Reads the supplied ReadableRandomAccessStream from its current position
      * until the end of the stream.
@@ -84,4 +130,258 @@ public class IOUtil {
 
         return res;
     }
+
+    /**
+     * Copies <code>length</code> bytes, starting at position <code>pos</code>
+     * in <code>source</code>, to the current position of <code>dest</code>.
+     * Afterwards the file pointer of <code>source</code> is positioned after
+     * the last byte copied.<br>
+     * When both ends are file streams, the data is moved with
+     * FileChannel.transferTo, so that it doesn't have to pass through the
+     * Java heap. Otherwise a reader thread fills one buffer while the calling
+     * thread writes the other.
+     *
+     * @param source the stream to copy from.
+     * @param pos the position in <code>source</code> to start copying from.
+     * @param length the number of bytes to copy.
+     * @param dest the stream to copy to.
+     * @param listener the listener to notify of the progress, or
+     * <code>null</code>.
+     * @return the number of bytes copied, which is less than
+     * <code>length</code> only if the end of <code>source</code> was reached.
+     * @throws org.catacombae.io.RuntimeIOException if an I/O error occurred.
+     */
+    public static long copy(ReadableRandomAccessStream source, long pos,
+            long length, Writable dest, CopyProgressListener listener)
+            throws RuntimeIOException
+    {
+        if(pos < 0)
+            throw new IllegalArgumentException("pos is negative: " + pos);
+        if(length < 0) {
+            throw new IllegalArgumentException("length is negative: " +
+                    length);
+        }
+
+        final FileChannel sourceChannel = getFileChannel(source);
+        if(sourceChannel != null && dest instanceof FileStream) {
+            final long bytesCopied = transfer(sourceChannel, pos, length,
+                    ((FileStream) dest).getChannel(), listener);
+            source.seek(pos + bytesCopied);
+            return bytesCopied;
+        }
+
+        source.seek(pos);
+        return copyBuffered(source, dest, length,
+                COPY_BUFFER_SIZE - (int) (pos % COPY_ALIGNMENT), listener);
+    }
+
+    /**
+     * Copies <code>length</code> bytes from the current position of
+     * <code>source</code> to the current position of <code>dest</code>, using
+     * the fastest method available as described in
+     * {@link #copy(ReadableRandomAccessStream, long, long, Writable,
+     * CopyProgressListener)}.
+     *
+     * @param source the stream to copy from.
+     * @param dest the stream to copy to.
+     * @param length the number of bytes to copy, or -1 to copy until the end
+     * of <code>source</code>.
+     * @param listener the listener to notify of the progress, or
+     * <code>null</code>.
+     * @return the number of bytes copied.
+     * @throws org.catacombae.io.RuntimeIOException if an I/O error occurred.
+     */
+    public static long copy(Readable source, Writable dest, long length,
+            CopyProgressListener listener) throws RuntimeIOException
+    {
+        if(source instanceof ReadableRandomAccessStream) {
+            final ReadableRandomAccessStream ras =
+                    (ReadableRandomAccessStream) source;
+            final long pos = ras.getFilePointer();
+            if(length < 0)
+                length = Math.max(0, ras.length() - pos);
+
+            return copy(ras, pos, length, dest, listener);
+        }
+
+        return copyBuffered(source, dest, length, COPY_BUFFER_SIZE, listener);
+    }
+
+    private static FileChannel getFileChannel(ReadableRandomAccessStream s) {
+        if(s instanceof ReadableFileStream)
+            return ((ReadableFileStream) s).getChannel();
+        else if(s instanceof ReadableFileChannelStream)
+            return ((ReadableFileChannelStream) s).getChannel();
+        else
+            return null;
+    }
+
+    private static long transfer(FileChannel sourceChannel, long pos,
+            long length, FileChannel destChannel,
+            CopyProgressListener listener)
+    {
+        long bytesCopied = 0;
+        try {
+            while(bytesCopied < length) {
+                final long res = sourceChannel.transferTo(pos + bytesCopied,
+                        Math.min(length - bytesCopied, MAX_TRANSFER_SIZE),
+                        destChannel);
+                if(res <= 0)
+                    break; // End of file.
+
+                bytesCopied += res;
+                if(listener != null)
+                    listener.copyProgress(bytesCopied, length);
+            }
+        } catch(IOException ex) {
+            throw new RuntimeIOException("Error while transferring data at " +
+                    "pos " + (pos + bytesCopied) + "," + ex.toString(), ex);
+        }
+
+        return bytesCopied;
+    }
+
+    /**
+     * Fills <code>buffer</code> from <code>source</code>, up to its limit.
+     *
+     * @return whether the end of <code>source</code> was reached.
+     */
+    private static boolean fillBuffer(Readable source, ByteBuffer buffer) {
+        while(buffer.hasRemaining()) {
+            if(source.read(buffer) < 0)
+                return true;
+        }
+
+        return false;
+    }
+
+    private static long copyBuffered(final Readable source, Writable dest,
+            final long length, final int firstReadSize,
+            CopyProgressListener listener)
+    {
+        if(length >= 0 && length <= COPY_BUFFER_SIZE) {
+            /* Too small to be worth a reader thread. */
+            final ByteBuffer buffer = ByteBuffer.allocate((int) length);
+            fillBuffer(source, buffer);
+            buffer.flip();
+            final int bytesCopied = buffer.remaining();
+            dest.write(buffer);
+            if(listener != null)
+                listener.copyProgress(bytesCopied, length);
+            return bytesCopied;
+        }
+
+        /* The reader thread takes empty buffers from freeBuffers and hands
+         * them over filled through filledBuffers, followed by END_OF_DATA or
+         * the exception that stopped it. The queues are large enough to never
+         * block when adding the markers. */
+        final BlockingQueue<ByteBuffer> freeBuffers =
+                new ArrayBlockingQueue<ByteBuffer>(3);
+        final BlockingQueue<Object> filledBuffers =
+                new ArrayBlockingQueue<Object>(4);
+        freeBuffers.add(ByteBuffer.allocate(COPY_BUFFER_SIZE));
+        freeBuffers.add(ByteBuffer.allocate(COPY_BUFFER_SIZE));
+
+        final Thread reader = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    long remaining = length;
+                    int readSize = firstReadSize;
+                    while(remaining != 0) {
+                        final ByteBuffer buffer = freeBuffers.take();
+                        if(buffer == ABORT)
+                            return;
+
+                        buffer.clear();
+                        buffer.limit(remaining < 0 ? readSize :
+                            (int) Math.min(readSize, remaining));
+                        final boolean endOfData = fillBuffer(source, buffer);
+                        buffer.flip();
+
+                        if(buffer.hasRemaining()) {
+                            filledBuffers.add(buffer);
+                            if(remaining > 0)
+                                remaining -= buffer.remaining();
+                        }
+
+                        if(endOfData)
+                            break;
+
+                        readSize = COPY_BUFFER_SIZE;
+                    }
+
+                    filledBuffers.add(END_OF_DATA);
+                } catch(InterruptedException ex) {
+                    filledBuffers.add(ex);
+                } catch(RuntimeException ex) {
+                    filledBuffers.add(ex);
+                } catch(Error ex) {
+                    filledBuffers.add(ex);
+                }
+            }
+        }, IOUtil.class.getSimpleName() + " copy reader");
+        reader.setDaemon(true);
+        reader.start();
+
+        long bytesCopied = 0;
+        boolean interrupted = false;
+        boolean finished = false;
+        try {
+            while(true) {
+                final Object o;
+                try {
+                    o = filledBuffers.take();
+                } catch(InterruptedException ex) {
+                    interrupted = true;
+                    continue;
+                }
+
+                if(o == END_OF_DATA) {
+                    finished = true;
+                    break;
+                }
+                else if(o instanceof RuntimeException) {
+                    finished = true;
+                    throw (RuntimeException) o;
+                }
+                else if(o instanceof Error) {
+                    finished = true;
+                    throw (Error) o;
+                }
+                else if(o instanceof Throwable) {
+                    finished = true;
+                    throw new RuntimeException((Throwable) o);
+                }
+
+                final ByteBuffer buffer = (ByteBuffer) o;
+                final int bytesToWrite = buffer.remaining();
+                dest.write(buffer);
+                bytesCopied += bytesToWrite;
+                freeBuffers.add(buffer);
+
+                if(listener != null)
+                    listener.copyProgress(bytesCopied, length);
+            }
+        } finally {
+            if(!finished) {
+                /* The writer failed. Stop the reader and wait for it so that
+                 * it doesn't touch the source after we have returned. */
+                freeBuffers.add(ABORT);
+            }
+
+            while(true) {
+                try {
+                    reader.join();
+                    break;
+                } catch(InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+
+            if(interrupted)
+                Thread.currentThread().interrupt();
+        }
+
+        return bytesCopied;
+    }
 }
@@ -1281,7 +1281,93 @@ public class Util {
     public static BigInteger unsign(long l) {
         return new BigInteger(1, toByteArrayBE(l));
     }
-    
+
+    /**
+     * Returns the decimal string representation of <code>l</code> interpreted
+     * as an unsigned 64-bit value. Equivalent to
+     * <code>unsign(l).toString()</code>, but without creating a BigInteger.
+     */
+    public static String unsignedToString(long l) {
+        return unsignedToString(l, 10);
+    }
+
+    /**
+     * Returns the string representation of <code>l</code> interpreted as an
+     * unsigned 64-bit value in radix <code>radix</code>. Equivalent to
+     * <code>unsign(l).toString(radix)</code>, but without creating a
+     * BigInteger.
+     */
+    public static String unsignedToString(long l, int radix) {
+        if(radix < Character.MIN_RADIX || radix > Character.MAX_RADIX)
+            radix = 10;
+
+        if(l >= 0)
+            return Long.toString(l, radix);
+
+        final long quotient = unsignedDivide(l, radix);
+        final int remainder = (int) (l - quotient * radix);
+        return Long.toString(quotient, radix) +
+                Character.forDigit(remainder, radix);
+    }
+
+    /**
+     * Compares <code>a</code> and <code>b</code> interpreted as unsigned
+     * 64-bit values.
+     *
+     * @return a negative value, zero or a positive value if <code>a</code> is
+     * less than, equal to or greater than <code>b</code>.
+     */
+    public static int unsignedCompare(long a, long b) {
+        final long x = a + Long.MIN_VALUE;
+        final long y = b + Long.MIN_VALUE;
+        return x < y ? -1 : (x == y ? 0 : 1);
+    }
+
+    /**
+     * Parses <code>s</code> as an unsigned 64-bit value in radix
+     * <code>radix</code>. An optional leading '+' is accepted. Values above
+     * <code>Long.MAX_VALUE</code> are returned as the negative long with the
+     * same bit pattern.
+     *
+     * @throws NumberFormatException if <code>s</code> isn't a valid unsigned
+     * number or doesn't fit in 64 bits.
+     */
+    public static long parseUnsignedLong(String s, int radix)
+            throws NumberFormatException
+    {
+        final int start = (s.length() > 0 && s.charAt(0) == '+') ? 1 : 0;
+        if(s.length() == start || s.charAt(0) == '-')
+            throw new NumberFormatException("Invalid unsigned number: " + s);
+
+        final long limit = unsignedDivide(-1L, radix);
+        long result = 0;
+        for(int i = start; i < s.length(); ++i) {
+            final int digit = Character.digit(s.charAt(i), radix);
+            if(digit < 0) {
+                throw new NumberFormatException("Invalid unsigned number: " +
+                        s);
+            }
+
+            if(unsignedCompare(result, limit) > 0)
+                throw new NumberFormatException("Value out of range: " + s);
+
+            final long shifted = result * radix;
+            result = shifted + digit;
+            if(unsignedCompare(result, shifted) < 0)
+                throw new NumberFormatException("Value out of range: " + s);
+        }
+
+        return result;
+    }
+
+    /** Divides the unsigned value <code>dividend</code> by a positive int. */
+    private static long unsignedDivide(long dividend, int divisor) {
+        long quotient = ((dividend >>> 1) / divisor) << 1;
+        if(unsignedCompare(dividend - quotient * divisor, divisor) >= 0)
+            ++quotient;
+        return quotient;
+    }
+
     public static short[] unsign(byte[] ab) {
         short[] res = new short[ab.length];
         for(int i = 0; i < ab.length; ++i)
@@ -0,0 +1,63 @@
+/*-
+ * Copyright (C) 2026 Erik Larsson
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package org.catacombae.util.test;
+
+import java.util.Random;
+import java.util.zip.CRC32;
+import org.catacombae.io.ReadableByteArrayStream;
+import org.catacombae.util.CRC32Util;
+
+/**
+ *
+ * @author <a href="https://catacombae.org" target="_top">Erik Larsson</a>
+ */
+public class TestCRC32Combine {
+    public static void main(String[] args) {
+        final byte[] data = new byte[20 * 1024 * 1024 + 17];
+        new Random(0).nextBytes(data);
+
+        final CRC32 whole = new CRC32();
+        whole.update(data);
+        System.out.println("Whole: 0x" + Long.toHexString(whole.getValue()));
+
+        final int[] splits = { 0, 1, 2, 3, 8, 1000, 65536, data.length / 2,
+            data.length - 1, data.length };
+        for(int split : splits) {
+            final CRC32 first = new CRC32();
+            first.update(data, 0, split);
+            final CRC32 second = new CRC32();
+            second.update(data, split, data.length - split);
+
+            final long combined = CRC32Util.combine(first.getValue(),
+                    second.getValue(), data.length - split);
+            System.out.println("  Split at " + split + ": 0x" +
+                    Long.toHexString(combined) +
+                    (combined == whole.getValue() ? " (OK)" : " (FAILED)"));
+        }
+
+        for(int threadCount = 1; threadCount <= 8; threadCount *= 2) {
+            final long parallel = CRC32Util.parallelChecksum(
+                    new ReadableByteArrayStream(data), 0, data.length,
+                    threadCount);
+            System.out.println("  " + threadCount + " threads: 0x" +
+                    Long.toHexString(parallel) +
+                    (parallel == whole.getValue() ? " (OK)" : " (FAILED)"));
+        }
+    }
+}